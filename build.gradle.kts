@@ -2,6 +2,7 @@ plugins {
   id("java")
   id("org.jetbrains.kotlin.jvm") version "1.9.25"
   id("org.jetbrains.intellij") version "1.17.4"
+  id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.example"
@@ -16,6 +17,48 @@ dependencies {
   testImplementation("org.junit.jupiter:junit-jupiter")
 }
 
+// Benchmarks live in src/jmh/java and only exercise classes that do not need a running IDE.
+// Run with ./gradlew jmh; results are written as JSON for comparison across releases.
+jmh {
+  warmupIterations.set(2)
+  iterations.set(5)
+  fork.set(1)
+  resultFormat.set("JSON")
+  resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+}
+
+// Scale suite in src/scale/java: generates repositories of realistic size and fails when a rename step exceeds its
+// latency budget. check runs the small profile; the large one takes minutes, so run it with ./gradlew scaleCheck and
+// choose profiles with -PscaleProfiles="small medium large" or override sizes, e.g. -PscaleProfiles="large:files=2000000".
+val scale: SourceSet by sourceSets.creating {
+  compileClasspath += sourceSets.main.get().output
+  runtimeClasspath += sourceSets.main.get().output
+}
+
+fun JavaExec.runScaleSuite(profiles: List<String>, report: String) {
+  group = "verification"
+  classpath = scale.runtimeClasspath
+  mainClass.set("com.example.renamecurrentcommit.ScaleSuite")
+  args(profiles)
+  systemProperty("scale.report", layout.buildDirectory.file("reports/scale/$report").get().asFile.path)
+  (findProperty("scaleRuns") as String?)?.let { systemProperty("scale.runs", it) }
+  maxHeapSize = "2g"
+}
+
+tasks.register<JavaExec>("scaleCheck") {
+  description = "Checks rename latency budgets on generated large repositories"
+  runScaleSuite((findProperty("scaleProfiles") as String? ?: "small medium").split(" ").filter { it.isNotBlank() }, "results.json")
+}
+
+val scaleSmokeCheck = tasks.register<JavaExec>("scaleSmokeCheck") {
+  description = "Checks rename latency budgets on the small generated repository"
+  runScaleSuite(listOf("small"), "smoke-results.json")
+}
+
+tasks.named("check") {
+  dependsOn(scaleSmokeCheck)
+}
+
 // Configure Gradle IntelliJ Plugin
 // Read more: https://plugins.jetbrains.com/docs/intellij/tools-gradle-intellij-plugin.html
 intellij {
@@ -0,0 +1,58 @@
+package com.example.renamecurrentcommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completion lookups on a history index filled from a million synthetic commit subjects
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompletionBenchmark {
+    private static final String[] TYPES = {"feat", "fix", "chore", "refactor", "docs", "perf", "test"};
+    private static final String[] SCOPES = {"ui", "core", "git", "build", "dialog", "index"};
+
+    @Param({"f", "feat(ui): ", "fix(core): ABC-12"})
+    public String prefix;
+
+    private CommitHistoryIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new CommitHistoryIndex(CommitHistoryIndex.DEFAULT_SUBJECT_CAPACITY);
+        Random random = new Random(42);
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < 1_000_000; i++) {
+            batch.add(TYPES[random.nextInt(TYPES.length)] + "(" + SCOPES[random.nextInt(SCOPES.length)] + "): ABC-"
+                    + random.nextInt(5000) + " adjust item " + random.nextInt(100_000));
+            if (batch.size() == 256) {
+                index.addSubjects(batch);
+                batch.clear();
+            }
+        }
+        index.addSubjects(batch);
+    }
+
+    @Benchmark
+    public List<String> subject() {
+        return index.completeSubject(prefix, 8);
+    }
+
+    @Benchmark
+    public List<String> token() {
+        return index.completeToken(prefix.substring(0, Math.min(3, prefix.length())), 8);
+    }
+}
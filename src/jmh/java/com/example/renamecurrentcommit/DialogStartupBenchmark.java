@@ -0,0 +1,69 @@
+package com.example.renamecurrentcommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The EDT work of opening the rename dialog that does not need a running IDE, in headless Swing.
+ * <p>
+ * {@code constructor} builds the text area and scroll pane through {@link MessageAreaLayout}, as the dialog does,
+ * creates the validator state and lays the message out once at the dialog size. {@code firstValidationPass} is the
+ * pass that runs after the dialog is shown. The end-to-end time from invoking the action to an editable text area
+ * is recorded in the IDE as the {@code time_to_interactive} phase of the timing report.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DialogStartupBenchmark {
+    @Param({"64", "4096", "1048576"})
+    public int messageBytes;
+
+    private String message;
+    private Font font;
+    private CommitMessageRules.RuleSet rules;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("java.awt.headless", "true");
+        StringBuilder builder = new StringBuilder("feat(core): generated changelog");
+        for (int i = 0; builder.length() < messageBytes; i++) {
+            builder.append(i == 0 ? "\n\n" : "\n").append("- entry ").append(i).append(": adjust component ").append(i % 97);
+        }
+        message = builder.substring(0, Math.min(builder.length(), messageBytes));
+        font = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+        rules = CommitMessageRules.defaults();
+    }
+
+    @Benchmark
+    public Dimension constructor() {
+        JTextArea area = MessageAreaLayout.createTextArea(message, font);
+        new IncrementalValidator(area.getDocument().getDefaultRootElement().getElementCount());
+        JScrollPane scrollPane = new JScrollPane(area);
+        MessageAreaLayout.setPreferredSize(scrollPane, area, 20, 4);
+        // Packing and the first layout at the dialog width
+        scrollPane.setSize(scrollPane.getPreferredSize());
+        scrollPane.doLayout();
+        scrollPane.getViewport().doLayout();
+        return area.getSize();
+    }
+
+    @Benchmark
+    public String firstValidationPass() {
+        String[] lines = message.split("\n", -1);
+        IncrementalValidator validator = new IncrementalValidator(lines.length);
+        IncrementalValidator.Pass pass = validator.preparePass(index -> lines[index], lines.length);
+        validator.apply(pass, IncrementalValidator.evaluate(rules, pass));
+        return validator.firstError();
+    }
+}
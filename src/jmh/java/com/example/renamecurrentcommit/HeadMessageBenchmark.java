@@ -0,0 +1,58 @@
+package com.example.renamecurrentcommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the HEAD commit message: in-process loose object read, pooled {@code cat-file --batch} and a fresh
+ * git process per read as the plugin originally did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeadMessageBenchmark {
+    private SyntheticRepository repository;
+    private CatFileBatchProcess catFile;
+    private String head;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repository = SyntheticRepository.create(100, 20);
+        head = repository.git("rev-parse", "HEAD");
+        catFile = new CatFileBatchProcess("git", repository.getRoot());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        catFile.close();
+        repository.close();
+    }
+
+    @Benchmark
+    public String looseObject() throws IOException {
+        byte[] data = LooseObjectReader.read(repository.getObjectsDirectory(), head, "commit");
+        return RawCommit.parse(data).getMessage();
+    }
+
+    @Benchmark
+    public String pooledCatFile() throws IOException {
+        List<CatFileBatch.GitObject> objects = catFile.read(List.of(head));
+        return RawCommit.parse(objects.get(0).getContent()).getMessage();
+    }
+
+    @Benchmark
+    public String gitLogProcess() throws IOException {
+        return repository.git("log", "-1", "--pretty=%B");
+    }
+}
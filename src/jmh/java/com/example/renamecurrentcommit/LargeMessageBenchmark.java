@@ -0,0 +1,60 @@
+package com.example.renamecurrentcommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message I/O for generated release-note commits: decoding the message of a commit object for the dialog,
+ * writing a reworded commit object and streaming a message to {@code git commit -F -}.
+ * Run with {@code -prof gc} to see the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LargeMessageBenchmark {
+    @Param({"4096", "262144", "1048576"})
+    public int messageBytes;
+
+    private byte[] commit;
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("release: 2.0.0\n");
+        for (int i = 0; builder.length() < messageBytes; i++) {
+            builder.append("\n- ").append(i).append(": änderung in modul ").append(i % 97);
+        }
+        message = builder.toString();
+        String header = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n"
+                + "author Benchmark <benchmark@example.com> 1700000000 +0000\n"
+                + "committer Benchmark <benchmark@example.com> 1700000000 +0000\n\n";
+        commit = (header + message + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String readMessage() {
+        return RawCommit.parse(commit).getStrippedMessage();
+    }
+
+    @Benchmark
+    public byte[] rewordObject() {
+        return RawCommit.parse(commit).withMessage(message, CommitMessageCodec.Cleanup.WHITESPACE, null).toBytes();
+    }
+
+    @Benchmark
+    public void streamToStdin() throws IOException {
+        CommitMessageCodec.write(message, StandardCharsets.UTF_8, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.renamecurrentcommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking whether a commit is on a remote-tracking branch: commit-graph walk against {@code git for-each-ref
+ * --contains}, for an unpushed HEAD (the common case, which has to rule out every ref) and an old pushed commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PushedCheckBenchmark {
+    private static final int COMMITS = 2000;
+    private static final int REMOTE_BRANCHES = 200;
+
+    private SyntheticRepository repository;
+    private CommitGraph graph;
+    private String unpushed;
+    private String pushed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repository = SyntheticRepository.create(100, COMMITS);
+        // Remote branches on every tenth commit of the older history, packed as after a fetch
+        for (int i = 0; i < REMOTE_BRANCHES; i++) {
+            repository.git("update-ref", "refs/remotes/origin/branch" + i, "HEAD~" + (COMMITS / 2 + i * 4));
+        }
+        repository.git("pack-refs", "--all");
+        repository.git("commit-graph", "write", "--reachable");
+        // Local commits made since the graph was written
+        repository.git("commit", "--quiet", "--allow-empty", "-m", "Local commit");
+        unpushed = repository.git("rev-parse", "HEAD");
+        pushed = repository.git("rev-parse", "HEAD~" + (COMMITS - 10));
+        graph = CommitGraph.open(repository.getObjectsDirectory(), true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Benchmark
+    public String commitGraphUnpushed() throws IOException {
+        return findInGraph(unpushed);
+    }
+
+    @Benchmark
+    public String commitGraphPushed() throws IOException {
+        return findInGraph(pushed);
+    }
+
+    @Benchmark
+    public String gitForEachRefUnpushed() throws IOException {
+        return repository.git("for-each-ref", "--count=1", "--contains=" + unpushed, "--format=%(refname)", "refs/remotes/");
+    }
+
+    @Benchmark
+    public String gitForEachRefPushed() throws IOException {
+        return repository.git("for-each-ref", "--count=1", "--contains=" + pushed, "--format=%(refname)", "refs/remotes/");
+    }
+
+    private String findInGraph(String commit) throws IOException {
+        // Includes the per-check work of the detector: stamp validation and reading the refs
+        if (!graph.getStamp().equals(CommitGraph.stampOf(repository.getObjectsDirectory()))) {
+            throw new IllegalStateException("Commit-graph changed during the benchmark");
+        }
+        Map<String, String> refs = HeadRefReader.readRefs(repository.getGitDirectory(), "refs/remotes/");
+        return ReachabilityWalker.findContainingRef(graph, refs, commit, parent ->
+                RawCommit.parse(LooseObjectReader.read(repository.getObjectsDirectory(), parent, "commit")).getParents());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.renamecurrentcommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full rename of HEAD: the message-only fast path (object written in-process, ref moved with a
+ * compare-and-swap {@code update-ref}) against {@code git commit --amend}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenameBenchmark {
+    private SyntheticRepository repository;
+    private LooseObjectWriter writer;
+    private String head;
+    private long renames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repository = SyntheticRepository.create(1000, 5);
+        head = repository.git("rev-parse", "HEAD");
+        writer = new LooseObjectWriter(repository.getObjectsDirectory(), head.length());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Benchmark
+    public String inPlaceReword() throws IOException {
+        RawCommit commit = RawCommit.parse(LooseObjectReader.read(repository.getObjectsDirectory(), head, "commit"));
+        String newHead = writer.write("commit", commit.withMessage("Renamed " + renames++, CommitMessageCodec.Cleanup.WHITESPACE, null).toBytes());
+        repository.git("update-ref", "-m", "commit (amend): benchmark", "HEAD", newHead, head);
+        head = newHead;
+        return head;
+    }
+
+    @Benchmark
+    public String amendProcess() throws IOException {
+        repository.git("commit", "--amend", "--quiet", "--only", "-m", "Renamed " + renames++);
+        head = repository.git("rev-parse", "HEAD");
+        return head;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.renamecurrentcommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Staged change detection: walking {@code .git/index} in-process against {@code git diff --cached --quiet}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StagedChangesBenchmark {
+    @Param({"100", "10000"})
+    public int files;
+
+    private SyntheticRepository repository;
+    private Path indexFile;
+    private String headTree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repository = SyntheticRepository.create(files, 1);
+        indexFile = repository.getGitDirectory().resolve("index");
+        headTree = repository.git("rev-parse", "HEAD^{tree}");
+        if (GitIndexReader.compareWithTree(indexFile, headTree, headTree.length()) != GitIndexReader.StagedState.CLEAN) {
+            throw new IllegalStateException("Synthetic index should match HEAD");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Benchmark
+    public GitIndexReader.StagedState indexReader() throws IOException {
+        return GitIndexReader.compareWithTree(indexFile, headTree, headTree.length());
+    }
+
+    @Benchmark
+    public int diffCachedProcess() throws IOException {
+        return repository.gitExitCode("diff", "--cached", "--quiet");
+    }
+}
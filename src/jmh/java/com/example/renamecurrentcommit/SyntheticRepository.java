@@ -0,0 +1,116 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Throw-away local Git repository for benchmarks, created with the git CLI from the PATH
+ */
+final class SyntheticRepository implements AutoCloseable {
+    private final Path root;
+
+    private SyntheticRepository(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates a repository with {@code fileCount} committed files and {@code commitCount} commits
+     */
+    static SyntheticRepository create(int fileCount, int commitCount) throws IOException {
+        SyntheticRepository repo = new SyntheticRepository(Files.createTempDirectory("rename-commit-bench"));
+        repo.git("init", "--quiet");
+        repo.git("config", "user.name", "Benchmark");
+        repo.git("config", "user.email", "benchmark@example.com");
+        repo.git("config", "gc.auto", "0");
+        repo.git("config", "commit.gpgSign", "false");
+
+        for (int i = 0; i < fileCount; i++) {
+            Path file = repo.root.resolve("dir" + (i % 64)).resolve("file" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "content " + i + "\n");
+        }
+        repo.git("add", "--all");
+        repo.git("commit", "--quiet", "--allow-empty", "-m", "Initial commit");
+        for (int i = 1; i < commitCount; i++) {
+            repo.git("commit", "--quiet", "--allow-empty", "-m", "Commit " + i + "\n\nBody of commit " + i);
+        }
+        return repo;
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    Path getGitDirectory() {
+        return root.resolve(".git");
+    }
+
+    Path getObjectsDirectory() {
+        return getGitDirectory().resolve("objects");
+    }
+
+    /**
+     * Runs git in the repository and returns its trimmed standard output
+     */
+    String git(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command)
+                .directory(root.toFile())
+                .redirectErrorStream(true)
+                .start();
+        process.getOutputStream().close();
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        int exitCode = waitFor(process);
+        if (exitCode != 0 && exitCode != 1) {
+            throw new IOException("git " + String.join(" ", args) + " failed (" + exitCode + "): " + output);
+        }
+        return output.trim();
+    }
+
+    /**
+     * Runs git in the repository and returns only its exit code
+     */
+    int gitExitCode(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command)
+                .directory(root.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        process.getOutputStream().close();
+        return waitFor(process);
+    }
+
+    private static int waitFor(Process process) throws IOException {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for git", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                path.toFile().setWritable(true);
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
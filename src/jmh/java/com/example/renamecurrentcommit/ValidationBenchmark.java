@@ -0,0 +1,72 @@
+package com.example.renamecurrentcommit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commit message validation on messages from a single line up to 1 MB.
+ * <p>
+ * {@code fullMessage} is what a caller without edit tracking pays, {@code keystroke} is the per-edit cost of the
+ * dialog: one line marked dirty, re-checked and folded into the cached results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidationBenchmark {
+    @Param({"64", "4096", "65536", "1048576"})
+    public int messageBytes;
+
+    @Param({"defaults", "all"})
+    public String rules;
+
+    private String message;
+    private List<String> lines;
+    private CommitMessageRules.RuleSet ruleSet;
+    private IncrementalValidator validator;
+    private int editedLine;
+    private long keystrokes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ruleSet = "all".equals(rules)
+                ? CommitMessageRules.compile(new CommitMessageRules.Config(72, true, "[A-Z]+-\\d+", 100, true))
+                : CommitMessageRules.defaults();
+
+        StringBuilder builder = new StringBuilder("feat(core): ABC-123 generated changelog");
+        for (int i = 0; builder.length() < messageBytes; i++) {
+            builder.append(i == 0 ? "\n\n" : "\n").append("- entry ").append(i).append(": adjust component ").append(i % 97);
+        }
+        message = builder.length() > messageBytes ? builder.substring(0, Math.max(1, messageBytes)) : builder.toString();
+        lines = new ArrayList<>(List.of(message.split("\n", -1)));
+        editedLine = lines.size() / 2;
+
+        validator = new IncrementalValidator(lines.size());
+        IncrementalValidator.Pass pass = validator.preparePass(lines::get, lines.size());
+        validator.apply(pass, IncrementalValidator.evaluate(ruleSet, pass));
+    }
+
+    @Benchmark
+    public String fullMessage() {
+        return IncrementalValidator.validateAll(ruleSet, message);
+    }
+
+    @Benchmark
+    public String keystroke() {
+        lines.set(editedLine, "- edited entry " + (keystrokes++ & 1023));
+        validator.lineChanged(editedLine);
+        IncrementalValidator.Pass pass = validator.preparePass(lines::get, lines.size());
+        validator.apply(pass, IncrementalValidator.evaluate(ruleSet, pass));
+        return validator.firstError();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.commands.Git;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs git commands that are killed when the progress indicator of the calling thread is cancelled or a
+ * timeout passes.
+ * <p>
+ * A watchdog polls every {@link #POLL_INTERVAL_MS} ms and destroys the process, so cancellation takes effect
+ * well within 100 ms even while git is blocked on a hook or an index lock. Commands run in a non-cancellable
+ * section, such as rollback steps, are neither cancelled nor timed out: stopping them half-way would leave the
+ * repository in the state they are meant to repair.
+ */
+final class CancellableGitRunner {
+    static final long POLL_INTERVAL_MS = 20;
+
+    private enum Stop {CANCELLED, TIMED_OUT}
+
+    private CancellableGitRunner() {
+    }
+
+    /**
+     * Runs a command that cannot start hooks, with the configured git command timeout
+     */
+    static GitCommandResult run(GitLineHandler handler) throws VcsException {
+        return run(handler, RenameCommitSettings.getInstance().getGitTimeoutMillis());
+    }
+
+    /**
+     * @param timeoutMillis longest time the command may take, or 0 for no limit; ignored in a non-cancellable section
+     * @throws ProcessCanceledException if the indicator was cancelled; the process has been killed
+     * @throws VcsException             if the command did not finish in time; the process has been killed
+     */
+    static GitCommandResult run(GitLineHandler handler, long timeoutMillis) throws VcsException {
+        // Rollback steps run in a non-cancellable section and must not be killed by the cancellation they handle
+        boolean nonCancelable = ProgressManager.getInstance().isInNonCancelableSection();
+        ProgressIndicator indicator = nonCancelable ? null : ProgressManager.getGlobalProgressIndicator();
+        if (indicator != null) {
+            indicator.checkCanceled();
+        }
+        if (nonCancelable || (indicator == null && timeoutMillis <= 0)) {
+            GitCommandResult result = Git.getInstance().runCommand(handler);
+            RenameTimings.gitProcessFinished(result.getExitCode());
+            return result;
+        }
+
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        AtomicReference<Stop> stop = new AtomicReference<>();
+        ScheduledFuture<?> watchdog = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+            if (stop.get() == null) {
+                if (indicator != null && indicator.isCanceled()) {
+                    stop.compareAndSet(null, Stop.CANCELLED);
+                } else if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                    stop.compareAndSet(null, Stop.TIMED_OUT);
+                }
+            }
+            if (stop.get() != null) {
+                // Repeated until the command returns, in case the process had not been started yet
+                destroy(handler);
+            }
+        }, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        GitCommandResult result;
+        try {
+            result = Git.getInstance().runCommand(handler);
+        } finally {
+            watchdog.cancel(false);
+        }
+        RenameTimings.gitProcessFinished(result.getExitCode());
+
+        if (stop.get() == Stop.CANCELLED) {
+            throw new ProcessCanceledException();
+        }
+        if (stop.get() == Stop.TIMED_OUT) {
+            throw new VcsException(handler.printableCommandLine() + " did not finish within "
+                    + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + " seconds and was stopped");
+        }
+        return result;
+    }
+
+    private static void destroy(GitLineHandler handler) {
+        try {
+            handler.destroyProcess();
+        } catch (RuntimeException ignored) {
+            // Not started yet
+        }
+    }
+}
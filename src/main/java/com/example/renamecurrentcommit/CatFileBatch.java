@@ -0,0 +1,109 @@
+package com.example.renamecurrentcommit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser for the output format of {@code git cat-file --batch}.
+ */
+final class CatFileBatch {
+    /**
+     * Content of larger objects is skipped instead of read into memory. Only commit objects are read, whose size
+     * is dominated by the message, so this caps the memory a single huge message can take.
+     */
+    static final int MAX_CONTENT_BYTES = 32 * 1024 * 1024;
+
+    private CatFileBatch() {
+    }
+
+    /**
+     * Reads the next response, or returns {@code null} when the requested object does not exist or is ambiguous.
+     * Objects above {@link #MAX_CONTENT_BYTES} are returned without content, see {@link GitObject#isOversized()}.
+     */
+    static GitObject readObject(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            throw new EOFException("git cat-file closed its output");
+        }
+
+        String[] parts = header.split(" ");
+        if (parts.length == 2 && ("missing".equals(parts[1]) || "ambiguous".equals(parts[1]))) {
+            return null;
+        }
+        if (parts.length != 3) {
+            throw new IOException("Unexpected cat-file response: " + header);
+        }
+
+        long size = Long.parseLong(parts[2]);
+        if (size > MAX_CONTENT_BYTES) {
+            // Keeps the stream in step with the requests, so the process stays usable
+            in.skipNBytes(size);
+            if (in.read() != '\n') {
+                throw new EOFException("Truncated cat-file response for " + parts[0]);
+            }
+            return new GitObject(parts[0], parts[1], size, null);
+        }
+
+        byte[] content = in.readNBytes((int) size);
+        if (content.length != size || in.read() != '\n') {
+            throw new EOFException("Truncated cat-file response for " + parts[0]);
+        }
+        return new GitObject(parts[0], parts[1], size, content);
+    }
+
+    static String oversizedMessage(String name, long size) {
+        return "Object " + name + " has " + (size >> 20) + " MB, more than the limit of " + (MAX_CONTENT_BYTES >> 20) + " MB";
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(96);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return line.toString(StandardCharsets.UTF_8);
+            }
+            line.write(b);
+        }
+        return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+    }
+
+    static final class GitObject {
+        private final String name;
+        private final String type;
+        private final long size;
+        private final byte[] content;
+
+        GitObject(String name, String type, long size, byte[] content) {
+            this.name = name;
+            this.type = type;
+            this.size = size;
+            this.content = content;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the content, or {@code null} if the object is oversized
+         */
+        byte[] getContent() {
+            return content;
+        }
+
+        boolean isOversized() {
+            return content == null;
+        }
+    }
+}
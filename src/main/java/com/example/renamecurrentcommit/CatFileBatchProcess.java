@@ -0,0 +1,103 @@
+package com.example.renamecurrentcommit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived {@code git cat-file --batch} process serving object reads for one repository.
+ * <p>
+ * Requests are pipelined: names are written in chunks of at most {@value #PIPE_BUFFER_BYTES} bytes, then the
+ * responses are read back in order. That is the smallest pipe buffer among supported platforms (Windows), so a
+ * chunk always fits even while git is blocked writing a large object we have not started reading yet; with
+ * SHA-1 names it is about 100 objects per round trip.
+ */
+final class CatFileBatchProcess implements AutoCloseable {
+    private static final int PIPE_BUFFER_BYTES = 4096;
+
+    private final Process process;
+    private final OutputStream stdin;
+    private final InputStream stdout;
+    private volatile long lastUsed = System.nanoTime();
+    private volatile boolean broken;
+
+    CatFileBatchProcess(String gitExecutable, Path workingDirectory) throws IOException {
+        this.process = new ProcessBuilder(gitExecutable, "cat-file", "--batch")
+                .directory(workingDirectory.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        this.stdin = new BufferedOutputStream(process.getOutputStream(), 16 * 1024);
+        this.stdout = new BufferedInputStream(process.getInputStream(), 64 * 1024);
+    }
+
+    /**
+     * Reads the given objects in request order; missing objects are returned as {@code null} elements
+     */
+    synchronized List<CatFileBatch.GitObject> read(List<String> names) throws IOException {
+        if (broken || !process.isAlive()) {
+            throw new IOException("git cat-file process is not running");
+        }
+
+        List<CatFileBatch.GitObject> objects = new ArrayList<>(names.size());
+        try {
+            for (int start = 0, end; start < names.size(); start = end) {
+                int chunkBytes = 0;
+                for (end = start; end < names.size(); end++) {
+                    String name = names.get(end);
+                    if (name.indexOf('\n') >= 0) {
+                        throw new IllegalArgumentException("Object name must not contain line breaks: " + name);
+                    }
+                    byte[] request = (name + "\n").getBytes(StandardCharsets.UTF_8);
+                    // A name longer than the buffer still goes out, alone in its chunk
+                    if (end > start && chunkBytes + request.length > PIPE_BUFFER_BYTES) {
+                        break;
+                    }
+                    stdin.write(request);
+                    chunkBytes += request.length;
+                }
+                stdin.flush();
+                for (int i = start; i < end; i++) {
+                    objects.add(CatFileBatch.readObject(stdout));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The stream position is unknown now, the process cannot be reused
+            broken = true;
+            throw e;
+        } finally {
+            lastUsed = System.nanoTime();
+        }
+        return objects;
+    }
+
+    boolean isUsable() {
+        return !broken && process.isAlive();
+    }
+
+    long getIdleNanos() {
+        return System.nanoTime() - lastUsed;
+    }
+
+    @Override
+    public void close() {
+        broken = true;
+        try {
+            stdin.close();
+            if (!process.waitFor(200, TimeUnit.MILLISECONDS)) {
+                process.destroy();
+            }
+        } catch (IOException e) {
+            process.destroy();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
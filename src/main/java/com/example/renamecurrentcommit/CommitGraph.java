@@ -0,0 +1,319 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Read-only view of git's commit-graph: object names, parents and generation numbers of the commits it covers.
+ * <p>
+ * Supports a single {@code objects/info/commit-graph} file and split graphs listed in
+ * {@code objects/info/commit-graphs/commit-graph-chain}. Files are memory-mapped, so opening a graph costs a few
+ * header reads regardless of history size. Positions are global across the layers of a split graph, as in git.
+ */
+final class CommitGraph {
+    static final int NOT_FOUND = -1;
+
+    private static final int SIGNATURE = 0x43475048; // "CGPH"
+    private static final int CHUNK_OID_FANOUT = 0x4f494446; // "OIDF"
+    private static final int CHUNK_OID_LOOKUP = 0x4f49444c; // "OIDL"
+    private static final int CHUNK_COMMIT_DATA = 0x43444154; // "CDAT"
+    private static final int CHUNK_EXTRA_EDGES = 0x45444745; // "EDGE"
+    private static final int PARENT_NONE = 0x70000000;
+    private static final int PARENT_EXTRA_EDGES = 0x80000000;
+    private static final int LAST_EDGE = 0x80000000;
+
+    private final Layer[] layers;
+    private final int hashLength;
+    private final String stamp;
+
+    private CommitGraph(Layer[] layers, int hashLength, String stamp) {
+        this.layers = layers;
+        this.hashLength = hashLength;
+        this.stamp = stamp;
+    }
+
+    /**
+     * Opens the commit-graph of an object directory.
+     *
+     * @param memoryMap whether to map the files; on Windows a mapping keeps git from replacing the file, so the
+     *                  caller reads it onto the heap instead
+     * @return the graph, or {@code null} if the repository has none
+     * @throws IOException if the graph is unreadable or has no generation numbers, which makes it useless for
+     *                     reachability pruning
+     */
+    static CommitGraph open(Path objectsDirectory, boolean memoryMap) throws IOException {
+        // Taken first: if git replaces the files while they are read, the next stamp check reopens them
+        String stamp = stampOf(objectsDirectory);
+        Path info = objectsDirectory.resolve("info");
+        List<Path> files = new ArrayList<>();
+        Path single = info.resolve("commit-graph");
+        // Like git, a single graph file takes precedence over a chain
+        if (Files.isRegularFile(single)) {
+            files.add(single);
+        } else {
+            Path chain = info.resolve("commit-graphs").resolve("commit-graph-chain");
+            try {
+                for (String line : Files.readAllLines(chain, StandardCharsets.US_ASCII)) {
+                    if (!line.isBlank()) {
+                        files.add(chain.resolveSibling("graph-" + line.trim() + ".graph"));
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+            if (files.isEmpty()) {
+                return null;
+            }
+        }
+
+        Layer[] layers = new Layer[files.size()];
+        int base = 0;
+        int hashLength = 0;
+        for (int i = 0; i < layers.length; i++) {
+            layers[i] = Layer.read(files.get(i), base, memoryMap);
+            if (i > 0 && layers[i].hashLength != hashLength) {
+                throw new IOException("Commit-graph layers use different hash algorithms");
+            }
+            hashLength = layers[i].hashLength;
+            base += layers[i].count;
+        }
+        return new CommitGraph(layers, hashLength, stamp);
+    }
+
+    /**
+     * Identifies the graph files on disk; a different stamp means git rewrote the graph
+     */
+    static String stampOf(Path objectsDirectory) throws IOException {
+        Path info = objectsDirectory.resolve("info");
+        return fileStamp(info.resolve("commit-graph")) + "/" + fileStamp(info.resolve("commit-graphs").resolve("commit-graph-chain"));
+    }
+
+    private static String fileStamp(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() + ":" + attributes.lastModifiedTime().toMillis() + ":" + attributes.fileKey();
+        } catch (NoSuchFileException e) {
+            return "-";
+        }
+    }
+
+    String getStamp() {
+        return stamp;
+    }
+
+    int getHashLength() {
+        return hashLength;
+    }
+
+    int size() {
+        Layer top = layers[layers.length - 1];
+        return top.base + top.count;
+    }
+
+    /**
+     * @param name full hexadecimal object name
+     * @return the position of the commit, or {@link #NOT_FOUND} if the graph does not cover it
+     */
+    int find(String name) {
+        if (name.length() != hashLength * 2) {
+            return NOT_FOUND;
+        }
+        byte[] oid = HexFormat.of().parseHex(name);
+        for (Layer layer : layers) {
+            int position = layer.find(oid);
+            if (position != NOT_FOUND) {
+                return layer.base + position;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    String name(int position) {
+        Layer layer = layerOf(position);
+        byte[] oid = new byte[hashLength];
+        layer.data.get(layer.lookupOffset + (position - layer.base) * hashLength, oid);
+        return HexFormat.of().formatHex(oid);
+    }
+
+    /**
+     * Topological level: 1 for root commits, otherwise one more than the highest parent. A commit can only reach
+     * commits with a lower generation.
+     */
+    int generation(int position) {
+        Layer layer = layerOf(position);
+        return layer.data.getInt(layer.commitDataOffset(position - layer.base) + hashLength + 8) >>> 2;
+    }
+
+    /**
+     * Positions of the parents, in commit order
+     */
+    int[] parents(int position) {
+        Layer layer = layerOf(position);
+        int offset = layer.commitDataOffset(position - layer.base) + hashLength;
+        int first = layer.data.getInt(offset);
+        int second = layer.data.getInt(offset + 4);
+        if (first == PARENT_NONE) {
+            return new int[0];
+        }
+        if (second == PARENT_NONE) {
+            return new int[]{first};
+        }
+        if ((second & PARENT_EXTRA_EDGES) == 0) {
+            return new int[]{first, second};
+        }
+
+        // Octopus merges list the second and later parents in the extra edges chunk of the same layer
+        List<Integer> parents = new ArrayList<>(4);
+        parents.add(first);
+        int edge = layer.edgesOffset + (second & ~PARENT_EXTRA_EDGES) * 4;
+        int value;
+        do {
+            value = layer.data.getInt(edge);
+            parents.add(value & ~LAST_EDGE);
+            edge += 4;
+        } while ((value & LAST_EDGE) == 0);
+        return parents.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private Layer layerOf(int position) {
+        for (int i = layers.length - 1; i >= 0; i--) {
+            if (position >= layers[i].base) {
+                if (position - layers[i].base >= layers[i].count) {
+                    break;
+                }
+                return layers[i];
+            }
+        }
+        throw new IndexOutOfBoundsException("No commit at graph position " + position);
+    }
+
+    private static final class Layer {
+        private final ByteBuffer data;
+        private final int base;
+        private final int count;
+        private final int hashLength;
+        private final int fanoutOffset;
+        private final int lookupOffset;
+        private final int commitDataOffset;
+        private final int edgesOffset;
+
+        private Layer(ByteBuffer data, int base, int count, int hashLength,
+                      int fanoutOffset, int lookupOffset, int commitDataOffset, int edgesOffset) {
+            this.data = data;
+            this.base = base;
+            this.count = count;
+            this.hashLength = hashLength;
+            this.fanoutOffset = fanoutOffset;
+            this.lookupOffset = lookupOffset;
+            this.commitDataOffset = commitDataOffset;
+            this.edgesOffset = edgesOffset;
+        }
+
+        static Layer read(Path file, int base, boolean memoryMap) throws IOException {
+            ByteBuffer data;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException(file + " is too large");
+                }
+                if (memoryMap) {
+                    data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                } else {
+                    data = ByteBuffer.allocate((int) size);
+                    while (data.hasRemaining() && channel.read(data) >= 0) {
+                        // Read until the buffer is full
+                    }
+                    data.flip();
+                }
+            }
+            data.order(ByteOrder.BIG_ENDIAN);
+
+            if (data.limit() < 8 || data.getInt(0) != SIGNATURE || data.get(4) != 1) {
+                throw new IOException(file + " is not a commit-graph version 1 file");
+            }
+            int hashLength = switch (data.get(5)) {
+                case 1 -> 20;
+                case 2 -> 32;
+                default -> throw new IOException(file + " uses an unknown hash algorithm");
+            };
+
+            int chunkCount = data.get(6) & 0xff;
+            int fanout = -1, lookup = -1, commitData = -1, edges = -1;
+            for (int i = 0; i < chunkCount; i++) {
+                int entry = 8 + i * 12;
+                int id = data.getInt(entry);
+                int offset = Math.toIntExact(data.getLong(entry + 4));
+                switch (id) {
+                    case CHUNK_OID_FANOUT -> fanout = offset;
+                    case CHUNK_OID_LOOKUP -> lookup = offset;
+                    case CHUNK_COMMIT_DATA -> commitData = offset;
+                    case CHUNK_EXTRA_EDGES -> edges = offset;
+                    default -> {
+                        // Bloom filters, generation data and base graph names are not needed here
+                    }
+                }
+            }
+            if (fanout < 0 || lookup < 0 || commitData < 0) {
+                throw new IOException(file + " misses a required chunk");
+            }
+
+            int count = data.getInt(fanout + 255 * 4);
+            Layer layer = new Layer(data, base, count, hashLength, fanout, lookup, commitData, edges);
+            if (count > 0 && layer.levelOf(0) == 0) {
+                // Written without generation numbers (before git 2.19)
+                throw new IOException(file + " has no generation numbers");
+            }
+            return layer;
+        }
+
+        int commitDataOffset(int local) {
+            return commitDataOffset + local * (hashLength + 16);
+        }
+
+        private int levelOf(int local) {
+            return data.getInt(commitDataOffset(local) + hashLength + 8) >>> 2;
+        }
+
+        /**
+         * Binary search within the fanout bucket of the first byte
+         */
+        int find(byte[] oid) {
+            int first = oid[0] & 0xff;
+            int low = first == 0 ? 0 : data.getInt(fanoutOffset + (first - 1) * 4);
+            int high = data.getInt(fanoutOffset + first * 4) - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compare(lookupOffset + middle * hashLength, oid);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        private int compare(int offset, byte[] oid) {
+            for (int i = 0; i < oid.length; i++) {
+                int difference = (data.get(offset + i) & 0xff) - (oid[i] & 0xff);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.renamecurrentcommit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Completion index over past commit subjects: whole subjects for completing the summary line, and their tokens
+ * (scopes, ticket IDs, words) for completing the word at the caret. Filled incrementally while history streams in;
+ * lookups are safe from any thread and never wait for loading to finish.
+ */
+final class CommitHistoryIndex {
+    static final int DEFAULT_SUBJECT_CAPACITY = 50_000;
+    private static final int MIN_TOKEN_LENGTH = 3;
+    private static final int MAX_SUBJECT_LENGTH = 200;
+    // Completions the user accepted rank above phrases that merely occur often in history
+    private static final int ACCEPTED_WEIGHT = 25;
+
+    private final PrefixTrie subjects;
+    private final PrefixTrie tokens;
+    private volatile boolean complete;
+    private volatile String newestIndexedCommit;
+
+    CommitHistoryIndex(int subjectCapacity) {
+        this.subjects = new PrefixTrie(subjectCapacity);
+        this.tokens = new PrefixTrie(subjectCapacity * 2);
+    }
+
+    /**
+     * Adds a batch of subjects; batching keeps lock hand-offs with concurrent lookups rare
+     */
+    synchronized void addSubjects(List<String> batch) {
+        for (String subject : batch) {
+            addSubject(subject, 1);
+        }
+    }
+
+    /**
+     * Boosts a phrase the user picked, so it is suggested first next time
+     */
+    synchronized void accepted(String phrase, boolean wholeSubject) {
+        if (wholeSubject) {
+            addSubject(phrase, ACCEPTED_WEIGHT);
+        } else {
+            tokens.add(phrase, ACCEPTED_WEIGHT);
+        }
+    }
+
+    synchronized List<String> completeSubject(String prefix, int limit) {
+        return without(subjects.complete(prefix, limit + 1), prefix, limit);
+    }
+
+    synchronized List<String> completeToken(String prefix, int limit) {
+        return without(tokens.complete(prefix, limit + 1), prefix, limit);
+    }
+
+    synchronized int size() {
+        return subjects.size();
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    void markComplete() {
+        complete = true;
+    }
+
+    String getNewestIndexedCommit() {
+        return newestIndexedCommit;
+    }
+
+    void setNewestIndexedCommit(String commit) {
+        newestIndexedCommit = commit;
+    }
+
+    private void addSubject(String subject, int weight) {
+        String trimmed = subject.strip();
+        if (trimmed.isEmpty() || trimmed.length() > MAX_SUBJECT_LENGTH) {
+            return;
+        }
+        subjects.add(trimmed, weight);
+        for (String token : trimmed.split("\\s+")) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token, weight);
+            }
+        }
+    }
+
+    /**
+     * Drops the phrase that equals what was already typed, it is no completion
+     */
+    private static List<String> without(List<String> completions, String typed, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, completions.size()));
+        for (String completion : completions) {
+            if (result.size() < limit && !completion.equalsIgnoreCase(typed)) {
+                result.add(completion);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.commands.Git;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+import git4idea.commands.GitLineHandlerListener;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Builds a {@link CommitHistoryIndex} per repository from {@code git log}, streamed in the background.
+ * <p>
+ * Subjects are consumed line by line as git prints them and added in small batches, so completions are available
+ * while the log is still being read and the full history is never held in memory. Later requests only stream the
+ * commits added on top of the indexed HEAD.
+ */
+@Service(Service.Level.PROJECT)
+final class CommitHistoryService implements Disposable {
+    private static final Logger LOG = Logger.getInstance(CommitHistoryService.class);
+    private static final int MAX_STREAMED_COMMITS = 200_000;
+    private static final int BATCH_SIZE = 256;
+
+    private final Project project;
+    private final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("RenameCurrentCommit.History", 1);
+    private final Map<VirtualFile, CommitHistoryIndex> indexes = new ConcurrentHashMap<>();
+    private final Set<VirtualFile> loading = ConcurrentHashMap.newKeySet();
+    private final Set<GitLineHandler> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean disposed;
+
+    CommitHistoryService(Project project) {
+        this.project = project;
+    }
+
+    static CommitHistoryService getInstance(Project project) {
+        return project.getService(CommitHistoryService.class);
+    }
+
+    /**
+     * Returns the index of the repository immediately; it may still be filling in the background
+     */
+    CommitHistoryIndex getIndex(GitRepository repo) {
+        CommitHistoryIndex index = indexes.computeIfAbsent(repo.getRoot(),
+                root -> new CommitHistoryIndex(CommitHistoryIndex.DEFAULT_SUBJECT_CAPACITY));
+        String head = repo.getCurrentRevision();
+        if (head != null && !head.equals(index.getNewestIndexedCommit()) && loading.add(repo.getRoot())) {
+            executor.execute(() -> {
+                try {
+                    stream(repo, index, head);
+                } finally {
+                    loading.remove(repo.getRoot());
+                }
+            });
+        }
+        return index;
+    }
+
+    private void stream(GitRepository repo, CommitHistoryIndex index, String head) {
+        if (disposed || repo.isDisposed()) {
+            return;
+        }
+        String indexed = index.getNewestIndexedCommit();
+
+        GitLineHandler handler = new GitLineHandler(project, repo.getRoot(), GitCommand.LOG);
+        handler.setSilent(true);
+        handler.addParameters("--no-merges", "--format=%s", "--max-count=" + MAX_STREAMED_COMMITS);
+        handler.addParameters(indexed != null ? indexed + ".." + head : head);
+        handler.endOptions();
+
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        handler.addLineListener(new GitLineHandlerListener() {
+            @Override
+            public void onLineAvailable(String line, Key outputType) {
+                if (outputType != ProcessOutputTypes.STDOUT) {
+                    return;
+                }
+                batch.add(line);
+                if (batch.size() == BATCH_SIZE) {
+                    index.addSubjects(batch);
+                    batch.clear();
+                }
+            }
+        });
+
+        running.add(handler);
+        try {
+            GitCommandResult result = Git.getInstance().runCommandWithoutCollectingOutput(handler);
+            index.addSubjects(batch);
+            if (result.success()) {
+                index.setNewestIndexedCommit(head);
+                index.markComplete();
+            } else if (!disposed) {
+                LOG.debug("Cannot read commit history of " + repo.getRoot().getPresentableUrl() + ": " + result.getErrorOutputAsJoinedString());
+            }
+        } finally {
+            running.remove(handler);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        running.forEach(GitLineHandler::destroyProcess);
+        executor.shutdownNow();
+        indexes.clear();
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.vcs.VcsException;
+import git4idea.config.GitExecutable;
+import git4idea.config.GitExecutableManager;
+import git4idea.config.GitVersion;
+import git4idea.repo.GitRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Message-only renames under {@link RenameRepositorySettings.HookPolicy#REUSE_PRE_COMMIT}.
+ * <p>
+ * When the pre-commit hook already passed on HEAD's tree, the commit is reworded in-process and only the hooks
+ * that look at the message ({@code prepare-commit-msg}, {@code commit-msg}) and {@code post-commit} are run,
+ * through {@code git hook run} (git 2.36 and later) so git sets up their environment. Every successful
+ * {@code git commit --amend} records its tree, so the next rename of the same tree can skip pre-commit.
+ */
+final class CommitHookRunner {
+    private static final Logger LOG = Logger.getInstance(CommitHookRunner.class);
+    private static final int CACHE_ENTRIES = 1024;
+    // First version with "git hook run"
+    private static final GitVersion HOOK_RUN_VERSION = new GitVersion(2, 36, 0, 0);
+    private static final String NO_HOOK = "none";
+
+    private CommitHookRunner() {
+    }
+
+    /**
+     * Rewords HEAD reusing a cached pre-commit result.
+     *
+     * @return {@code false}, with nothing changed, when the result is not cached or the hooks cannot be run
+     * this way; the caller should then amend normally
+     */
+    static boolean rewordReusingPreCommit(GitRepository repo, String newMessage) throws VcsException {
+        Path hooksDirectory = GitPlumbing.getHooksDirectory(repo);
+        String head = GitPlumbing.headRevision(repo);
+        String gitExecutable = localGitExecutable(repo);
+        // Older gits, or one whose version cannot be identified, amend instead
+        if (!GitExecutableManager.getInstance().getVersion(repo.getProject()).isLaterOrEqual(HOOK_RUN_VERSION)) {
+            return false;
+        }
+        if (head == null || gitExecutable == null || GitPlumbing.findHook(hooksDirectory, "post-rewrite") != null) {
+            // post-rewrite reads the rewritten commits from stdin, which "git hook run" cannot pass on older gits
+            return false;
+        }
+
+        String tree = RawCommit.parse(GitPlumbing.readObject(repo, "commit", head)).getTree();
+        String fingerprint = fingerprint(GitPlumbing.findHook(hooksDirectory, "pre-commit"));
+        try {
+            if (!NO_HOOK.equals(fingerprint) && !cache(repo).hasPassed(tree, fingerprint)) {
+                return false;
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot read pre-commit result cache", e);
+            return false;
+        }
+
+        // Hooks see the message in the commit encoding, as they would during git commit
+        Path messageFile = GitPlumbing.getGitDirectory(repo).resolve("COMMIT_EDITMSG");
+        Charset encoding = GitPlumbing.commitEncoding(repo);
+        String message;
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(messageFile), 64 * 1024)) {
+                CommitMessageCodec.write(newMessage, encoding, out);
+            }
+            checkHook("prepare-commit-msg", runHook(repo, gitExecutable, "prepare-commit-msg", messageFile.toString(), "message"));
+            checkHook("commit-msg", runHook(repo, gitExecutable, "commit-msg", messageFile.toString()));
+            message = readMessageFile(messageFile, encoding);
+        } catch (IOException e) {
+            throw new VcsException("Cannot write commit message file: " + e.getMessage(), e);
+        }
+        // Cleaned up here as well, so a message of only comment lines is refused like git would
+        CommitMessageCodec.Cleanup cleanup = GitPlumbing.commitCleanup(repo);
+        message = CommitMessageCodec.cleanUp(message, cleanup);
+        if (CommitMessageCodec.isRefusedAsEmpty(message, cleanup)) {
+            throw new VcsException(HeadRewriter.EMPTY_MESSAGE);
+        }
+
+        CommitRewriter.rewordHead(repo, message);
+        runHook(repo, gitExecutable, "post-commit");
+        return true;
+    }
+
+    /**
+     * Remembers that pre-commit passed on the tree of the current HEAD, after git ran it during an amend
+     */
+    static void recordPreCommitPassed(GitRepository repo) {
+        try {
+            Path preCommit = GitPlumbing.findHook(GitPlumbing.getHooksDirectory(repo), "pre-commit");
+            String head = GitPlumbing.headRevision(repo);
+            if (preCommit == null || head == null) {
+                return;
+            }
+            String tree = RawCommit.parse(GitPlumbing.readObject(repo, "commit", head)).getTree();
+            cache(repo).recordPassed(tree, fingerprint(preCommit));
+        } catch (VcsException | IOException e) {
+            LOG.warn("Cannot record pre-commit result", e);
+        }
+    }
+
+    /**
+     * Reads the message back after the hooks edited it, unchanged so that {@code commit.cleanup} applies to it
+     * as it would in git; refuses files above the object size limit
+     */
+    private static String readMessageFile(Path messageFile, Charset encoding) throws IOException, VcsException {
+        long size = Files.size(messageFile);
+        if (size > CatFileBatch.MAX_CONTENT_BYTES) {
+            throw new VcsException(CatFileBatch.oversizedMessage(messageFile.getFileName().toString(), size));
+        }
+        return new String(Files.readAllBytes(messageFile), encoding);
+    }
+
+    private static PreCommitResultCache cache(GitRepository repo) throws VcsException {
+        return new PreCommitResultCache(
+                GitPlumbing.getCommonDirectory(repo).resolve("rename-current-commit").resolve("pre-commit-passed"),
+                CACHE_ENTRIES);
+    }
+
+    /**
+     * Identifies the installed pre-commit hook by its content, so editing the hook invalidates cached results
+     */
+    private static String fingerprint(Path hook) throws VcsException {
+        if (hook == null) {
+            return NO_HOOK;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(Files.readAllBytes(hook)));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new VcsException("Cannot read pre-commit hook: " + e.getMessage(), e);
+        }
+    }
+
+    private static String localGitExecutable(GitRepository repo) {
+        GitExecutable executable = GitExecutableManager.getInstance().getExecutable(repo.getProject());
+        return executable instanceof GitExecutable.Local ? executable.getExePath() : null;
+    }
+
+    private static ProcessOutput runHook(GitRepository repo, String gitExecutable, String hook, String... args) throws VcsException {
+        GeneralCommandLine command = new GeneralCommandLine(gitExecutable, "hook", "run", "--ignore-missing", hook)
+                .withWorkDirectory(repo.getRoot().getPath())
+                .withCharset(StandardCharsets.UTF_8);
+        if (args.length > 0) {
+            command.addParameter("--");
+            command.addParameters(List.of(args));
+        }
+        try {
+            int timeout = (int) Math.min(Integer.MAX_VALUE, RenameCommitSettings.getInstance().getHookTimeoutMillis());
+            ProgressIndicator indicator = ProgressManager.getInstance().isInNonCancelableSection()
+                    ? null : ProgressManager.getGlobalProgressIndicator();
+            CapturingProcessHandler handler = new CapturingProcessHandler(command);
+            ProcessOutput output = indicator != null
+                    ? handler.runProcessWithProgressIndicator(indicator, timeout > 0 ? timeout : -1, true)
+                    : handler.runProcess(timeout > 0 ? timeout : -1, true);
+            RenameTimings.gitProcessFinished(output.getExitCode());
+            if (output.isCancelled()) {
+                throw new ProcessCanceledException();
+            }
+            if (output.isTimeout()) {
+                throw new VcsException("Hook " + hook + " timed out");
+            }
+            return output;
+        } catch (ExecutionException e) {
+            throw new VcsException("Cannot run hook " + hook + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void checkHook(String hook, ProcessOutput output) throws VcsException {
+        if (output.getExitCode() != 0) {
+            String error = output.getStderr().isBlank() ? output.getStdout() : output.getStderr();
+            throw new VcsException("Hook " + hook + " rejected the commit: " + error.trim());
+        }
+    }
+}
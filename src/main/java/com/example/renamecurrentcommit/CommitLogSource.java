@@ -0,0 +1,86 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Source of commits in {@code git log} order, read one page at a time
+ */
+interface CommitLogSource extends AutoCloseable {
+    /**
+     * {@code git log} format producing one line per commit, parsed by {@link Entry#parse}
+     */
+    String FORMAT = "--format=%H%x1f%an%x1f%at%x1f%s";
+
+    /**
+     * Reads up to {@code count} further commits; fewer are returned only at the end of the history
+     */
+    List<Entry> readPage(int count) throws IOException;
+
+    boolean isExhausted();
+
+    @Override
+    void close();
+
+    final class Entry {
+        private final String hash;
+        private final String author;
+        private final long timestamp;
+        private final String subject;
+
+        Entry(String hash, String author, long timestamp, String subject) {
+            this.hash = hash;
+            this.author = author;
+            this.timestamp = timestamp;
+            this.subject = subject;
+        }
+
+        /**
+         * @return the entry for a line printed with {@link #FORMAT}, or {@code null} for a malformed line
+         */
+        static Entry parse(String line) {
+            String[] fields = line.split("\u001f", 4);
+            if (fields.length < 4) {
+                return null;
+            }
+            long timestamp;
+            try {
+                timestamp = Long.parseLong(fields[2].trim());
+            } catch (NumberFormatException e) {
+                timestamp = 0;
+            }
+            return new Entry(fields[0].trim(), fields[1], timestamp, fields[3]);
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        String getAuthor() {
+            return author;
+        }
+
+        /**
+         * Author time in seconds since the epoch
+         */
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        String getSubject() {
+            return subject;
+        }
+
+        /**
+         * Case-insensitive match of subject or author, or a prefix match of the hash
+         *
+         * @param lowerCaseFilter filter text already converted to lower case
+         */
+        boolean matches(String lowerCaseFilter) {
+            return hash.startsWith(lowerCaseFilter)
+                    || subject.toLowerCase(Locale.ROOT).contains(lowerCaseFilter)
+                    || author.toLowerCase(Locale.ROOT).contains(lowerCaseFilter);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cleans up, encodes and decodes commit messages without intermediate copies of the whole message.
+ * <p>
+ * Messages are stored the way {@code git commit -F} cleans them up under {@code commit.cleanup}: by default
+ * trailing whitespace is removed from every line, runs of blank lines collapse into one, leading and trailing
+ * blank lines are dropped and every line ends with a newline. Git only accepts ASCII-compatible commit
+ * encodings, so whitespace can be found on bytes.
+ */
+final class CommitMessageCodec {
+    private static final int WRITE_CHUNK = 8 * 1024;
+
+    private CommitMessageCodec() {
+    }
+
+    /**
+     * Charset for a value of {@code i18n.commitEncoding}; UTF-8, git's default, when unset or unknown to Java
+     */
+    static Charset charset(String encoding) {
+        if (encoding == null || encoding.isBlank()) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            return Charset.forName(encoding.trim());
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * Whether an {@code i18n.commitEncoding} value means UTF-8, for which git writes no {@code encoding} header
+     */
+    static boolean isUtf8(String encoding) {
+        if (encoding == null || encoding.isBlank()) {
+            return true;
+        }
+        String name = encoding.trim();
+        return name.equalsIgnoreCase("utf-8") || name.equalsIgnoreCase("utf8");
+    }
+
+    /**
+     * Whether {@code git commit} refuses a message that came out of {@code cleanup} as {@code cleaned}: only an
+     * empty message is refused, and not at all when it is stored verbatim
+     */
+    static boolean isRefusedAsEmpty(String cleaned, Cleanup cleanup) {
+        return !cleanup.verbatim && cleaned.isEmpty();
+    }
+
+    /**
+     * Cleans up the message like {@code git stripspace}, see {@link Cleanup}
+     */
+    static String cleanUp(String message, Cleanup cleanup) {
+        if (cleanup.verbatim) {
+            return message;
+        }
+        StringBuilder result = new StringBuilder(message.length() + 1);
+        boolean pendingBlankLine = false;
+        for (int lineStart = 0; lineStart < message.length(); ) {
+            int newline = message.indexOf('\n', lineStart);
+            int lineEnd = newline < 0 ? message.length() : newline;
+            int contentEnd = lineEnd;
+            while (contentEnd > lineStart && isSpace(message.charAt(contentEnd - 1))) {
+                contentEnd--;
+            }
+            // Comment lines vanish without leaving a blank line behind
+            boolean comment = cleanup.commentPrefix != null && message.startsWith(cleanup.commentPrefix, lineStart);
+            if (!comment && contentEnd == lineStart) {
+                pendingBlankLine = result.length() > 0;
+            } else if (!comment) {
+                if (pendingBlankLine) {
+                    result.append('\n');
+                    pendingBlankLine = false;
+                }
+                result.append(message, lineStart, contentEnd).append('\n');
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result.toString();
+    }
+
+    /**
+     * Encodes the cleaned up message
+     */
+    static byte[] encode(String message, Cleanup cleanup, Charset charset) {
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try {
+            ByteBuffer encoded = encoder.encode(CharBuffer.wrap(cleanUp(message, cleanup)));
+            byte[] result = new byte[encoded.remaining()];
+            encoded.get(result);
+            return result;
+        } catch (CharacterCodingException e) {
+            // Not thrown with REPLACE actions
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Streams the message as it is, e.g. to the stdin of {@code git commit -F -}, which applies the cleanup itself
+     */
+    static void write(String message, Charset charset, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, charset);
+        // Writer.write(String, ...) allocates a new array per call for long ranges, so chunks go through one buffer
+        char[] chunk = new char[Math.min(WRITE_CHUNK, Math.max(1, message.length()))];
+        for (int position = 0; position < message.length(); position += chunk.length) {
+            int length = Math.min(chunk.length, message.length() - position);
+            message.getChars(position, position + length, chunk, 0);
+            writer.write(chunk, 0, length);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Decodes {@code data[from, to)} without surrounding whitespace, like {@code new String(...).trim()} in one copy
+     */
+    static String decodeStripped(byte[] data, int from, int to, Charset charset) {
+        while (from < to && (data[from] & 0xff) <= ' ') {
+            from++;
+        }
+        while (to > from && (data[to - 1] & 0xff) <= ' ') {
+            to--;
+        }
+        return new String(data, from, to - from, charset);
+    }
+
+    /**
+     * Whitespace as git's own {@code isspace} sees it, which is what it trims from line ends: unlike C's, it
+     * leaves form feeds and vertical tabs alone
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Cleanup mode of {@code git commit -F}, from {@code commit.cleanup} and {@code core.commentChar}
+     */
+    static final class Cleanup {
+        static final Cleanup VERBATIM = new Cleanup(true, null);
+        static final Cleanup WHITESPACE = new Cleanup(false, null);
+
+        private final boolean verbatim;
+        private final String commentPrefix;
+
+        private Cleanup(boolean verbatim, String commentPrefix) {
+            this.verbatim = verbatim;
+            this.commentPrefix = commentPrefix;
+        }
+
+        /**
+         * Without an editor {@code default} and {@code scissors} clean up whitespace only, as git does for
+         * {@code -F}; unknown values fall back to that too
+         */
+        static Cleanup fromConfig(String mode, String commentChar) {
+            String value = mode == null ? "" : mode.trim();
+            if (value.equals("verbatim")) {
+                return VERBATIM;
+            }
+            if (value.equals("strip")) {
+                boolean custom = commentChar != null && !commentChar.isEmpty() && !commentChar.equals("auto");
+                return new Cleanup(false, custom ? commentChar : "#");
+            }
+            return WHITESPACE;
+        }
+    }
+}
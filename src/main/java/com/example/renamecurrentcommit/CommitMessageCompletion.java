@@ -0,0 +1,215 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.ui.popup.JBPopup;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.awt.RelativePoint;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.Alarm;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Suggests past commit subjects and tokens while typing in a commit message text area.
+ * <p>
+ * At the end of the summary line whole subjects are offered, elsewhere the word at the caret is completed.
+ * Lookups run on a pooled thread after a short pause in typing; results for text that changed meanwhile are dropped.
+ */
+final class CommitMessageCompletion {
+    private static final int DELAY_MS = 80;
+    private static final int MIN_PREFIX = 2;
+    private static final int MAX_SUGGESTIONS = 8;
+
+    private final JTextArea textArea;
+    private final CommitHistoryIndex index;
+    private final Alarm alarm;
+    private final JBList<String> list = new JBList<>();
+    private JBPopup popup;
+    private long version;
+    private int replaceStart;
+    private boolean wholeSubject;
+    private boolean applying;
+
+    private CommitMessageCompletion(JTextArea textArea, CommitHistoryIndex index, Disposable parent) {
+        this.textArea = textArea;
+        this.index = index;
+        this.alarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, parent);
+        Disposer.register(parent, this::hidePopup);
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                accept();
+            }
+        });
+
+        textArea.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { textChanged(true); }
+            public void removeUpdate(DocumentEvent e) { textChanged(false); }
+            public void changedUpdate(DocumentEvent e) { }
+        });
+        textArea.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                handleKey(e);
+            }
+        });
+    }
+
+    static void install(JTextArea textArea, CommitHistoryIndex index, Disposable parent) {
+        new CommitMessageCompletion(textArea, index, parent);
+    }
+
+    private void textChanged(boolean inserted) {
+        version++;
+        alarm.cancelAllRequests();
+        if (applying) {
+            return;
+        }
+        if (inserted) {
+            alarm.addRequest(this::lookup, DELAY_MS);
+        } else {
+            hidePopup();
+        }
+    }
+
+    private void lookup() {
+        int caret = textArea.getCaretPosition();
+        Element root = textArea.getDocument().getDefaultRootElement();
+        int lineIndex = root.getElementIndex(caret);
+        Element line = root.getElement(lineIndex);
+        String beforeCaret;
+        String afterCaret;
+        try {
+            beforeCaret = textArea.getText(line.getStartOffset(), caret - line.getStartOffset());
+            afterCaret = textArea.getText(caret, Math.min(line.getEndOffset(), textArea.getDocument().getLength()) - caret);
+        } catch (BadLocationException e) {
+            return;
+        }
+
+        int wordStart = beforeCaret.length();
+        while (wordStart > 0 && !Character.isWhitespace(beforeCaret.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+        String word = beforeCaret.substring(wordStart);
+        boolean subjectMode = lineIndex == 0 && afterCaret.isBlank() && beforeCaret.strip().length() >= MIN_PREFIX;
+        if (!subjectMode && word.length() < MIN_PREFIX) {
+            hidePopup();
+            return;
+        }
+
+        long requested = version;
+        int lineStart = line.getStartOffset();
+        int wordOffset = wordStart;
+        String linePrefix = beforeCaret.stripLeading();
+        ModalityState modality = ModalityState.stateForComponent(textArea);
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            List<String> subjects = subjectMode ? index.completeSubject(linePrefix, MAX_SUGGESTIONS) : List.of();
+            List<String> suggestions = subjects.isEmpty() && word.length() >= MIN_PREFIX
+                    ? index.completeToken(word, MAX_SUGGESTIONS)
+                    : subjects;
+            boolean wholeLine = !subjects.isEmpty();
+            int replaceFrom = wholeLine ? lineStart : lineStart + wordOffset;
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (requested == version && textArea.isShowing()) {
+                    showPopup(suggestions, replaceFrom, wholeLine);
+                }
+            }, modality);
+        });
+    }
+
+    private void showPopup(List<String> suggestions, int start, boolean subject) {
+        hidePopup();
+        if (suggestions.isEmpty()) {
+            return;
+        }
+        replaceStart = start;
+        wholeSubject = subject;
+        list.setListData(suggestions.toArray(new String[0]));
+        list.setSelectedIndex(0);
+        list.setVisibleRowCount(suggestions.size());
+
+        try {
+            Rectangle caret = textArea.modelToView2D(textArea.getCaretPosition()).getBounds();
+            popup = JBPopupFactory.getInstance()
+                    .createComponentPopupBuilder(new JBScrollPane(list), null)
+                    .setRequestFocus(false)
+                    .setFocusable(false)
+                    .setCancelOnClickOutside(true)
+                    .setResizable(false)
+                    .setMovable(false)
+                    .createPopup();
+            popup.show(new RelativePoint(textArea, new Point(caret.x, caret.y + caret.height)));
+        } catch (BadLocationException e) {
+            popup = null;
+        }
+    }
+
+    private void hidePopup() {
+        if (popup != null) {
+            popup.cancel();
+            popup = null;
+        }
+    }
+
+    private void handleKey(KeyEvent e) {
+        if (popup == null || !popup.isVisible()) {
+            return;
+        }
+        int size = list.getModel().getSize();
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_DOWN:
+                list.setSelectedIndex((list.getSelectedIndex() + 1) % size);
+                e.consume();
+                break;
+            case KeyEvent.VK_UP:
+                list.setSelectedIndex((list.getSelectedIndex() - 1 + size) % size);
+                e.consume();
+                break;
+            case KeyEvent.VK_ENTER:
+            case KeyEvent.VK_TAB:
+                accept();
+                e.consume();
+                break;
+            case KeyEvent.VK_ESCAPE:
+                hidePopup();
+                e.consume();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void accept() {
+        String selected = list.getSelectedValue();
+        hidePopup();
+        int caret = textArea.getCaretPosition();
+        if (selected == null || replaceStart > caret) {
+            return;
+        }
+
+        applying = true;
+        try {
+            textArea.replaceRange(selected, replaceStart, caret);
+        } finally {
+            applying = false;
+        }
+        index.accepted(selected, wholeSubject);
+    }
+}
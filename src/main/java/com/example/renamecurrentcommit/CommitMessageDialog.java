@@ -1,38 +1,71 @@
 package com.example.renamecurrentcommit;
 
 import com.intellij.openapi.Disposable;
-import com.intellij.openapi.editor.colors.EditorColorsManager;
-import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.Alarm;
+import com.intellij.util.ui.JBUI;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import java.awt.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.util.function.Supplier;
 
 /**
  * Dialog for editing commit message with improved validation and UX
  */
 public class CommitMessageDialog extends DialogWrapper implements Disposable {
+    private static final int VALIDATION_DELAY_MS = 150;
+
     private final JTextArea textArea;
     private final JCheckBox includeStaged;
+    private final JLabel pushedWarning = new JLabel();
     private final String originalMessage;
     private final boolean hasStaged;
     private final Project project;
     private final boolean initialIncludeStagedSelection;
+    private final CommitMessageRules.RuleSet rules = RenameCommitSettings.getInstance().getRuleSet();
+    private final Alarm validationAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, getDisposable());
+    private IncrementalValidator validator;
+    // Counted on the EDT per document event; whether the message is blank or differs from the original is known for
+    // comparedEdits and recomputed off the EDT, since it takes a pass over the whole message
+    private long documentEdits;
+    private long comparedEdits;
+    private boolean messageEmpty;
+    private boolean messageChanged;
 
     public CommitMessageDialog(Project project, String originalMessage, boolean hasStaged) {
+        this(project, originalMessage, hasStaged, null);
+    }
+
+    /**
+     * @param history past commit subjects to suggest while typing, or {@code null} for no completion
+     */
+    CommitMessageDialog(Project project, String originalMessage, boolean hasStaged, CommitHistoryIndex history) {
         super(project);
         this.originalMessage = originalMessage;
+        this.messageEmpty = originalMessage.isBlank();
         this.hasStaged = hasStaged;
         this.project = project;
         this.textArea = createTextArea(originalMessage);
         this.includeStaged = new JCheckBox("Include staged changes", true);
         this.initialIncludeStagedSelection = includeStaged.isSelected();
         this.includeStaged.addActionListener(e -> validateInput());
+        if (history != null) {
+            CommitMessageCompletion.install(textArea, history, getDisposable());
+        }
 
         initDialog();
     }
@@ -41,18 +74,13 @@ public class CommitMessageDialog extends DialogWrapper implements Disposable {
      * Creates and configures the text area for commit message
      */
     private JTextArea createTextArea(String initialText) {
-        JTextArea area = new JTextArea(8, 50);
-        area.setLineWrap(true);
-        area.setWrapStyleWord(true);
-        area.setText(initialText);
-        area.setFont(EditorColorsManager.getInstance()
-                .getGlobalScheme()
-                .getFont(EditorFontType.PLAIN));
+        JTextArea area = MessageAreaLayout.createTextArea(initialText, DialogResources.getInstance().getEditorFont());
 
+        validator = new IncrementalValidator(area.getDocument().getDefaultRootElement().getElementCount());
         area.getDocument().addDocumentListener(new DocumentListener() {
-            public void insertUpdate(DocumentEvent e) { validateInput(); }
-            public void removeUpdate(DocumentEvent e) { validateInput(); }
-            public void changedUpdate(DocumentEvent e) { validateInput(); }
+            public void insertUpdate(DocumentEvent e) { onDocumentChanged(e); }
+            public void removeUpdate(DocumentEvent e) { onDocumentChanged(e); }
+            public void changedUpdate(DocumentEvent e) { }
         });
 
         return area;
@@ -65,49 +93,176 @@ public class CommitMessageDialog extends DialogWrapper implements Disposable {
         setTitle("Rename Commit");
         setResizable(true);
         init();
-        validateInput();
+        // The first validation pass walks every line, so it runs after the dialog is shown rather than in the constructor
+        getOKAction().setEnabled(false);
+        validationAlarm.addRequest(this::validateInput, 0);
+    }
+
+    /**
+     * Records {@link RenameTimings.Phase#TIME_TO_INTERACTIVE} when the text area first has focus and accepts input
+     *
+     * @param startNanos {@link System#nanoTime()} when the user invoked the action
+     */
+    void recordTimeToInteractive(long startNanos) {
+        textArea.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                textArea.removeFocusListener(this);
+                if (textArea.isEditable() && textArea.isShowing()) {
+                    RenameTimings.record(RenameTimings.Phase.TIME_TO_INTERACTIVE, System.nanoTime() - startNanos);
+                }
+            }
+        });
     }
 
     /**
-     * Validates commit message with improved error handling
+     * Warns in the dialog when the commit turns out to be on a remote-tracking branch already. The check runs in
+     * the background, so the dialog opens without waiting for it.
+     *
+     * @param check returns the remote-tracking branch containing the commit, or {@code null}; called off the EDT
+     */
+    void checkPushed(Supplier<String> check) {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            String remoteBranch = check.get();
+            if (remoteBranch != null) {
+                // Only updates a label of this dialog, so it does not need to wait for a particular modality
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    pushedWarning.setText("<html><body><b>Warning:</b> This commit is already on "
+                            + StringUtil.escapeXmlEntities(remoteBranch)
+                            + ". Renaming it rewrites published history and needs a force push.</body></html>");
+                    pushedWarning.setVisible(true);
+                }, ModalityState.any(), o -> isDisposed());
+            }
+        });
+    }
+
+    /**
+     * Records which lines an edit touched and schedules a debounced validation
+     */
+    private void onDocumentChanged(DocumentEvent e) {
+        Element root = e.getDocument().getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+        if (change != null) {
+            validator.linesReplaced(change.getIndex(), change.getChildrenRemoved().length, change.getChildrenAdded().length);
+        } else {
+            validator.lineChanged(root.getElementIndex(e.getOffset()));
+        }
+        documentEdits++;
+        validationAlarm.cancelAllRequests();
+        validationAlarm.addRequest(this::validateInput, VALIDATION_DELAY_MS);
+    }
+
+    /**
+     * Validates commit message; rules are re-checked off the EDT for the edited lines only, and the message is compared
+     * with the original off the EDT once per burst of edits
      */
     private void validateInput() {
         JButton okButton = getButton(getOKAction());
         if (okButton == null) return;
 
-        String text = textArea.getText().trim();
+        Document document = textArea.getDocument();
+        IncrementalValidator.Pass pass = validator.preparePass(
+                index -> lineText(document, index), document.getDefaultRootElement().getElementCount());
+        long edits = documentEdits;
+        boolean compare = edits != comparedEdits;
+        if (pass.isEmpty() && !compare) {
+            updateValidationState();
+            return;
+        }
+
+        ModalityState modality = ModalityState.stateForComponent(textArea);
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            String[] errors = pass.isEmpty() ? null : IncrementalValidator.evaluate(rules, pass);
+            String text = compare ? readText(document) : null;
+            boolean empty = text != null && text.isEmpty();
+            boolean changed = text != null && !text.equals(originalMessage);
+            ApplicationManager.getApplication().invokeLater(() -> {
+                boolean updated = !pass.isEmpty() && validator.apply(pass, errors);
+                // A later edit schedules its own comparison
+                if (compare && edits == documentEdits) {
+                    messageEmpty = empty;
+                    messageChanged = changed;
+                    comparedEdits = edits;
+                    updated = true;
+                }
+                if (updated) {
+                    updateValidationState();
+                }
+            }, modality, o -> isDisposed());
+        });
+    }
+
+    /**
+     * The trimmed message, read under the document's read lock so that it can be called off the EDT
+     */
+    private static String readText(Document document) {
+        String[] text = {""};
+        ((AbstractDocument) document).render(() -> {
+            try {
+                text[0] = document.getText(0, document.getLength()).trim();
+            } catch (BadLocationException ignored) {
+                // Offsets are taken under the same lock
+            }
+        });
+        return text[0];
+    }
+
+    /**
+     * @return whether the dialog may be confirmed
+     */
+    private boolean updateValidationState() {
         boolean selectionChanged = hasStaged && includeStaged.isSelected() != initialIncludeStagedSelection;
 
-        ValidationState validationState = evaluateValidationState(text, originalMessage, selectionChanged);
+        ValidationState validationState = evaluateValidationState(messageEmpty, messageChanged, selectionChanged, validator.firstError());
 
-        okButton.setEnabled(validationState.isValid());
+        JButton okButton = getButton(getOKAction());
+        if (okButton != null) {
+            okButton.setEnabled(validationState.isValid());
+        }
         setErrorText(validationState.getErrorText());
+        return validationState.isValid();
+    }
+
+    private static String lineText(Document document, int index) {
+        Element line = document.getDefaultRootElement().getElement(index);
+        int end = Math.min(line.getEndOffset(), document.getLength());
+        try {
+            String text = document.getText(line.getStartOffset(), end - line.getStartOffset());
+            return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+        } catch (BadLocationException e) {
+            return "";
+        }
     }
 
     static ValidationState evaluateValidationState(String text, String originalMessage, boolean selectionChanged) {
-        String[] lines = text.split("\n", -1);
-        boolean messageChanged = !text.equals(originalMessage);
+        return evaluateValidationState(text, originalMessage, selectionChanged, CommitMessageRules.defaults());
+    }
+
+    static ValidationState evaluateValidationState(String text, String originalMessage, boolean selectionChanged, CommitMessageRules.RuleSet rules) {
+        String ruleError = text.isEmpty() ? null : IncrementalValidator.validateAll(rules, text);
+        return evaluateValidationState(text.isEmpty(), !text.equals(originalMessage), selectionChanged, ruleError);
+    }
 
-        boolean isValid = !text.isEmpty() && (messageChanged || selectionChanged);
-        String errorText = getValidationError(text, lines, messageChanged, selectionChanged);
+    /**
+     * @param ruleError first error reported by the commit message rules; shown, but does not block confirming
+     */
+    private static ValidationState evaluateValidationState(boolean messageEmpty, boolean messageChanged, boolean selectionChanged,
+                                                           String ruleError) {
+        boolean isValid = !messageEmpty && (messageChanged || selectionChanged);
+        String errorText = getValidationError(messageEmpty, messageChanged, selectionChanged, ruleError);
 
         return new ValidationState(isValid, errorText);
     }
 
-    private static String getValidationError(String text, String[] lines, boolean messageChanged, boolean selectionChanged) {
-        if (text.isEmpty()) {
+    private static String getValidationError(boolean messageEmpty, boolean messageChanged, boolean selectionChanged, String ruleError) {
+        if (messageEmpty) {
             return "Commit message must not be empty.";
         }
         if (!messageChanged && !selectionChanged) {
             return "Adjust the commit message or staged selection before confirming.";
         }
 
-        // Additional validation for conventional commit format
-        if (lines.length > 0 && lines[0].length() > 72) {
-            return "First line should not exceed 72 characters (currently " + lines[0].length() + ")";
-        }
-
-        return null;
+        return ruleError;
     }
 
     static final class ValidationState {
@@ -128,16 +283,26 @@ public class CommitMessageDialog extends DialogWrapper implements Disposable {
         }
     }
 
+    private JScrollPane createMessageScrollPane() {
+        JBScrollPane scrollPane = new JBScrollPane(textArea);
+        MessageAreaLayout.setPreferredSize(scrollPane, textArea, JBUI.scale(20), JBUI.scale(4));
+        return scrollPane;
+    }
+
     @Override
     protected JComponent createCenterPanel() {
         JPanel panel = new JPanel(new BorderLayout(0, 10));
 
-        // Add commit message label
-        JLabel messageLabel = new JLabel("Commit message:");
-        panel.add(messageLabel, BorderLayout.NORTH);
+        // Add commit message label, below the warning shown for already pushed commits
+        JPanel header = new JPanel(new BorderLayout(0, 6));
+        pushedWarning.setForeground(Color.ORANGE.darker());
+        pushedWarning.setVisible(false);
+        header.add(pushedWarning, BorderLayout.NORTH);
+        header.add(new JLabel("Commit message:"), BorderLayout.SOUTH);
+        panel.add(header, BorderLayout.NORTH);
 
         // Add text area
-        panel.add(new JBScrollPane(textArea), BorderLayout.CENTER);
+        panel.add(createMessageScrollPane(), BorderLayout.CENTER);
 
         // Add staged changes warning and checkbox if there are staged changes
         if (hasStaged) {
@@ -152,6 +317,21 @@ public class CommitMessageDialog extends DialogWrapper implements Disposable {
         return panel;
     }
 
+    /**
+     * The debounced state may be up to {@link #VALIDATION_DELAY_MS} behind the text, so blank and unchanged
+     * messages are checked again before the dialog closes
+     */
+    @Override
+    protected void doOKAction() {
+        String message = getCommitMessage();
+        messageEmpty = message.isEmpty();
+        messageChanged = !message.equals(originalMessage);
+        comparedEdits = documentEdits;
+        if (updateValidationState()) {
+            super.doOKAction();
+        }
+    }
+
     @Override
     public JComponent getPreferredFocusedComponent() {
         return textArea;
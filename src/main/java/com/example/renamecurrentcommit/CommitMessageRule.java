@@ -0,0 +1,25 @@
+package com.example.renamecurrentcommit;
+
+/**
+ * A single commit message check evaluated line by line.
+ * <p>
+ * Rules must be stateless and depend only on the line text and its role, so results can be cached per line
+ * and only changed lines need to be re-checked.
+ */
+interface CommitMessageRule {
+
+    /**
+     * Position of a line within the message structure
+     */
+    enum LineRole {
+        SUMMARY,
+        SEPARATOR,
+        BODY,
+        TRAILER
+    }
+
+    /**
+     * @return the error text for this line, or {@code null} when the line is fine
+     */
+    String check(String line, LineRole role);
+}
@@ -0,0 +1,160 @@
+package com.example.renamecurrentcommit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Built-in commit message rules and the compiled, cached rule sets made from them.
+ */
+final class CommitMessageRules {
+    static final int DEFAULT_SUMMARY_LENGTH = 72;
+
+    private static final Pattern CONVENTIONAL_SUMMARY = Pattern.compile(
+            "^(feat|fix|docs|style|refactor|perf|test|build|ci|chore|revert)(\\([^()\\r\\n]+\\))?!?: \\S.*");
+    private static final Pattern TRAILER = Pattern.compile("^[A-Za-z0-9][A-Za-z0-9-]*: \\S.*");
+    private static final Pattern TRAILER_START = Pattern.compile("^[A-Za-z0-9][A-Za-z0-9-]*:\\s.*");
+    private static final Map<Config, RuleSet> COMPILED = new ConcurrentHashMap<>();
+
+    private CommitMessageRules() {
+    }
+
+    /**
+     * Rule set matching the plugin's historic behavior: only the summary length is checked
+     */
+    static RuleSet defaults() {
+        return compile(new Config(DEFAULT_SUMMARY_LENGTH, false, "", 0, false));
+    }
+
+    /**
+     * Returns the rule set for the given configuration; patterns are compiled once per distinct configuration
+     */
+    static RuleSet compile(Config config) {
+        return COMPILED.computeIfAbsent(config, CommitMessageRules::build);
+    }
+
+    /**
+     * Whether a line can start a trailer block such as {@code Signed-off-by: ...}
+     */
+    static boolean looksLikeTrailer(String line) {
+        return TRAILER_START.matcher(line).matches();
+    }
+
+    private static RuleSet build(Config config) {
+        List<CommitMessageRule> rules = new ArrayList<>();
+        if (config.summaryMaxLength > 0) {
+            int max = config.summaryMaxLength;
+            rules.add((line, role) -> role == CommitMessageRule.LineRole.SUMMARY && line.length() > max
+                    ? "First line should not exceed " + max + " characters (currently " + line.length() + ")"
+                    : null);
+        }
+        if (!config.ticketPattern.isBlank()) {
+            Pattern ticket = Pattern.compile("^(" + config.ticketPattern.trim() + ")");
+            rules.add((line, role) -> role == CommitMessageRule.LineRole.SUMMARY && !ticket.matcher(line).find()
+                    ? "First line should start with a ticket ID matching " + config.ticketPattern.trim()
+                    : null);
+        }
+        if (config.conventionalCommits) {
+            rules.add((line, role) -> role == CommitMessageRule.LineRole.SUMMARY && !CONVENTIONAL_SUMMARY.matcher(line).matches()
+                    ? "First line should follow Conventional Commits, e.g. \"feat(scope): summary\""
+                    : null);
+        }
+        if (config.bodyWrapWidth > 0) {
+            int width = config.bodyWrapWidth;
+            rules.add((line, role) -> role == CommitMessageRule.LineRole.BODY && line.length() > width
+                    ? "Body lines should wrap at " + width + " characters (a line has " + line.length() + ")"
+                    : null);
+        }
+        if (config.checkTrailers) {
+            rules.add((line, role) -> role == CommitMessageRule.LineRole.TRAILER
+                    && !line.isEmpty() && !Character.isWhitespace(line.charAt(0)) && !TRAILER.matcher(line).matches()
+                    ? "Malformed trailer \"" + line + "\", expected \"Key: value\""
+                    : null);
+        }
+        return new RuleSet(rules);
+    }
+
+    /**
+     * Identifies a rule set; equal configurations share one compiled {@link RuleSet}
+     */
+    static final class Config {
+        private final int summaryMaxLength;
+        private final boolean conventionalCommits;
+        private final String ticketPattern;
+        private final int bodyWrapWidth;
+        private final boolean checkTrailers;
+
+        Config(int summaryMaxLength, boolean conventionalCommits, String ticketPattern, int bodyWrapWidth, boolean checkTrailers) {
+            this.summaryMaxLength = summaryMaxLength;
+            this.conventionalCommits = conventionalCommits;
+            this.ticketPattern = ticketPattern != null ? ticketPattern : "";
+            this.bodyWrapWidth = bodyWrapWidth;
+            this.checkTrailers = checkTrailers;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Config)) return false;
+            Config other = (Config) o;
+            return summaryMaxLength == other.summaryMaxLength
+                    && conventionalCommits == other.conventionalCommits
+                    && bodyWrapWidth == other.bodyWrapWidth
+                    && checkTrailers == other.checkTrailers
+                    && ticketPattern.equals(other.ticketPattern);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(summaryMaxLength, conventionalCommits, ticketPattern, bodyWrapWidth, checkTrailers);
+        }
+    }
+
+    /**
+     * Immutable list of rules with a bounded cache of per-line results
+     */
+    static final class RuleSet {
+        private static final int CACHE_SIZE = 4096;
+        private static final int MAX_CACHED_LINE = 1024;
+
+        private final List<CommitMessageRule> rules;
+        private final Map<String, String> cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
+
+        RuleSet(List<CommitMessageRule> rules) {
+            this.rules = List.copyOf(rules);
+        }
+
+        /**
+         * @return the first error reported for the line, or {@code null}
+         */
+        String check(String line, CommitMessageRule.LineRole role) {
+            String key = line.length() <= MAX_CACHED_LINE ? role.ordinal() + line : null;
+            String cached = key != null ? cache.get(key) : null;
+            if (cached != null) {
+                return cached.isEmpty() ? null : cached;
+            }
+
+            String error = null;
+            for (CommitMessageRule rule : rules) {
+                error = rule.check(line, role);
+                if (error != null) {
+                    break;
+                }
+            }
+            if (key != null) {
+                cache.put(key, error != null ? error : "");
+            }
+            return error;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.CollectionListModel;
+import com.intellij.ui.ColoredListCellRenderer;
+import com.intellij.ui.DocumentAdapter;
+import com.intellij.ui.ScrollingUtil;
+import com.intellij.ui.SearchTextField;
+import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.text.DateFormatUtil;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Lets the user pick a commit from the history of HEAD.
+ * <p>
+ * The list has a fixed row height, so Swing only lays out and paints the visible rows. Pages are pulled from a
+ * {@link CommitLogSource} when the viewport gets close to the end of what is loaded. Filtering runs on the loader
+ * thread; a filter that extends the previous one only re-checks the rows that matched before.
+ */
+public class CommitPickerDialog extends DialogWrapper {
+    private static final Logger LOG = Logger.getInstance(CommitPickerDialog.class);
+    private static final int PAGE_SIZE = 500;
+    private static final int PREFETCH_ROWS = 100;
+    private static final int FILTER_DELAY_MS = 120;
+    // Pages read for a filter without the user scrolling, so a filter matching nothing does not load all history
+    private static final int MAX_FILTER_SCAN_PAGES = 40;
+
+    private final CommitLogSource source;
+    private final ExecutorService loader = AppExecutorUtil.createBoundedApplicationPoolExecutor("RenameCurrentCommit.CommitPicker", 1);
+    private final Alarm filterAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, getDisposable());
+    private final List<CommitLogSource.Entry> loaded = new ArrayList<>();
+    private final CollectionListModel<CommitLogSource.Entry> model = new CollectionListModel<>();
+    private final JBList<CommitLogSource.Entry> list = new JBList<>(model);
+    private final SearchTextField filterField = new SearchTextField(false);
+    private final JLabel status = new JLabel(" ");
+
+    private boolean loading;
+    private String filter = "";
+    // The filter the model shows the matches of; lags behind filter while a filter pass is running
+    private String modelFilter = "";
+    private long filterGeneration;
+    private int pagesScannedForFilter;
+
+    CommitPickerDialog(Project project, CommitLogSource source) {
+        super(project);
+        this.source = source;
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new EntryRenderer());
+        list.setPrototypeCellValue(new CommitLogSource.Entry("0000000000", "Author Name", 0, "Prototype subject"));
+        list.getEmptyText().setText("Loading commits...");
+        list.addListSelectionListener(e -> setOKActionEnabled(list.getSelectedValue() != null));
+
+        filterField.addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                filterAlarm.cancelAllRequests();
+                filterAlarm.addRequest(() -> applyFilter(filterField.getText()), FILTER_DELAY_MS);
+            }
+        });
+        ScrollingUtil.installActions(list, filterField.getTextEditor());
+
+        setTitle("Choose Commit to Reword");
+        setOKButtonText("Reword...");
+        setOKActionEnabled(false);
+        init();
+        loadMoreIfNeeded();
+    }
+
+    @Override
+    protected JComponent createCenterPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 6));
+        panel.add(filterField, BorderLayout.NORTH);
+
+        JBScrollPane scrollPane = new JBScrollPane(list);
+        scrollPane.setPreferredSize(new Dimension(640, 420));
+        scrollPane.getViewport().addChangeListener(e -> {
+            pagesScannedForFilter = 0;
+            loadMoreIfNeeded();
+        });
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(status, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return filterField;
+    }
+
+    /**
+     * @return the full hash of the chosen commit
+     */
+    String getSelectedCommit() {
+        CommitLogSource.Entry entry = list.getSelectedValue();
+        return entry != null ? entry.getHash() : null;
+    }
+
+    private void loadMoreIfNeeded() {
+        if (loading || source.isExhausted() || isDisposed()) {
+            return;
+        }
+        int lastVisible = list.getLastVisibleIndex();
+        if (lastVisible < model.getSize() - PREFETCH_ROWS) {
+            return;
+        }
+        if (!filter.isEmpty() && pagesScannedForFilter >= MAX_FILTER_SCAN_PAGES) {
+            updateStatus();
+            return;
+        }
+
+        loading = true;
+        String pageFilter = filter;
+        long generation = filterGeneration;
+        ModalityState modality = ModalityState.stateForComponent(list);
+        loader.execute(() -> {
+            List<CommitLogSource.Entry> page;
+            try {
+                page = source.readPage(PAGE_SIZE);
+            } catch (IOException e) {
+                LOG.warn("Cannot read commit history", e);
+                page = List.of();
+            }
+            List<CommitLogSource.Entry> matches = filter(page, pageFilter);
+            List<CommitLogSource.Entry> newEntries = page;
+            ApplicationManager.getApplication().invokeLater(() -> {
+                loading = false;
+                loaded.addAll(newEntries);
+                if (generation == filterGeneration && !pageFilter.isEmpty()) {
+                    pagesScannedForFilter++;
+                }
+                // While a filter pass is running it picks up this page when it lands
+                if (modelFilter.equals(filter)) {
+                    model.add(pageFilter.equals(filter) ? matches : filter(newEntries, filter));
+                }
+                updateStatus();
+                loadMoreIfNeeded();
+            }, modality, o -> isDisposed());
+        });
+    }
+
+    private void applyFilter(String text) {
+        String newFilter = text.trim().toLowerCase(Locale.ROOT);
+        if (newFilter.equals(filter)) {
+            return;
+        }
+        // A longer filter can only match a subset of the rows the model shows
+        List<CommitLogSource.Entry> candidates = newFilter.startsWith(modelFilter) ? new ArrayList<>(model.getItems()) : new ArrayList<>(loaded);
+        int candidatesLoaded = loaded.size();
+        filter = newFilter;
+        long generation = ++filterGeneration;
+        pagesScannedForFilter = 0;
+
+        ModalityState modality = ModalityState.stateForComponent(list);
+        loader.execute(() -> {
+            List<CommitLogSource.Entry> matches = filter(candidates, newFilter);
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (generation != filterGeneration) {
+                    return;
+                }
+                List<CommitLogSource.Entry> rows = new ArrayList<>(matches);
+                rows.addAll(filter(loaded.subList(candidatesLoaded, loaded.size()), newFilter));
+                model.replaceAll(rows);
+                modelFilter = newFilter;
+                if (!rows.isEmpty()) {
+                    list.setSelectedIndex(0);
+                }
+                updateStatus();
+                loadMoreIfNeeded();
+            }, modality, o -> isDisposed());
+        });
+    }
+
+    private static List<CommitLogSource.Entry> filter(List<CommitLogSource.Entry> entries, String lowerCaseFilter) {
+        if (lowerCaseFilter.isEmpty()) {
+            return entries;
+        }
+        List<CommitLogSource.Entry> matches = new ArrayList<>();
+        for (CommitLogSource.Entry entry : entries) {
+            if (entry.matches(lowerCaseFilter)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    private void updateStatus() {
+        String more = source.isExhausted() ? "" : "+";
+        status.setText(filter.isEmpty()
+                ? loaded.size() + more + " commits"
+                : model.getSize() + " of " + loaded.size() + more + " loaded commits match"
+                + (pagesScannedForFilter >= MAX_FILTER_SCAN_PAGES ? " (scroll to search further)" : ""));
+        list.getEmptyText().setText(loading ? "Loading commits..." : "No matching commits");
+    }
+
+    @Override
+    protected void dispose() {
+        loader.shutdownNow();
+        source.close();
+        super.dispose();
+    }
+
+    private static final class EntryRenderer extends ColoredListCellRenderer<CommitLogSource.Entry> {
+        @Override
+        protected void customizeCellRenderer(@NotNull JList<? extends CommitLogSource.Entry> list, CommitLogSource.Entry entry,
+                                             int index, boolean selected, boolean hasFocus) {
+            append(entry.getHash().substring(0, Math.min(8, entry.getHash().length())), SimpleTextAttributes.GRAYED_ATTRIBUTES);
+            append("  " + entry.getSubject());
+            append("  " + entry.getAuthor(), SimpleTextAttributes.GRAYED_ATTRIBUTES);
+            if (entry.getTimestamp() > 0) {
+                append(", " + DateFormatUtil.formatPrettyDateTime(entry.getTimestamp() * 1000), SimpleTextAttributes.GRAYED_ATTRIBUTES);
+            }
+        }
+    }
+}
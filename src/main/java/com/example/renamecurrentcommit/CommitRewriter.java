@@ -0,0 +1,189 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.vcs.VcsException;
+import git4idea.repo.GitRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites commit messages by creating new commit objects from existing trees and parents.
+ * <p>
+ * The index, work tree and stash are never touched, so the cost does not depend on the size of the checkout.
+ */
+final class CommitRewriter {
+
+    private CommitRewriter() {
+    }
+
+    /**
+     * Checks whether a message-only rename can skip {@code git commit --amend} without changing observable behavior
+     */
+    static boolean canRewordInPlace(GitRepository repo) {
+        try {
+            return !GitPlumbing.hasCommitHooks(repo);
+        } catch (VcsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Replaces the message of the HEAD commit, keeping its tree, parents and author.
+     *
+     * @return the name of the new HEAD commit
+     * @see HeadRewriter
+     */
+    static String rewordHead(GitRepository repo, String newMessage) throws VcsException {
+        try {
+            return HeadRewriter.rewordHead(new RepositoryStore(repo), newMessage);
+        } catch (IOException e) {
+            if (e.getCause() instanceof VcsException) {
+                throw (VcsException) e.getCause();
+            }
+            throw new VcsException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the message of {@code target} and re-parents every commit between it and HEAD.
+     * Only commit objects are rewritten: trees and blobs are reused, so HEAD's tree, the index and the
+     * work tree stay exactly as they are.
+     *
+     * @return the name of the new HEAD commit
+     */
+    static String reword(GitRepository repo, String target, String newMessage) throws VcsException {
+        String oldHead = GitPlumbing.headRevision(repo);
+        if (oldHead == null) {
+            throw new VcsException("Repository does not contain commits to rename yet");
+        }
+        if (oldHead.equals(target)) {
+            return rewordHead(repo, newMessage);
+        }
+
+        List<String[]> descendants = GitPlumbing.listDescendants(repo, target, oldHead);
+        if (descendants.isEmpty()) {
+            throw new VcsException("Commit " + target + " is not an ancestor of HEAD");
+        }
+
+        List<String> names = new ArrayList<>(descendants.size() + 1);
+        names.add(target);
+        for (String[] descendant : descendants) {
+            names.add(descendant[0]);
+        }
+        Map<String, byte[]> objects = GitPlumbing.readObjects(repo, names);
+
+        RawCommit targetCommit = RawCommit.parse(objects.get(target));
+        String committer = GitPlumbing.currentCommitterIdent(repo, targetCommit.getCommitter());
+        CommitMessageCodec.Cleanup cleanup = GitPlumbing.commitCleanup(repo);
+        String message = CommitMessageCodec.cleanUp(newMessage, cleanup);
+        if (CommitMessageCodec.isRefusedAsEmpty(message, cleanup)) {
+            throw new VcsException(HeadRewriter.EMPTY_MESSAGE);
+        }
+        String encoding = GitPlumbing.commitEncodingName(repo);
+        LooseObjectWriter writer = GitPlumbing.createObjectWriter(repo, oldHead);
+
+        Map<String, String> rewritten = new HashMap<>(names.size() * 2);
+        try {
+            rewritten.put(target, writer.write("commit",
+                    targetCommit.withMessage(message, CommitMessageCodec.Cleanup.VERBATIM, encoding).withCommitter(committer).toBytes()));
+
+            for (String[] descendant : descendants) {
+                ProgressManager.checkCanceled();
+                List<String> parents = new ArrayList<>(descendant.length - 1);
+                for (int i = 1; i < descendant.length; i++) {
+                    parents.add(rewritten.getOrDefault(descendant[i], descendant[i]));
+                }
+                RawCommit commit = RawCommit.parse(objects.get(descendant[0]))
+                        .withParents(parents)
+                        .withCommitter(committer);
+                rewritten.put(descendant[0], writer.write("commit", commit.toBytes()));
+            }
+        } catch (IOException e) {
+            throw new VcsException("Failed to write commit object: " + e.getMessage(), e);
+        }
+
+        String newHead = rewritten.get(oldHead);
+        if (newHead == null) {
+            throw new VcsException("HEAD is not a descendant of " + target);
+        }
+        ProgressManager.checkCanceled();
+        GitPlumbing.updateRef(repo, "HEAD", newHead, oldHead, "commit (reword): " + HeadRewriter.subjectOf(newMessage));
+        return newHead;
+    }
+
+    /**
+     * {@link HeadRewriter.Store} of a project repository; git failures travel as the cause of the IOException
+     */
+    private static final class RepositoryStore implements HeadRewriter.Store {
+        private final GitRepository repo;
+
+        RepositoryStore(GitRepository repo) {
+            this.repo = repo;
+        }
+
+        @Override
+        public String headRevision() {
+            return GitPlumbing.headRevision(repo);
+        }
+
+        @Override
+        public byte[] readCommit(String name) throws IOException {
+            try {
+                return GitPlumbing.readObject(repo, "commit", name);
+            } catch (VcsException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public Path objectsDirectory() throws IOException {
+            try {
+                return GitPlumbing.getCommonDirectory(repo).resolve("objects");
+            } catch (VcsException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public String committerIdent(String fallbackIdent) throws IOException {
+            try {
+                return GitPlumbing.currentCommitterIdent(repo, fallbackIdent);
+            } catch (VcsException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public CommitMessageCodec.Cleanup cleanup() throws IOException {
+            try {
+                return GitPlumbing.commitCleanup(repo);
+            } catch (VcsException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public String commitEncoding() throws IOException {
+            try {
+                return GitPlumbing.commitEncodingName(repo);
+            } catch (VcsException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void updateHead(String newHead, String expectedOldHead, String reason) throws IOException {
+            ProgressManager.checkCanceled();
+            try {
+                GitPlumbing.updateRef(repo, "HEAD", newHead, expectedOldHead, reason);
+            } catch (VcsException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.ProjectActivity;
+import kotlin.Unit;
+import kotlin.coroutines.Continuation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Pre-warms the rename dialog and the action state once a project has opened.
+ */
+final class DialogPrewarmer implements ProjectActivity {
+
+    @Override
+    public @Nullable Object execute(@NotNull Project project, @NotNull Continuation<? super Unit> continuation) {
+        RenameActionStateCache.getInstance(project);
+        DialogResources.getInstance().prewarm(project);
+        return Unit.INSTANCE;
+    }
+}
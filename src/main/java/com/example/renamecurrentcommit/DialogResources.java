@@ -0,0 +1,79 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.colors.EditorColorsListener;
+import com.intellij.openapi.editor.colors.EditorColorsManager;
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resources the commit message dialog needs on every open, resolved once and kept in sync with the editor scheme.
+ * <p>
+ * {@link #prewarm} resolves them in the background after a project opens and lays out throwaway copies of the
+ * dialog's components on the EDT, so the first open does not pay for class loading, font lookup and Swing UI setup.
+ */
+@Service(Service.Level.APP)
+final class DialogResources implements Disposable {
+    private static final String WARM_UP_MESSAGE = "feat(scope): warm up\n\nBody line\n\nSigned-off-by: Name <name@example.com>";
+
+    private final AtomicBoolean prewarmed = new AtomicBoolean();
+    private volatile Font editorFont;
+
+    DialogResources() {
+        ApplicationManager.getApplication().getMessageBus().connect(this)
+                .subscribe(EditorColorsManager.TOPIC, (EditorColorsListener) scheme -> editorFont = null);
+    }
+
+    static DialogResources getInstance() {
+        return ApplicationManager.getApplication().getService(DialogResources.class);
+    }
+
+    /**
+     * Plain font of the global editor scheme
+     */
+    Font getEditorFont() {
+        Font font = editorFont;
+        if (font == null) {
+            font = EditorColorsManager.getInstance().getGlobalScheme().getFont(EditorFontType.PLAIN);
+            editorFont = font;
+        }
+        return font;
+    }
+
+    /**
+     * Prepares everything the first dialog open would otherwise do on the EDT; only the first call does any work
+     */
+    void prewarm(Project project) {
+        if (!prewarmed.compareAndSet(false, true)) {
+            return;
+        }
+
+        Font font = getEditorFont();
+        // Loads and compiles the configured rules and the validator
+        IncrementalValidator.validateAll(RenameCommitSettings.getInstance().getRuleSet(), WARM_UP_MESSAGE);
+
+        ApplicationManager.getApplication().invokeLater(() -> {
+            JTextArea area = new JTextArea(WARM_UP_MESSAGE, 8, 50);
+            area.setLineWrap(true);
+            area.setWrapStyleWord(true);
+            area.setFont(font);
+            area.getFontMetrics(font).stringWidth(WARM_UP_MESSAGE);
+            new JBScrollPane(area).getPreferredSize();
+            new JCheckBox("Include staged changes").getPreferredSize();
+            new JBList<String>().getPreferredSize();
+        }, ModalityState.defaultModalityState(), project.getDisposed());
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
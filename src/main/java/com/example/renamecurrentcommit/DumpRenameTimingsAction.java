@@ -0,0 +1,31 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.ui.Messages;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.datatransfer.StringSelection;
+
+/**
+ * Copies p50/p95/p99 rename phase timings as JSON to the clipboard, for attaching to performance reports.
+ */
+public class DumpRenameTimingsAction extends AnAction {
+    private static final Logger LOG = Logger.getInstance(DumpRenameTimingsAction.class);
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        String json = RenameTimings.dumpJson();
+        LOG.info("Rename timing summary " + json);
+        CopyPasteManager.getInstance().setContents(new StringSelection(json));
+        Messages.showInfoMessage(event.getProject(), "Copied to the clipboard:\n\n" + json, "Rename Commit Timings");
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+}
@@ -0,0 +1,494 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Answers "does the index differ from HEAD?" directly from {@code .git/index}, without spawning git.
+ * <p>
+ * The file is memory-mapped and walked without materializing entries. The answer comes from unmerged entries
+ * (always a difference) and from the root of the cache-tree extension, which records the tree the index would be
+ * written as. When the cache-tree is invalidated and a {@link TreeSource} is given, the entries are compared with
+ * the HEAD tree in path order instead, reading only the trees the walk reaches and stopping at the first
+ * difference. When neither can answer or the format is not understood the result is {@link StagedState#UNKNOWN}
+ * and callers are expected to ask git instead.
+ */
+final class GitIndexReader {
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+    private static final int EXTENSION_TREE = 0x54524545; // "TREE"
+    private static final int EXTENSION_END_OF_ENTRIES = 0x454f4945; // "EOIE"
+    private static final int EXTENSION_LINK = 0x6c696e6b; // "link"
+    private static final int FIXED_ENTRY_FIELDS = 40;
+    private static final int FLAG_EXTENDED = 0x4000;
+    private static final int FLAG_STAGE_MASK = 0x3000;
+    private static final int EXTENDED_FLAG_INTENT_TO_ADD = 0x2000;
+    private static final int MODE_TYPE_MASK = 0170000;
+    private static final int MODE_DIRECTORY = 0040000;
+    private static final int MODE_REGULAR = 0100000;
+    private static final int MODE_EXECUTABLE = 0100755;
+    private static final int MODE_FILE = 0100644;
+    private static final int NAME_LENGTH_MASK = 0x0fff;
+    private static final boolean CAN_MAP = !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    enum StagedState {
+        CLEAN,
+        STAGED,
+        UNKNOWN
+    }
+
+    /**
+     * Tree objects to compare the entries with when the cache-tree cannot answer
+     */
+    interface TreeSource {
+        /**
+         * @return the content of the tree object, or {@code null} if it cannot be read
+         */
+        byte[] readTree(String name) throws IOException;
+    }
+
+    private GitIndexReader() {
+    }
+
+    /**
+     * Compares the index of {@code gitDirectory} with the tree of the HEAD commit, {@link StagedState#UNKNOWN} if the
+     * index cannot be read
+     *
+     * @param head       name of the HEAD commit
+     * @param headCommit content of the HEAD commit object
+     * @param trees      source for walking the entries when the cache-tree is invalidated, or {@code null}
+     */
+    static StagedState compareWithHead(Path gitDirectory, String head, byte[] headCommit, TreeSource trees) {
+        try {
+            return compareWithTree(gitDirectory.resolve("index"), RawCommit.parse(headCommit).getTree(), head.length(),
+                    trees);
+        } catch (IOException e) {
+            return StagedState.UNKNOWN;
+        }
+    }
+
+    /**
+     * Compares the index with the given tree.
+     *
+     * @param indexFile  path to the index file
+     * @param headTree   name of HEAD's root tree
+     * @param hashLength length of object names in hex: 40 for SHA-1, 64 for SHA-256
+     */
+    static StagedState compareWithTree(Path indexFile, String headTree, int hashLength) throws IOException {
+        return compareWithTree(indexFile, headTree, hashLength, null);
+    }
+
+    /**
+     * Compares the index with the given tree, walking the entries against it through {@code trees} when the
+     * cache-tree cannot answer
+     */
+    static StagedState compareWithTree(Path indexFile, String headTree, int hashLength, TreeSource trees)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            return compareWithTree(load(channel), headTree, hashLength / 2, trees);
+        }
+    }
+
+    static StagedState compareWithTree(ByteBuffer index, String headTree, int hashBytes) {
+        return compareWithTree(index, headTree, hashBytes, null);
+    }
+
+    static StagedState compareWithTree(ByteBuffer index, String headTree, int hashBytes, TreeSource trees) {
+        int limit = index.limit() - hashBytes;
+        if (limit < 12 || index.getInt(0) != SIGNATURE) {
+            return StagedState.UNKNOWN;
+        }
+
+        int version = index.getInt(4);
+        if (version < 2 || version > 4) {
+            return StagedState.UNKNOWN;
+        }
+        int entryCount = index.getInt(8);
+
+        int extensions = findExtensionsByEndMarker(index, limit, hashBytes);
+        if (extensions < 0) {
+            extensions = skipEntries(index, 12, entryCount, version, hashBytes);
+            if (extensions == -2) {
+                return StagedState.STAGED;
+            }
+            if (extensions < 0) {
+                return StagedState.UNKNOWN;
+            }
+        }
+
+        StagedState state = StagedState.UNKNOWN;
+        boolean split = false;
+        int position = extensions;
+        while (position + 8 <= limit) {
+            int signature = index.getInt(position);
+            int size = index.getInt(position + 4);
+            int data = position + 8;
+            if (size < 0 || data + size > limit) {
+                return StagedState.UNKNOWN;
+            }
+            if (signature == EXTENSION_TREE) {
+                state = compareRootTree(index, data, data + size, headTree, hashBytes);
+            }
+            // A split index ("link") keeps most entries in the shared index, which the entry walk does not read
+            split |= signature == EXTENSION_LINK;
+            // Untracked cache ("UNTR"), fsmonitor and others carry no tree information
+            position = data + size;
+        }
+        if (state != StagedState.UNKNOWN || trees == null || split) {
+            return state;
+        }
+        try {
+            return compareEntries(index, entryCount, version, hashBytes, headTree, trees);
+        } catch (IOException e) {
+            return StagedState.UNKNOWN;
+        }
+    }
+
+    /**
+     * Compares the entries with the flattened tree; both are sorted by path bytes, with directories ordered as if
+     * their name ended in '/', so the first entry that differs in path, mode or object name is a staged change.
+     * Intent-to-add entries are skipped, as {@code git diff --cached} does.
+     */
+    private static StagedState compareEntries(ByteBuffer index, int entryCount, int version, int hashBytes,
+                                              String headTree, TreeSource trees) throws IOException {
+        int limit = index.limit() - hashBytes;
+        int flagsOffset = FIXED_ENTRY_FIELDS + hashBytes;
+        TreeWalk tree = new TreeWalk(trees, headTree, hashBytes);
+        PathBuffer name = new PathBuffer();
+
+        int position = 12;
+        for (int i = 0; i < entryCount; i++) {
+            if (position + flagsOffset + 2 > limit) {
+                return StagedState.UNKNOWN;
+            }
+            int mode = index.getInt(position + 24);
+            int flags = index.getShort(position + flagsOffset) & 0xffff;
+            if ((flags & FLAG_STAGE_MASK) != 0) {
+                return StagedState.STAGED;
+            }
+
+            int nameStart = position + flagsOffset + 2;
+            boolean intentToAdd = false;
+            if (version >= 3 && (flags & FLAG_EXTENDED) != 0) {
+                intentToAdd = (index.getShort(nameStart) & EXTENDED_FLAG_INTENT_TO_ADD) != 0;
+                nameStart += 2;
+            }
+
+            int next;
+            if (version == 4) {
+                // Prefix-compressed path: varint of bytes to strip from the previous name, then a NUL-terminated suffix
+                int cursor = nameStart;
+                int b = index.get(cursor++) & 0xff;
+                int strip = b & 0x7f;
+                while ((b & 0x80) != 0 && cursor < limit) {
+                    b = index.get(cursor++) & 0xff;
+                    strip = ((strip + 1) << 7) | (b & 0x7f);
+                }
+                int end = indexOfNul(index, cursor, limit);
+                if (end < 0 || strip > name.length) {
+                    return StagedState.UNKNOWN;
+                }
+                name.length -= strip;
+                name.append(index, cursor, end);
+                next = end + 1;
+            } else {
+                int nameLength = flags & NAME_LENGTH_MASK;
+                if (nameLength == NAME_LENGTH_MASK) {
+                    int end = indexOfNul(index, nameStart, limit);
+                    if (end < 0) {
+                        return StagedState.UNKNOWN;
+                    }
+                    nameLength = end - nameStart;
+                }
+                if (nameStart + nameLength > limit) {
+                    return StagedState.UNKNOWN;
+                }
+                name.length = 0;
+                name.append(index, nameStart, nameStart + nameLength);
+                int entryLength = nameStart - position + nameLength;
+                next = position + ((entryLength + 8) & ~7);
+            }
+
+            if ((mode & MODE_TYPE_MASK) == MODE_DIRECTORY) {
+                // Directory entry of a sparse index, which would need the walk to stop at that tree
+                return StagedState.UNKNOWN;
+            }
+            if (!intentToAdd && (!tree.next() || !tree.matches(name, mode, index, position + FIXED_ENTRY_FIELDS))) {
+                return StagedState.STAGED;
+            }
+            position = next;
+        }
+        return tree.next() ? StagedState.STAGED : StagedState.CLEAN;
+    }
+
+    /**
+     * Walks the entries and returns the offset of the first extension, -2 on an unmerged entry or -1 if malformed
+     */
+    private static int skipEntries(ByteBuffer index, int position, int entryCount, int version, int hashBytes) {
+        int limit = index.limit() - hashBytes;
+        int flagsOffset = FIXED_ENTRY_FIELDS + hashBytes;
+
+        for (int i = 0; i < entryCount; i++) {
+            if (position + flagsOffset + 2 > limit) {
+                return -1;
+            }
+            int flags = index.getShort(position + flagsOffset) & 0xffff;
+            if ((flags & FLAG_STAGE_MASK) != 0) {
+                return -2;
+            }
+
+            int nameStart = position + flagsOffset + 2;
+            if (version >= 3 && (flags & FLAG_EXTENDED) != 0) {
+                nameStart += 2;
+            }
+
+            if (version == 4) {
+                // Prefix-compressed path: varint of bytes to strip from the previous name, then a NUL-terminated suffix
+                int cursor = nameStart;
+                while (cursor < limit && (index.get(cursor) & 0x80) != 0) {
+                    cursor++;
+                }
+                int end = indexOfNul(index, cursor + 1, limit);
+                if (end < 0) {
+                    return -1;
+                }
+                position = end + 1;
+            } else {
+                int nameLength = flags & NAME_LENGTH_MASK;
+                if (nameLength == NAME_LENGTH_MASK) {
+                    int end = indexOfNul(index, nameStart, limit);
+                    if (end < 0) {
+                        return -1;
+                    }
+                    nameLength = end - nameStart;
+                }
+                int entryLength = nameStart - position + nameLength;
+                position += (entryLength + 8) & ~7;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Uses the optional end-of-index-entries extension to jump straight to the extensions
+     */
+    private static int findExtensionsByEndMarker(ByteBuffer index, int limit, int hashBytes) {
+        int markerSize = 8 + 4 + hashBytes;
+        int marker = limit - markerSize;
+        if (marker < 12 || index.getInt(marker) != EXTENSION_END_OF_ENTRIES || index.getInt(marker + 4) != 4 + hashBytes) {
+            return -1;
+        }
+        int offset = index.getInt(marker + 8);
+        return offset >= 12 && offset <= marker ? offset : -1;
+    }
+
+    private static StagedState compareRootTree(ByteBuffer index, int position, int end, String headTree, int hashBytes) {
+        // Root entry: empty path, NUL, "<entry count> <subtree count>\n", then the tree name when valid
+        if (position >= end || index.get(position) != 0) {
+            return StagedState.UNKNOWN;
+        }
+        int lineEnd = position + 1;
+        while (lineEnd < end && index.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        if (lineEnd >= end) {
+            return StagedState.UNKNOWN;
+        }
+
+        byte[] counts = new byte[lineEnd - position - 1];
+        index.get(position + 1, counts);
+        String entryCount = new String(counts, StandardCharsets.US_ASCII);
+        if (entryCount.startsWith("-")) {
+            return StagedState.UNKNOWN;
+        }
+        if (lineEnd + 1 + hashBytes > end) {
+            return StagedState.UNKNOWN;
+        }
+
+        byte[] tree = new byte[hashBytes];
+        index.get(lineEnd + 1, tree);
+        return HexFormat.of().formatHex(tree).equalsIgnoreCase(headTree) ? StagedState.CLEAN : StagedState.STAGED;
+    }
+
+    /**
+     * Modes as git compares them: regular files are only told apart by the executable bit
+     */
+    private static int canonicalMode(int mode) {
+        if ((mode & MODE_TYPE_MASK) == MODE_REGULAR) {
+            return (mode & 0111) != 0 ? MODE_EXECUTABLE : MODE_FILE;
+        }
+        return mode;
+    }
+
+    private static int indexOfNul(ByteBuffer index, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (index.get(i) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer load(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Index file is too large: " + size);
+        }
+        if (CAN_MAP) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        // A live mapping would keep Windows from replacing the index, so read it into memory instead
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // keep reading
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Path of the current entry, reused across entries
+     */
+    private static final class PathBuffer {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        void append(ByteBuffer source, int from, int to) {
+            ensureCapacity(length + to - from);
+            source.get(from, bytes, length, to - from);
+            length += to - from;
+        }
+
+        void append(byte[] source, int from, int to) {
+            ensureCapacity(length + to - from);
+            System.arraycopy(source, from, bytes, length, to - from);
+            length += to - from;
+        }
+
+        void append(byte b) {
+            ensureCapacity(length + 1);
+            bytes[length++] = b;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+    }
+
+    /**
+     * Depth-first walk over the non-tree entries of a tree, reading each subtree only when the walk enters it
+     */
+    private static final class TreeWalk {
+        private final TreeSource trees;
+        private final int hashBytes;
+        private final ArrayDeque<Frame> stack = new ArrayDeque<>();
+        private final PathBuffer path = new PathBuffer();
+        private int mode;
+        private byte[] objectData;
+        private int objectOffset;
+
+        TreeWalk(TreeSource trees, String root, int hashBytes) throws IOException {
+            this.trees = trees;
+            this.hashBytes = hashBytes;
+            stack.push(new Frame(read(root), 0));
+        }
+
+        /**
+         * Moves to the next file, symlink or gitlink
+         *
+         * @return {@code false} when the tree has no more entries
+         */
+        boolean next() throws IOException {
+            while (!stack.isEmpty()) {
+                Frame frame = stack.peek();
+                byte[] data = frame.data;
+                if (frame.position >= data.length) {
+                    stack.pop();
+                    continue;
+                }
+                int space = indexOf(data, (byte) ' ', frame.position);
+                int nul = space < 0 ? -1 : indexOf(data, (byte) 0, space + 1);
+                if (nul < 0 || nul + 1 + hashBytes > data.length) {
+                    throw new IOException("Tree is malformed");
+                }
+                int entryMode = parseOctal(data, frame.position, space);
+                path.length = frame.prefixLength;
+                path.append(data, space + 1, nul);
+                frame.position = nul + 1 + hashBytes;
+
+                if ((entryMode & MODE_TYPE_MASK) == MODE_DIRECTORY) {
+                    path.append((byte) '/');
+                    stack.push(new Frame(read(HexFormat.of().formatHex(data, nul + 1, nul + 1 + hashBytes)),
+                            path.length));
+                    continue;
+                }
+                mode = canonicalMode(entryMode);
+                objectData = data;
+                objectOffset = nul + 1;
+                return true;
+            }
+            return false;
+        }
+
+        boolean matches(PathBuffer name, int entryMode, ByteBuffer index, int objectName) {
+            if (canonicalMode(entryMode) != mode
+                    || !Arrays.equals(name.bytes, 0, name.length, path.bytes, 0, path.length)) {
+                return false;
+            }
+            for (int i = 0; i < hashBytes; i++) {
+                if (index.get(objectName + i) != objectData[objectOffset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private byte[] read(String name) throws IOException {
+            byte[] data = trees.readTree(name);
+            if (data == null) {
+                throw new IOException("Tree " + name + " cannot be read");
+            }
+            return data;
+        }
+
+        private static int parseOctal(byte[] data, int from, int to) throws IOException {
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 7) {
+                    throw new IOException("Tree entry has an invalid mode");
+                }
+                value = (value << 3) | digit;
+            }
+            return value;
+        }
+
+        private static int indexOf(byte[] data, byte value, int from) {
+            for (int i = from; i < data.length; i++) {
+                if (data[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static final class Frame {
+            private final byte[] data;
+            private final int prefixLength;
+            private int position;
+
+            Frame(byte[] data, int prefixLength) {
+                this.data = data;
+                this.prefixLength = prefixLength;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.config.GitExecutable;
+import git4idea.config.GitExecutableManager;
+import git4idea.repo.GitRepository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one {@link CatFileBatchProcess} per repository root so object reads do not pay for a process start.
+ * <p>
+ * Processes are started lazily, closed after {@link #IDLE_TIMEOUT_SECONDS} without use, and all shut down
+ * when the project is disposed.
+ */
+@Service(Service.Level.PROJECT)
+final class GitObjectReaderPool implements Disposable {
+    private static final Logger LOG = Logger.getInstance(GitObjectReaderPool.class);
+    private static final long IDLE_TIMEOUT_SECONDS = 60;
+
+    private final Project project;
+    private final Map<VirtualFile, CatFileBatchProcess> processes = new ConcurrentHashMap<>();
+    private final ScheduledFuture<?> evictionTask;
+    private volatile boolean disposed;
+
+    GitObjectReaderPool(Project project) {
+        this.project = project;
+        this.evictionTask = AppExecutorUtil.getAppScheduledExecutorService()
+                .scheduleWithFixedDelay(this::evictIdle, IDLE_TIMEOUT_SECONDS, IDLE_TIMEOUT_SECONDS / 2, TimeUnit.SECONDS);
+    }
+
+    static GitObjectReaderPool getInstance(Project project) {
+        return project.getService(GitObjectReaderPool.class);
+    }
+
+    /**
+     * Reads objects through the pooled process of the repository.
+     *
+     * @return the objects in request order (missing ones as {@code null}), or {@code null} if no pooled
+     * process can be used for this repository and the caller should run git directly
+     */
+    List<CatFileBatch.GitObject> read(GitRepository repo, List<String> names) {
+        CatFileBatchProcess process = acquire(repo);
+        if (process == null) {
+            return null;
+        }
+        try {
+            return process.read(names);
+        } catch (IOException e) {
+            LOG.debug("Pooled cat-file failed for " + repo.getRoot().getPresentableUrl(), e);
+            processes.remove(repo.getRoot(), process);
+            process.close();
+            return null;
+        }
+    }
+
+    private CatFileBatchProcess acquire(GitRepository repo) {
+        if (disposed) {
+            return null;
+        }
+
+        VirtualFile root = repo.getRoot();
+        CatFileBatchProcess existing = processes.get(root);
+        if (existing != null && existing.isUsable()) {
+            return existing;
+        }
+
+        GitExecutable executable = GitExecutableManager.getInstance().getExecutable(project);
+        if (!(executable instanceof GitExecutable.Local)) {
+            // WSL and other remote executables need the platform's command line handling
+            return null;
+        }
+
+        String exePath = executable.getExePath();
+        CatFileBatchProcess process = processes.compute(root, (key, current) -> {
+            if (current != null && current.isUsable()) {
+                return current;
+            }
+            if (current != null) {
+                current.close();
+            }
+            try {
+                return new CatFileBatchProcess(exePath, key.toNioPath());
+            } catch (IOException e) {
+                LOG.debug("Cannot start git cat-file --batch", e);
+                return null;
+            }
+        });
+
+        if (process != null && disposed) {
+            processes.remove(root, process);
+            process.close();
+            return null;
+        }
+        return process;
+    }
+
+    private void evictIdle() {
+        long timeout = TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS);
+        processes.forEach((root, process) -> {
+            if (!process.isUsable() || process.getIdleNanos() > timeout) {
+                if (processes.remove(root, process)) {
+                    process.close();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        evictionTask.cancel(false);
+        processes.values().forEach(CatFileBatchProcess::close);
+        processes.clear();
+    }
+}
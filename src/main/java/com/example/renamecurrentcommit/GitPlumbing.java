@@ -0,0 +1,356 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.VirtualFile;
+import git4idea.GitUtil;
+import git4idea.commands.GitBinaryHandler;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+import git4idea.config.GitConfigUtil;
+import git4idea.repo.GitRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Low-level Git operations that work on objects and refs directly, without touching the index or work tree.
+ */
+final class GitPlumbing {
+    private static final String[] COMMIT_HOOKS = {
+            "pre-commit", "prepare-commit-msg", "commit-msg", "post-commit", "post-rewrite"
+    };
+    private static final Pattern OBJECT_NAME = Pattern.compile("[0-9a-f]{40}|[0-9a-f]{64}");
+
+    private GitPlumbing() {
+    }
+
+    /**
+     * Reads the raw content of an object, e.g. {@code readObject(repo, "commit", "HEAD")}.
+     * Full object names stored as loose objects are read in-process.
+     */
+    static byte[] readObject(GitRepository repo, String type, String revision) throws VcsException {
+        if (OBJECT_NAME.matcher(revision).matches()) {
+            try {
+                byte[] loose = LooseObjectReader.read(getCommonDirectory(repo).resolve("objects"), revision, type);
+                if (loose != null) {
+                    return loose;
+                }
+            } catch (LooseObjectReader.ObjectTooLargeException e) {
+                throw new VcsException(e.getMessage(), e);
+            } catch (IOException e) {
+                // Fall back to git, which reports problems with the object store properly
+            }
+        }
+
+        List<CatFileBatch.GitObject> pooled = GitObjectReaderPool.getInstance(repo.getProject()).read(repo, List.of(revision));
+        if (pooled != null) {
+            CatFileBatch.GitObject object = pooled.get(0);
+            if (object == null) {
+                throw new VcsException("Object " + revision + " is missing");
+            }
+            if (!type.equals(object.getType())) {
+                throw new VcsException("Object " + revision + " is a " + object.getType() + ", not a " + type);
+            }
+            return contentOf(object);
+        }
+
+        GitBinaryHandler handler = new GitBinaryHandler(repo.getProject(), repo.getRoot(), GitCommand.CAT_FILE);
+        handler.addParameters(type, revision);
+        byte[] content = runBinary(handler);
+        if (content.length > CatFileBatch.MAX_CONTENT_BYTES) {
+            throw new VcsException(CatFileBatch.oversizedMessage(revision, content.length));
+        }
+        return content;
+    }
+
+    /**
+     * Reads several objects with one pipelined {@code cat-file --batch} round trip, keyed by the requested names
+     */
+    static Map<String, byte[]> readObjects(GitRepository repo, List<String> names) throws VcsException {
+        List<CatFileBatch.GitObject> pooled = GitObjectReaderPool.getInstance(repo.getProject()).read(repo, names);
+        if (pooled != null) {
+            Map<String, byte[]> objects = new LinkedHashMap<>(names.size() * 2);
+            for (int i = 0; i < names.size(); i++) {
+                CatFileBatch.GitObject object = pooled.get(i);
+                if (object == null) {
+                    throw new VcsException("Object " + names.get(i) + " is missing");
+                }
+                objects.put(names.get(i), contentOf(object));
+            }
+            return objects;
+        }
+
+        GitBinaryHandler handler = new GitBinaryHandler(repo.getProject(), repo.getRoot(), GitCommand.CAT_FILE);
+        handler.addParameters("--batch");
+        handler.setInputProcessor(stdin -> {
+            for (String name : names) {
+                stdin.write((name + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        InputStream output = new ByteArrayInputStream(runBinary(handler));
+        Map<String, byte[]> objects = new LinkedHashMap<>(names.size() * 2);
+        try {
+            for (String name : names) {
+                CatFileBatch.GitObject object = CatFileBatch.readObject(output);
+                if (object == null) {
+                    throw new VcsException("Object " + name + " is missing");
+                }
+                objects.put(name, contentOf(object));
+            }
+        } catch (IOException e) {
+            throw new VcsException("Failed to read objects: " + e.getMessage(), e);
+        }
+        return objects;
+    }
+
+    private static byte[] contentOf(CatFileBatch.GitObject object) throws VcsException {
+        if (object.isOversized()) {
+            throw new VcsException(CatFileBatch.oversizedMessage(object.getName(), object.getSize()));
+        }
+        return object.getContent();
+    }
+
+    /**
+     * Binary handlers only report failure by throwing, so failed runs are recorded with exit code -1
+     */
+    private static byte[] runBinary(GitBinaryHandler handler) throws VcsException {
+        try {
+            byte[] output = handler.run();
+            RenameTimings.gitProcessFinished(0);
+            return output;
+        } catch (VcsException e) {
+            RenameTimings.gitProcessFinished(-1);
+            throw e;
+        }
+    }
+
+    /**
+     * Lists commits that descend from {@code ancestor} and are reachable from {@code head}, parents first.
+     * Each entry holds the commit name followed by its parents, as printed by {@code rev-list --parents}.
+     */
+    static List<String[]> listDescendants(GitRepository repo, String ancestor, String head) throws VcsException {
+        GitLineHandler handler = new GitLineHandler(repo.getProject(), repo.getRoot(), GitCommand.REV_LIST);
+        handler.setSilent(true);
+        handler.addParameters("--ancestry-path", "--topo-order", "--reverse", "--parents", ancestor + ".." + head);
+        GitCommandResult result = CancellableGitRunner.run(handler);
+        if (!result.success()) {
+            throw new VcsException(result.getErrorOutputAsJoinedString());
+        }
+
+        List<String[]> commits = new ArrayList<>(result.getOutput().size());
+        for (String line : result.getOutput()) {
+            if (!line.isBlank()) {
+                commits.add(line.trim().split(" "));
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Moves a ref only if it still points to {@code expectedOldValue}; Git holds the ref lock for the compare-and-swap
+     */
+    static void updateRef(GitRepository repo, String ref, String newValue, String expectedOldValue, String reason) throws VcsException {
+        GitLineHandler handler = new GitLineHandler(repo.getProject(), repo.getRoot(), GitCommand.UPDATE_REF);
+        handler.setSilent(true);
+        handler.addParameters("-m", reason, ref, newValue, expectedOldValue);
+        GitCommandResult result = CancellableGitRunner.run(handler);
+        if (!result.success()) {
+            throw new VcsException(result.getErrorOutputAsJoinedString());
+        }
+    }
+
+    /**
+     * Reads the stage 0 index entries of the given paths
+     *
+     * @return object names keyed by path; paths without an entry are left out
+     */
+    static Map<String, String> readIndexEntries(GitRepository repo, List<String> paths) throws VcsException {
+        GitLineHandler handler = new GitLineHandler(repo.getProject(), repo.getRoot(), GitCommand.LS_FILES);
+        handler.setSilent(true);
+        handler.addParameters("--stage", "-z");
+        handler.endOptions();
+        handler.addParameters(paths);
+        GitCommandResult result = CancellableGitRunner.run(handler);
+        if (!result.success()) {
+            throw new VcsException(result.getErrorOutputAsJoinedString());
+        }
+
+        // "<mode> <object> <stage>\t<path>", NUL-terminated
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (String record : result.getOutputAsJoinedString().split("\0")) {
+            int tab = record.indexOf('\t');
+            String[] fields = tab > 0 ? record.substring(0, tab).split(" ") : new String[0];
+            if (fields.length == 3 && fields[2].equals("0")) {
+                entries.put(record.substring(tab + 1), fields[1]);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Points index entries at other objects with one {@code update-index --index-info}, leaving the rest of the
+     * index and the work tree alone
+     *
+     * @param entries object names keyed by path
+     */
+    static void updateIndexEntries(GitRepository repo, String mode, Map<String, String> entries) throws VcsException {
+        GitLineHandler handler = new GitLineHandler(repo.getProject(), repo.getRoot(), GitCommand.UPDATE_INDEX);
+        handler.setSilent(true);
+        handler.addParameters("-z", "--index-info");
+        handler.setInputProcessor(stdin -> {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                stdin.write((mode + " " + entry.getValue() + "\t" + entry.getKey() + "\0").getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        GitCommandResult result = CancellableGitRunner.run(handler);
+        if (!result.success()) {
+            throw new VcsException(result.getErrorOutputAsJoinedString());
+        }
+    }
+
+    static Path getGitDirectory(GitRepository repo) throws VcsException {
+        VirtualFile gitDir = GitUtil.findGitDir(repo.getRoot());
+        if (gitDir == null) {
+            throw new VcsException("Cannot locate .git directory of " + repo.getRoot().getPresentableUrl());
+        }
+        return gitDir.toNioPath();
+    }
+
+    /**
+     * Directory shared by all worktrees of the repository, holding objects and refs
+     */
+    static Path getCommonDirectory(GitRepository repo) throws VcsException {
+        Path gitDir = getGitDirectory(repo);
+        Path commonDirFile = gitDir.resolve("commondir");
+        if (!Files.isRegularFile(commonDirFile)) {
+            return gitDir;
+        }
+        try {
+            String commonDir = Files.readString(commonDirFile, StandardCharsets.UTF_8).trim();
+            return gitDir.resolve(commonDir).normalize();
+        } catch (IOException e) {
+            throw new VcsException("Cannot read " + commonDirFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads HEAD from the .git directory, which is up to date even before the repository state is refreshed
+     *
+     * @return the current HEAD, or {@code null} if it cannot be resolved without git
+     */
+    static HeadRefReader.Head readHead(GitRepository repo) {
+        try {
+            return HeadRefReader.read(getGitDirectory(repo), getCommonDirectory(repo));
+        } catch (IOException | VcsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a ref from the .git directory, or {@code null} if it does not exist or cannot be read without git
+     */
+    static String readRef(GitRepository repo, String ref) {
+        try {
+            return HeadRefReader.readRef(getGitDirectory(repo), getCommonDirectory(repo), ref);
+        } catch (IOException | VcsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The commit HEAD points at on disk, falling back to the revision known to the repository state
+     */
+    static String headRevision(GitRepository repo) {
+        HeadRefReader.Head head = readHead(repo);
+        return head != null && head.getRevision() != null ? head.getRevision() : repo.getCurrentRevision();
+    }
+
+    static LooseObjectWriter createObjectWriter(GitRepository repo, String knownObjectName) throws VcsException {
+        return new LooseObjectWriter(getCommonDirectory(repo).resolve("objects"), knownObjectName.length());
+    }
+
+    /**
+     * Checks whether {@code git commit --amend} would run any hook in this repository
+     */
+    static boolean hasCommitHooks(GitRepository repo) throws VcsException {
+        Path hooksDirectory = getHooksDirectory(repo);
+        for (String hook : COMMIT_HOOKS) {
+            if (findHook(hooksDirectory, hook) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the hook script git would run, or {@code null} if the hook is not installed
+     */
+    static Path findHook(Path hooksDirectory, String hook) {
+        Path script = hooksDirectory.resolve(hook);
+        return Files.isRegularFile(script) && (SystemInfo.isWindows || Files.isExecutable(script)) ? script : null;
+    }
+
+    static Path getHooksDirectory(GitRepository repo) throws VcsException {
+        String hooksPath = getConfigValue(repo, "core.hooksPath");
+        if (hooksPath != null && !hooksPath.isBlank()) {
+            return repo.getRoot().toNioPath().resolve(hooksPath.trim());
+        }
+        return getCommonDirectory(repo).resolve("hooks");
+    }
+
+    /**
+     * Builds the committer line {@code git commit} would write now, falling back to the given identity
+     * when {@code user.name}/{@code user.email} are not configured
+     */
+    static String currentCommitterIdent(GitRepository repo, String fallbackIdent) throws VcsException {
+        String name = getConfigValue(repo, GitConfigUtil.USER_NAME);
+        String email = getConfigValue(repo, GitConfigUtil.USER_EMAIL);
+        return HeadRewriter.committerIdent(name, email, fallbackIdent);
+    }
+
+    /**
+     * Charset git uses for new commit messages, from {@code i18n.commitEncoding}
+     */
+    static Charset commitEncoding(GitRepository repo) throws VcsException {
+        return CommitMessageCodec.charset(commitEncodingName(repo));
+    }
+
+    /**
+     * {@code i18n.commitEncoding} as configured, which git copies into the {@code encoding} header; {@code null} if unset
+     */
+    static String commitEncodingName(GitRepository repo) throws VcsException {
+        return getConfigValue(repo, "i18n.commitEncoding");
+    }
+
+    /**
+     * How {@code git commit -F} would clean up a message, from {@code commit.cleanup}
+     */
+    static CommitMessageCodec.Cleanup commitCleanup(GitRepository repo) throws VcsException {
+        String mode = getConfigValue(repo, "commit.cleanup");
+        // The comment character only matters when comment lines are stripped
+        String commentChar = "strip".equals(mode != null ? mode.trim() : null) ? getConfigValue(repo, "core.commentChar") : null;
+        return CommitMessageCodec.Cleanup.fromConfig(mode, commentChar);
+    }
+
+    /**
+     * Reads a config value with {@code git config}; a missing key is recorded like git's exit code 1
+     */
+    private static String getConfigValue(GitRepository repo, String key) throws VcsException {
+        String value = GitConfigUtil.getValue(repo.getProject(), repo.getRoot(), key);
+        RenameTimings.gitProcessFinished(value != null ? 0 : 1);
+        return value;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.renamecurrentcommit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Resolves HEAD and other refs from the files in the .git directory, without starting git.
+ * <p>
+ * Handles symbolic and detached HEAD, loose refs and {@code packed-refs}. Repositories using the reftable
+ * backend are reported as unreadable so that callers fall back to git.
+ */
+final class HeadRefReader {
+    private static final String SYMBOLIC_PREFIX = "ref: ";
+
+    private HeadRefReader() {
+    }
+
+    /**
+     * @param gitDirectory    the worktree's .git directory, holding HEAD
+     * @param commonDirectory the directory shared by all worktrees, holding branch refs
+     * @return the current HEAD, or {@code null} if it cannot be resolved from files
+     */
+    static Head read(Path gitDirectory, Path commonDirectory) throws IOException {
+        if (Files.isDirectory(commonDirectory.resolve("reftable"))) {
+            return null;
+        }
+        String head = readLine(gitDirectory.resolve("HEAD"));
+        if (head == null) {
+            return null;
+        }
+        if (!head.startsWith(SYMBOLIC_PREFIX)) {
+            return new Head(null, head);
+        }
+
+        String ref = head.substring(SYMBOLIC_PREFIX.length()).trim();
+        return new Head(ref, readRef(gitDirectory, commonDirectory, ref));
+    }
+
+    /**
+     * @param ref full ref name such as {@code refs/heads/main} or {@code refs/stash}
+     * @return the commit the ref points to, or {@code null} if it does not exist
+     * @throws IOException if the ref cannot be read, e.g. because the repository uses reftable
+     */
+    static String readRef(Path gitDirectory, Path commonDirectory, String ref) throws IOException {
+        if (Files.isDirectory(commonDirectory.resolve("reftable"))) {
+            throw new IOException("Refs of " + commonDirectory + " are stored in a reftable");
+        }
+        // Only per-worktree refs such as refs/bisect live in the worktree's git directory
+        Path refDirectory = ref.startsWith("refs/bisect/") || ref.startsWith("refs/worktree/") ? gitDirectory : commonDirectory;
+        String revision = readLine(refDirectory.resolve(ref));
+        return revision != null ? revision : findPacked(commonDirectory.resolve("packed-refs"), ref);
+    }
+
+    /**
+     * Lists the refs below {@code prefix}, e.g. {@code refs/remotes/}, from {@code packed-refs} and loose ref files.
+     * Symbolic refs such as {@code refs/remotes/origin/HEAD} are skipped.
+     *
+     * @return full ref names mapped to object names, sorted by name
+     * @throws IOException if the refs cannot be read, e.g. because the repository uses reftable
+     */
+    static Map<String, String> readRefs(Path commonDirectory, String prefix) throws IOException {
+        if (Files.isDirectory(commonDirectory.resolve("reftable"))) {
+            throw new IOException("Refs of " + commonDirectory + " are stored in a reftable");
+        }
+        Map<String, String> refs = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(commonDirectory.resolve("packed-refs"), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space > 0 && line.charAt(0) != '#' && line.charAt(0) != '^' && line.startsWith(prefix, space + 1)) {
+                    refs.put(line.substring(space + 1), line.substring(0, space));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Only loose refs
+        }
+
+        // Loose refs are newer than packed ones of the same name
+        Path directory = commonDirectory.resolve(prefix);
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.filter(file -> Files.isRegularFile(file) && !file.toString().endsWith(".lock"))::iterator) {
+                    String value = readLine(file);
+                    if (value != null && !value.startsWith(SYMBOLIC_PREFIX)) {
+                        String name = commonDirectory.relativize(file).toString().replace(File.separatorChar, '/');
+                        refs.put(name, value);
+                    }
+                }
+            }
+        }
+        return refs;
+    }
+
+    private static String readLine(Path file) throws IOException {
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8).trim();
+            return content.isEmpty() ? null : content;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static String findPacked(Path packedRefs, String ref) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(packedRefs, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space > 0 && line.charAt(0) != '#' && line.charAt(0) != '^'
+                        && line.length() - space - 1 == ref.length() && line.endsWith(ref)) {
+                    return line.substring(0, space);
+                }
+            }
+            return null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    static final class Head {
+        private final String ref;
+        private final String revision;
+
+        Head(String ref, String revision) {
+            this.ref = ref;
+            this.revision = revision;
+        }
+
+        /**
+         * Full name of the checked out branch, or {@code null} when HEAD is detached
+         */
+        String getRef() {
+            return ref;
+        }
+
+        /**
+         * Commit HEAD points at, or {@code null} on an unborn branch
+         */
+        String getRevision() {
+            return revision;
+        }
+    }
+}
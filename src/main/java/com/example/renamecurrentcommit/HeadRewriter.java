@@ -0,0 +1,112 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Replaces the message of the HEAD commit in place: one commit object written next to the old one and a
+ * compare-and-swap of HEAD, keeping tree, parents and author.
+ * <p>
+ * Needs no IDE: repository access goes through a {@link Store}, which {@link CommitRewriter} backs with
+ * {@link GitPlumbing} and the scale suite with plain git processes.
+ */
+final class HeadRewriter {
+    // What git commit prints when the cleaned up message is empty
+    static final String EMPTY_MESSAGE = "Aborting commit due to empty commit message.";
+    private static final DateTimeFormatter ZONE_OFFSET = DateTimeFormatter.ofPattern("xx");
+
+    /**
+     * The parts of a repository a reword reads and writes
+     */
+    interface Store {
+        /**
+         * @return the commit HEAD points to, or {@code null} if there is none yet
+         */
+        String headRevision() throws IOException;
+
+        byte[] readCommit(String name) throws IOException;
+
+        Path objectsDirectory() throws IOException;
+
+        /**
+         * @param fallbackIdent committer line of the reworded commit, for when no identity is configured
+         */
+        String committerIdent(String fallbackIdent) throws IOException;
+
+        CommitMessageCodec.Cleanup cleanup() throws IOException;
+
+        /**
+         * @return {@code i18n.commitEncoding}, or {@code null} if unset
+         */
+        String commitEncoding() throws IOException;
+
+        void updateHead(String newHead, String expectedOldHead, String reason) throws IOException;
+    }
+
+    private HeadRewriter() {
+    }
+
+    /**
+     * Stores the message as {@code git commit --amend -F} would: cleaned up, refused if that leaves it empty, and
+     * encoded with {@code i18n.commitEncoding}
+     *
+     * @return the name of the new HEAD commit
+     */
+    static String rewordHead(Store store, String newMessage) throws IOException {
+        String oldHead = store.headRevision();
+        if (oldHead == null) {
+            throw new IOException("Repository does not contain commits to rename yet");
+        }
+        CommitMessageCodec.Cleanup cleanup = store.cleanup();
+        String message = CommitMessageCodec.cleanUp(newMessage, cleanup);
+        if (CommitMessageCodec.isRefusedAsEmpty(message, cleanup)) {
+            throw new IOException(EMPTY_MESSAGE);
+        }
+
+        RawCommit commit = RawCommit.parse(store.readCommit(oldHead));
+        RawCommit reworded = commit
+                .withMessage(message, CommitMessageCodec.Cleanup.VERBATIM, store.commitEncoding())
+                .withCommitter(store.committerIdent(commit.getCommitter()));
+
+        LooseObjectWriter writer = new LooseObjectWriter(store.objectsDirectory(), oldHead.length());
+        String newHead;
+        try {
+            newHead = writer.write("commit", reworded.toBytes());
+        } catch (IOException e) {
+            throw new IOException("Failed to write commit object: " + e.getMessage(), e);
+        }
+
+        store.updateHead(newHead, oldHead, "commit (amend): " + subjectOf(newMessage));
+        return newHead;
+    }
+
+    /**
+     * Committer line stamped now, for {@code user.name} and {@code user.email}; keeps the identity of
+     * {@code fallbackIdent} if either is unset
+     */
+    static String committerIdent(String name, String email, String fallbackIdent) {
+        String identity;
+        if (name != null && email != null) {
+            identity = name.trim() + " <" + email.trim() + ">";
+        } else {
+            identity = fallbackIdent.substring(0, fallbackIdent.lastIndexOf('>') + 1);
+        }
+
+        ZonedDateTime now = ZonedDateTime.now();
+        return identity + " " + now.toEpochSecond() + " " + now.format(ZONE_OFFSET);
+    }
+
+    /**
+     * First non-blank line of the message; only that line is copied, however long the message is
+     */
+    static String subjectOf(String message) {
+        int start = 0;
+        while (start < message.length() && Character.isWhitespace(message.charAt(start))) {
+            start++;
+        }
+        int lineEnd = message.indexOf('\n', start);
+        return message.substring(start, lineEnd < 0 ? message.length() : lineEnd).strip();
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.renamecurrentcommit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tracks per-line validation results of a commit message so that only edited lines are re-checked.
+ * <p>
+ * The owner reports edits as they happen ({@link #lineChanged}, {@link #linesReplaced}), takes a
+ * {@link Pass} with the dirty lines when it wants results, evaluates it anywhere (it is immutable) and
+ * applies the results back. Passes that raced with newer edits are discarded.
+ * <p>
+ * Lines are checked as part of the trimmed message, as it will be committed: blank lines before the summary and
+ * after the last non-blank line are not checked, and roles count from the first non-blank line.
+ */
+final class IncrementalValidator {
+    // Identity sentinel for lines that have not been checked since their last edit
+    private static final String DIRTY = new String("dirty");
+    // Longer final paragraphs are treated as body text, which keeps trailer detection cheap on huge messages
+    private static final int MAX_TRAILER_LINES = 64;
+
+    /**
+     * Access to the current text of a line, e.g. backed by a Swing document
+     */
+    interface LineSource {
+        String line(int index);
+    }
+
+    private final ArrayList<String> states = new ArrayList<>();
+    private long generation;
+    private int trailerStart = -1;
+    // First and last non-blank line, the bounds of the trimmed message
+    private int firstLine = -1;
+    private int lastLine = -1;
+    // Counters and a lower bound of the first dirty line keep passes and lookups proportional to the edit
+    private int dirtyCount;
+    private int errorCount;
+    private int firstDirty;
+
+    IncrementalValidator(int lineCount) {
+        reset(lineCount);
+    }
+
+    void reset(int lineCount) {
+        states.clear();
+        states.ensureCapacity(lineCount);
+        states.addAll(Collections.nCopies(lineCount, DIRTY));
+        trailerStart = -1;
+        firstLine = -1;
+        lastLine = -1;
+        dirtyCount = lineCount;
+        errorCount = 0;
+        firstDirty = 0;
+        generation++;
+    }
+
+    void lineChanged(int index) {
+        if (index >= 0 && index < states.size()) {
+            setState(index, DIRTY);
+            firstDirty = Math.min(firstDirty, index);
+        }
+        generation++;
+    }
+
+    /**
+     * Replaces {@code removed} lines starting at {@code index} with {@code added} new lines
+     */
+    void linesReplaced(int index, int removed, int added) {
+        int start = Math.min(index, states.size());
+        int end = Math.min(states.size(), index + removed);
+        if (start < end) {
+            List<String> range = states.subList(start, end);
+            for (String state : range) {
+                count(state, -1);
+            }
+            range.clear();
+        }
+        states.addAll(start, Collections.nCopies(added, DIRTY));
+        dirtyCount += added;
+        firstDirty = Math.min(firstDirty, start);
+        generation++;
+    }
+
+    /**
+     * Collects the lines that need checking. Lines whose role changed because the trailer block moved are
+     * included as well.
+     */
+    Pass preparePass(LineSource source, int lineCount) {
+        if (states.size() != lineCount) {
+            reset(lineCount);
+        }
+
+        int newFirstLine = 0;
+        while (newFirstLine < lineCount && source.line(newFirstLine).isBlank()) {
+            newFirstLine++;
+        }
+        int newLastLine = lineCount - 1;
+        while (newLastLine > newFirstLine && source.line(newLastLine).isBlank()) {
+            newLastLine--;
+        }
+        if (newFirstLine != firstLine || newLastLine != lastLine) {
+            // Lines that moved in or out of the trimmed message, or whose role or trimming changed with its bounds
+            markDirty(Math.min(newFirstLine, firstLine), Math.max(newFirstLine, firstLine) + 1, lineCount);
+            markDirty(Math.min(newLastLine, lastLine), Math.max(newLastLine, lastLine), lineCount);
+            firstLine = newFirstLine;
+            lastLine = newLastLine;
+        }
+
+        int newTrailerStart = findTrailerStart(source, firstLine, lastLine);
+        if (newTrailerStart != trailerStart) {
+            int from = Math.min(newTrailerStart < 0 ? lineCount : newTrailerStart, trailerStart < 0 ? lineCount : trailerStart);
+            markDirty(from, lineCount - 1, lineCount);
+            trailerStart = newTrailerStart;
+        }
+
+        List<Integer> dirty = new ArrayList<>(dirtyCount);
+        for (int i = firstDirty; i < lineCount && dirty.size() < dirtyCount; i++) {
+            if (states.get(i) != DIRTY) {
+                continue;
+            }
+            if (i < firstLine || i > lastLine) {
+                // Trimmed away: nothing to check
+                setState(i, null);
+            } else {
+                dirty.add(i);
+            }
+        }
+
+        int[] indices = new int[dirty.size()];
+        String[] texts = new String[dirty.size()];
+        CommitMessageRule.LineRole[] roles = new CommitMessageRule.LineRole[dirty.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = dirty.get(i);
+            texts[i] = trimmedLine(source, indices[i]);
+            roles[i] = roleOf(indices[i]);
+        }
+        return new Pass(generation, indices, texts, roles);
+    }
+
+    private void markDirty(int from, int to, int lineCount) {
+        int start = Math.max(0, from);
+        int end = Math.min(lineCount - 1, to);
+        for (int i = start; i <= end; i++) {
+            setState(i, DIRTY);
+        }
+        if (start <= end) {
+            firstDirty = Math.min(firstDirty, start);
+        }
+    }
+
+    /**
+     * The line as it appears in the trimmed message
+     */
+    private String trimmedLine(LineSource source, int index) {
+        String line = source.line(index);
+        if (index == firstLine) {
+            line = line.substring(line.length() - line.stripLeading().length());
+        }
+        return index == lastLine ? line.stripTrailing() : line;
+    }
+
+    /**
+     * Runs the rules for the lines of a pass; safe to call from any thread
+     */
+    static String[] evaluate(CommitMessageRules.RuleSet rules, Pass pass) {
+        String[] errors = new String[pass.indices.length];
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = rules.check(pass.texts[i], pass.roles[i]);
+        }
+        return errors;
+    }
+
+    /**
+     * Checks a whole message in one go, for callers that do not track edits
+     */
+    static String validateAll(CommitMessageRules.RuleSet rules, String text) {
+        String[] lines = text.split("\n", -1);
+        IncrementalValidator validator = new IncrementalValidator(lines.length);
+        Pass pass = validator.preparePass(index -> lines[index], lines.length);
+        validator.apply(pass, evaluate(rules, pass));
+        return validator.firstError();
+    }
+
+    /**
+     * Stores the results of a pass unless the message was edited after the pass was prepared
+     */
+    boolean apply(Pass pass, String[] errors) {
+        if (pass.generation != generation) {
+            return false;
+        }
+        for (int i = 0; i < errors.length; i++) {
+            setState(pass.indices[i], errors[i]);
+        }
+        if (dirtyCount == 0) {
+            firstDirty = states.size();
+        }
+        return true;
+    }
+
+    /**
+     * @return the error of the first checked line that has one, or {@code null}
+     */
+    String firstError() {
+        if (errorCount == 0) {
+            return null;
+        }
+        for (String state : states) {
+            if (state != null && state != DIRTY) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    private void setState(int index, String state) {
+        count(states.set(index, state), -1);
+        count(state, 1);
+    }
+
+    private void count(String state, int delta) {
+        if (state == DIRTY) {
+            dirtyCount += delta;
+        } else if (state != null) {
+            errorCount += delta;
+        }
+    }
+
+    private CommitMessageRule.LineRole roleOf(int index) {
+        if (index == firstLine) {
+            return CommitMessageRule.LineRole.SUMMARY;
+        }
+        if (trailerStart > 0 && index >= trailerStart) {
+            return CommitMessageRule.LineRole.TRAILER;
+        }
+        return index == firstLine + 1 ? CommitMessageRule.LineRole.SEPARATOR : CommitMessageRule.LineRole.BODY;
+    }
+
+    /**
+     * The trailer block is the last paragraph after the summary, if its first line looks like a trailer
+     */
+    private static int findTrailerStart(LineSource source, int firstLine, int lastLine) {
+        int start = lastLine;
+        while (start > firstLine && !source.line(start - 1).isBlank()) {
+            if (lastLine - start >= MAX_TRAILER_LINES) {
+                return -1;
+            }
+            start--;
+        }
+        if (start < firstLine + 2 || !CommitMessageRules.looksLikeTrailer(source.line(start))) {
+            return -1;
+        }
+        return start;
+    }
+
+    static final class Pass {
+        private final long generation;
+        private final int[] indices;
+        private final String[] texts;
+        private final CommitMessageRule.LineRole[] roles;
+
+        private Pass(long generation, int[] indices, String[] texts, CommitMessageRule.LineRole[] roles) {
+            this.generation = generation;
+            this.indices = indices;
+            this.texts = texts;
+            this.roles = roles;
+        }
+
+        boolean isEmpty() {
+            return indices.length == 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads objects from the loose object store in-process.
+ * <p>
+ * Freshly written commits (the usual target of a rename) are loose, so this avoids a git process for them;
+ * packed objects are not handled and yield {@code null}.
+ */
+final class LooseObjectReader {
+
+    private LooseObjectReader() {
+    }
+
+    /**
+     * Returns the content of the object, or {@code null} if it is not stored as a loose object.
+     * Objects above {@link CatFileBatch#MAX_CONTENT_BYTES} are refused before their content is read.
+     */
+    static byte[] read(Path objectsDirectory, String name, String expectedType) throws IOException {
+        Path file = objectsDirectory.resolve(name.substring(0, 2)).resolve(name.substring(2));
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(file))) {
+            String header = readHeader(in);
+            int space = header.indexOf(' ');
+            if (space < 0 || !header.substring(0, space).equals(expectedType)) {
+                throw new IOException("Object " + name + " is not a " + expectedType);
+            }
+            long size = Long.parseLong(header.substring(space + 1));
+            if (size > CatFileBatch.MAX_CONTENT_BYTES) {
+                throw new ObjectTooLargeException(name, size);
+            }
+            byte[] content = in.readNBytes((int) size);
+            if (content.length != size) {
+                throw new IOException("Object " + name + " is truncated");
+            }
+            return content;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Thrown for objects that are larger than the plugin reads into memory
+     */
+    static final class ObjectTooLargeException extends IOException {
+        ObjectTooLargeException(String name, long size) {
+            super(CatFileBatch.oversizedMessage(name, size));
+        }
+    }
+
+    private static String readHeader(InputStream in) throws IOException {
+        StringBuilder header = new StringBuilder(16);
+        int b;
+        while ((b = in.read()) > 0) {
+            header.append((char) b);
+        }
+        if (b < 0) {
+            throw new IOException("Unexpected end of object header");
+        }
+        return new String(header.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes Git objects straight into the loose object store, the same way {@code git hash-object -w} does.
+ * <p>
+ * Used for commit rewrites that only touch commit objects, so no git process, index or work tree is involved.
+ */
+final class LooseObjectWriter {
+    private final Path objectsDirectory;
+    private final String digestAlgorithm;
+
+    /**
+     * @param objectsDirectory the {@code objects} directory of the repository (the common dir for worktrees)
+     * @param hashLength       length of object names in this repository: 40 for SHA-1, 64 for SHA-256
+     */
+    LooseObjectWriter(Path objectsDirectory, int hashLength) {
+        this.objectsDirectory = objectsDirectory;
+        this.digestAlgorithm = digestAlgorithm(hashLength);
+    }
+
+    /**
+     * Stores the object and returns its name; existing objects are left untouched
+     */
+    String write(String type, byte[] content) throws IOException {
+        byte[] header = (type + " " + content.length + "\0").getBytes(StandardCharsets.US_ASCII);
+        String name = hash(digestAlgorithm, header, content);
+
+        Path directory = objectsDirectory.resolve(name.substring(0, 2));
+        Path target = directory.resolve(name.substring(2));
+        if (Files.exists(target)) {
+            return name;
+        }
+
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "tmp_obj_", null);
+        try {
+            try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(temp), new Deflater(Deflater.BEST_SPEED), 8192)) {
+                out.write(header);
+                out.write(content);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Written concurrently by someone else; object content is identical by definition
+            }
+            target.toFile().setReadOnly();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return name;
+    }
+
+    static String hash(int hashLength, String type, byte[] content) {
+        byte[] header = (type + " " + content.length + "\0").getBytes(StandardCharsets.US_ASCII);
+        return hash(digestAlgorithm(hashLength), header, content);
+    }
+
+    private static String hash(String algorithm, byte[] header, byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(algorithm);
+            digest.update(header);
+            digest.update(content);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+
+    private static String digestAlgorithm(int hashLength) {
+        switch (hashLength) {
+            case 40:
+                return "SHA-1";
+            case 64:
+                return "SHA-256";
+            default:
+                throw new IllegalArgumentException("Unsupported object name length: " + hashLength);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.renamecurrentcommit;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Builds and sizes the message text area of {@link CommitMessageDialog} with plain Swing, so the startup cost can be
+ * measured without a running IDE.
+ */
+final class MessageAreaLayout {
+    static final int ROWS = 8;
+    static final int COLUMNS = 50;
+
+    private MessageAreaLayout() {
+    }
+
+    /**
+     * Word-wrapping text area holding {@code message}. The font is set first, so the message is laid out once.
+     */
+    static JTextArea createTextArea(String message, Font font) {
+        JTextArea area = new JTextArea(ROWS, COLUMNS);
+        area.setLineWrap(true);
+        area.setWrapStyleWord(true);
+        area.setFont(font);
+        area.setText(message);
+        return area;
+    }
+
+    /**
+     * Sizes the scroll pane from the rows and columns of the text area, so packing the dialog does not wrap the whole
+     * message just to measure it; with long messages that layout otherwise happens twice before the first paint
+     *
+     * @param horizontalPadding room for the scroll bar, in pixels at the current scale
+     * @param verticalPadding   room for the scroll pane border, in pixels at the current scale
+     */
+    static void setPreferredSize(JScrollPane scrollPane, JTextArea area, int horizontalPadding, int verticalPadding) {
+        FontMetrics metrics = area.getFontMetrics(area.getFont());
+        Insets insets = area.getInsets();
+        scrollPane.setPreferredSize(new Dimension(
+                area.getColumns() * metrics.charWidth('m') + insets.left + insets.right + horizontalPadding,
+                area.getRows() * metrics.getHeight() + insets.top + insets.bottom + verticalPadding));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.CheckBoxList;
+import com.intellij.ui.components.JBScrollPane;
+import git4idea.repo.GitRepository;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dialog for applying one commit message to HEAD of several Git roots
+ */
+public class MultiRootRenameDialog extends DialogWrapper {
+    private final List<GitRepository> repositories;
+    private final CheckBoxList<GitRepository> rootList = new CheckBoxList<>();
+    private final JTextArea textArea;
+
+    /**
+     * @param headMessages current HEAD message of every repository; roots whose message equals
+     *                     {@code initialMessage} are preselected
+     */
+    public MultiRootRenameDialog(Project project, List<GitRepository> repositories, Map<GitRepository, String> headMessages, String initialMessage) {
+        super(project);
+        this.repositories = repositories;
+
+        for (GitRepository repo : repositories) {
+            String message = headMessages.get(repo);
+            String subject = message != null ? HeadRewriter.subjectOf(message) : "";
+            rootList.addItem(repo, repo.getRoot().getPresentableUrl() + "  —  " + subject, initialMessage.equals(message));
+        }
+        rootList.setCheckBoxListListener((index, value) -> validateInput());
+
+        textArea = new JTextArea(initialMessage, 8, 50);
+        textArea.setLineWrap(true);
+        textArea.setWrapStyleWord(true);
+        textArea.setFont(DialogResources.getInstance().getEditorFont());
+        textArea.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { validateInput(); }
+            public void removeUpdate(DocumentEvent e) { validateInput(); }
+            public void changedUpdate(DocumentEvent e) { validateInput(); }
+        });
+
+        setTitle("Rename Last Commit in Multiple Roots");
+        setResizable(true);
+        init();
+        validateInput();
+    }
+
+    private void validateInput() {
+        JButton okButton = getButton(getOKAction());
+        if (okButton == null) return;
+
+        String text = textArea.getText().trim();
+        CommitMessageDialog.ValidationState state = CommitMessageDialog.evaluateValidationState(
+                text, null, true, RenameCommitSettings.getInstance().getRuleSet());
+        String error = state.getErrorText();
+        if (error == null && getSelectedRepositories().isEmpty()) {
+            error = "Select at least one Git root.";
+        }
+
+        okButton.setEnabled(state.isValid() && error == null);
+        setErrorText(error);
+    }
+
+    @Override
+    protected JComponent createCenterPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+
+        JPanel rootsPanel = new JPanel(new BorderLayout(0, 4));
+        rootsPanel.add(new JLabel("Git roots:"), BorderLayout.NORTH);
+        JBScrollPane rootsScroll = new JBScrollPane(rootList);
+        rootsScroll.setPreferredSize(new Dimension(500, 160));
+        rootsPanel.add(rootsScroll, BorderLayout.CENTER);
+        panel.add(rootsPanel, BorderLayout.NORTH);
+
+        JPanel messagePanel = new JPanel(new BorderLayout(0, 4));
+        messagePanel.add(new JLabel("Commit message:"), BorderLayout.NORTH);
+        messagePanel.add(new JBScrollPane(textArea), BorderLayout.CENTER);
+        panel.add(messagePanel, BorderLayout.CENTER);
+
+        return panel;
+    }
+
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return textArea;
+    }
+
+    public List<GitRepository> getSelectedRepositories() {
+        List<GitRepository> selected = new ArrayList<>();
+        for (GitRepository repo : repositories) {
+            if (rootList.isItemSelected(repo)) {
+                selected.add(repo);
+            }
+        }
+        return selected;
+    }
+
+    public String getCommitMessage() {
+        return textArea.getText().trim();
+    }
+}
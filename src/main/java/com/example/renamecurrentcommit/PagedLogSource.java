@@ -0,0 +1,67 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import git4idea.commands.Git;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Commit pages read with one {@code git log --skip} call each, for git executables that cannot be started
+ * directly (e.g. WSL). Slower than {@link StreamingLogReader} deep into the history, as git walks the skipped
+ * commits again for every page.
+ */
+final class PagedLogSource implements CommitLogSource {
+    private final Project project;
+    private final VirtualFile root;
+    private final String revision;
+    private int offset;
+    private volatile boolean exhausted;
+
+    PagedLogSource(Project project, VirtualFile root, String revision) {
+        this.project = project;
+        this.root = root;
+        this.revision = revision;
+    }
+
+    @Override
+    public synchronized List<Entry> readPage(int count) throws IOException {
+        if (exhausted) {
+            return List.of();
+        }
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.LOG);
+        handler.setSilent(true);
+        handler.addParameters(FORMAT, "--skip=" + offset, "--max-count=" + count, revision);
+        handler.endOptions();
+        GitCommandResult result = Git.getInstance().runCommand(handler);
+        RenameTimings.gitProcessFinished(result.getExitCode());
+        if (!result.success()) {
+            throw new IOException(result.getErrorOutputAsJoinedString());
+        }
+
+        List<Entry> page = new ArrayList<>(count);
+        for (String line : result.getOutput()) {
+            Entry entry = Entry.parse(line);
+            if (entry != null) {
+                page.add(entry);
+            }
+        }
+        offset += result.getOutput().size();
+        exhausted = result.getOutput().size() < count;
+        return page;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.project.Project;
+import git4idea.GitUtil;
+import git4idea.config.GitExecutable;
+import git4idea.config.GitExecutableManager;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Rewords a commit chosen from a searchable list of the current branch's history, for when the Git log is not at hand.
+ */
+public class PickCommitToRewordAction extends RewordCommitAction {
+
+    @Override
+    public void update(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        event.getPresentation().setEnabled(project != null
+                && !GitUtil.getRepositoryManager(project).getRepositories().isEmpty());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        if (project == null) {
+            return;
+        }
+
+        GitRepository repo = RenameCurrentCommitAction.findRepository(project, event, true);
+        if (repo == null) {
+            return;
+        }
+        if (repo.getState() != GitRepository.State.NORMAL || repo.getCurrentRevision() == null) {
+            RenameCurrentCommitAction.showError(project, "Cannot reword commit while Git is performing another operation or HEAD is detached");
+            return;
+        }
+
+        RenameCurrentCommitAction.runBackgroundTask(project, "Reading commit history", indicator -> {
+            CommitLogSource source;
+            try {
+                source = openLog(repo);
+            } catch (IOException e) {
+                RenameCurrentCommitAction.showError(project, "Error accessing Git repository: " + e.getMessage());
+                return;
+            }
+            ApplicationManager.getApplication().invokeLater(() -> {
+                CommitPickerDialog dialog = new CommitPickerDialog(project, source);
+                String target = dialog.showAndGet() ? dialog.getSelectedCommit() : null;
+                if (target != null) {
+                    startReword(project, repo, target);
+                }
+            }, ModalityState.defaultModalityState());
+        });
+    }
+
+    private static CommitLogSource openLog(GitRepository repo) throws IOException {
+        String head = GitPlumbing.headRevision(repo);
+        GitExecutable executable = GitExecutableManager.getInstance().getExecutable(repo.getProject());
+        if (executable instanceof GitExecutable.Local) {
+            return new StreamingLogReader(executable.getExePath(), Path.of(repo.getRoot().getPath()), head);
+        }
+        return new PagedLogSource(repo.getProject(), repo.getRoot(), head);
+    }
+}
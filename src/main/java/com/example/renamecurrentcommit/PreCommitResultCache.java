@@ -0,0 +1,71 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * On-disk record of trees the pre-commit hook passed on, keyed by tree name and a fingerprint of the hook.
+ * <p>
+ * The file holds one {@code tree fingerprint} pair per line, most recent last, and is capped at a fixed number
+ * of entries. Updates are written to a temporary file and moved into place, so readers never see a partial file.
+ */
+final class PreCommitResultCache {
+    private static final Object LOCK = new Object();
+
+    private final Path file;
+    private final int maxEntries;
+
+    PreCommitResultCache(Path file, int maxEntries) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+    }
+
+    boolean hasPassed(String tree, String hookFingerprint) throws IOException {
+        synchronized (LOCK) {
+            return load().contains(key(tree, hookFingerprint));
+        }
+    }
+
+    void recordPassed(String tree, String hookFingerprint) throws IOException {
+        synchronized (LOCK) {
+            Set<String> entries = load();
+            String key = key(tree, hookFingerprint);
+            entries.remove(key);
+            entries.add(key);
+
+            List<String> lines = new ArrayList<>(entries);
+            if (lines.size() > maxEntries) {
+                lines = lines.subList(lines.size() - maxEntries, lines.size());
+            }
+
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, lines, StandardCharsets.UTF_8);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private Set<String> load() throws IOException {
+        try {
+            return new LinkedHashSet<>(Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return new LinkedHashSet<>();
+        }
+    }
+
+    private static String key(String tree, String hookFingerprint) {
+        return tree + " " + hookFingerprint;
+    }
+}
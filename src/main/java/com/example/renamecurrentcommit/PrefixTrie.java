@@ -0,0 +1,232 @@
+package com.example.renamecurrentcommit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Radix trie of phrases with frequency-ranked, case-insensitive prefix completion and an LRU size cap.
+ * <p>
+ * Every node keeps an upper bound of the best score below it, so the top completions are found best-first
+ * without visiting the whole subtree of a short prefix. Evicted phrases only clear their terminal mark; the bounds
+ * stay valid as upper bounds and the trie is rebuilt from the live phrases once enough dead nodes accumulated.
+ * Not thread-safe.
+ */
+final class PrefixTrie {
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private Node root = new Node("");
+    private int evictedSinceRebuild;
+
+    PrefixTrie(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(Math.min(capacity, 1 << 16), 0.75f, true);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Adds one occurrence of a phrase; the most recently added or completed phrases survive eviction
+     */
+    void add(String phrase, int weight) {
+        String key = phrase.toLowerCase(Locale.ROOT);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(phrase);
+            entries.put(key, entry);
+            insert(root, key, entry);
+            evictIfNeeded();
+        }
+        entry.score += weight;
+        raiseBounds(key, entry.score);
+    }
+
+    /**
+     * Returns up to {@code limit} phrases starting with {@code prefix}, highest score first
+     */
+    List<String> complete(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        Node node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            Node child = node.child(key.charAt(matched));
+            if (child == null || !key.regionMatches(matched, child.label, 0, Math.min(child.label.length(), key.length() - matched))) {
+                return List.of();
+            }
+            matched += child.label.length();
+            node = child;
+        }
+
+        List<String> result = new ArrayList<>(limit);
+        PriorityQueue<Object> queue = new PriorityQueue<>((a, b) -> Integer.compare(scoreOf(b), scoreOf(a)));
+        queue.add(node);
+        while (!queue.isEmpty() && result.size() < limit) {
+            Object next = queue.poll();
+            if (next instanceof Entry) {
+                result.add(((Entry) next).phrase);
+                continue;
+            }
+            Node current = (Node) next;
+            if (current.entry != null) {
+                queue.add(current.entry);
+            }
+            for (Node child : current.children) {
+                queue.add(child);
+            }
+        }
+        return result;
+    }
+
+    private static int scoreOf(Object item) {
+        return item instanceof Entry ? ((Entry) item).score : ((Node) item).bound;
+    }
+
+    private static void insert(Node node, String key, Entry entry) {
+        int offset = 0;
+        while (true) {
+            if (offset == key.length()) {
+                node.entry = entry;
+                return;
+            }
+            Node child = node.child(key.charAt(offset));
+            if (child == null) {
+                node.addChild(new Node(key.substring(offset))).entry = entry;
+                return;
+            }
+
+            int common = commonPrefix(child.label, key, offset);
+            if (common < child.label.length()) {
+                child = node.split(child, common);
+            }
+            offset += common;
+            node = child;
+        }
+    }
+
+    private void raiseBounds(String key, int score) {
+        Node node = root;
+        node.bound = Math.max(node.bound, score);
+        int offset = 0;
+        while (offset < key.length()) {
+            node = node.child(key.charAt(offset));
+            node.bound = Math.max(node.bound, score);
+            offset += node.label.length();
+        }
+    }
+
+    private void evictIfNeeded() {
+        if (entries.size() <= capacity) {
+            return;
+        }
+        var eldest = entries.entrySet().iterator();
+        Entry evicted = eldest.next().getValue();
+        eldest.remove();
+        String key = evicted.phrase.toLowerCase(Locale.ROOT);
+        clearTerminal(key);
+        if (++evictedSinceRebuild > capacity / 2) {
+            rebuild();
+        }
+    }
+
+    private void clearTerminal(String key) {
+        Node node = root;
+        int offset = 0;
+        while (offset < key.length()) {
+            node = node.child(key.charAt(offset));
+            offset += node.label.length();
+        }
+        node.entry = null;
+    }
+
+    private void rebuild() {
+        root = new Node("");
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            insert(root, entry.getKey(), entry.getValue());
+            raiseBounds(entry.getKey(), entry.getValue().score);
+        }
+        evictedSinceRebuild = 0;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Entry {
+        private final String phrase;
+        private int score;
+
+        Entry(String phrase) {
+            this.phrase = phrase;
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private Entry entry;
+        private int bound;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(Node child) {
+            char first = child.label.charAt(0);
+            int index = 0;
+            while (index < children.length && children[index].label.charAt(0) < first) {
+                index++;
+            }
+            Node[] grown = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            grown[index] = child;
+            children = grown;
+            return child;
+        }
+
+        /**
+         * Splits {@code child} after {@code length} characters and returns the new intermediate node
+         */
+        Node split(Node child, int length) {
+            Node middle = new Node(child.label.substring(0, length));
+            middle.bound = child.bound;
+            child.label = child.label.substring(length);
+            middle.children = new Node[]{child};
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    children[i] = middle;
+                }
+            }
+            return middle;
+        }
+    }
+}
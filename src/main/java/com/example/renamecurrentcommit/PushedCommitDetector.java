@@ -0,0 +1,103 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.VirtualFile;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds out whether a commit is already on a remote-tracking branch, in which case renaming it needs a force push.
+ * <p>
+ * Only local data is used: remote-tracking refs from the .git directory and the commit-graph, which is opened once
+ * per repository and reopened when git rewrites it. Without a usable commit-graph, with reftable refs or with many
+ * commits newer than the graph, {@code git for-each-ref --contains} decides.
+ */
+@Service(Service.Level.PROJECT)
+final class PushedCommitDetector {
+    private static final Logger LOG = Logger.getInstance(PushedCommitDetector.class);
+    private static final String REMOTES = "refs/remotes/";
+
+    private final Map<VirtualFile, CommitGraph> graphs = new ConcurrentHashMap<>();
+
+    static PushedCommitDetector getInstance(Project project) {
+        return project.getService(PushedCommitDetector.class);
+    }
+
+    /**
+     * @return a remote-tracking branch containing {@code commit}, e.g. {@code origin/main}, or {@code null} if there
+     * is none or it cannot be determined
+     */
+    @Nullable String findRemoteBranchContaining(GitRepository repo, String commit) {
+        try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.PUSHED_CHECK)) {
+            try {
+                Path commonDirectory = GitPlumbing.getCommonDirectory(repo);
+                Map<String, String> refs = HeadRefReader.readRefs(commonDirectory, REMOTES);
+                if (refs.isEmpty()) {
+                    return null;
+                }
+                CommitGraph graph = graph(repo, commonDirectory.resolve("objects"));
+                if (graph != null) {
+                    return shortName(ReachabilityWalker.findContainingRef(graph, refs, commit, parent -> parentsOf(repo, parent)));
+                }
+            } catch (IOException | VcsException e) {
+                LOG.debug("Cannot check " + commit + " against the commit-graph, asking git", e);
+            }
+            return shortName(findWithGit(repo, commit));
+        }
+    }
+
+    private @Nullable CommitGraph graph(GitRepository repo, Path objectsDirectory) throws IOException {
+        CommitGraph cached = graphs.get(repo.getRoot());
+        if (cached != null && cached.getStamp().equals(CommitGraph.stampOf(objectsDirectory))) {
+            return cached;
+        }
+        // A mapped file cannot be replaced on Windows, which would break git's own commit-graph updates
+        CommitGraph graph = CommitGraph.open(objectsDirectory, !SystemInfo.isWindows);
+        if (graph != null) {
+            graphs.put(repo.getRoot(), graph);
+        } else {
+            graphs.remove(repo.getRoot());
+        }
+        return graph;
+    }
+
+    private static List<String> parentsOf(GitRepository repo, String commit) throws IOException {
+        try {
+            return RawCommit.parse(GitPlumbing.readObject(repo, "commit", commit)).getParents();
+        } catch (VcsException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static @Nullable String findWithGit(GitRepository repo, String commit) {
+        GitLineHandler handler = new GitLineHandler(repo.getProject(), repo.getRoot(), GitCommand.FOR_EACH_REF);
+        handler.setSilent(true);
+        handler.addParameters("--count=1", "--contains=" + commit, "--format=%(refname)", REMOTES);
+        try {
+            GitCommandResult result = CancellableGitRunner.run(handler);
+            if (result.success() && !result.getOutput().isEmpty()) {
+                return result.getOutput().get(0).trim();
+            }
+        } catch (VcsException e) {
+            LOG.debug("Cannot check whether " + commit + " is pushed", e);
+        }
+        return null;
+    }
+
+    private static @Nullable String shortName(@Nullable String ref) {
+        return ref != null && ref.startsWith(REMOTES) ? ref.substring(REMOTES.length()) : ref;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.renamecurrentcommit;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Byte-exact model of a Git commit object.
+ * <p>
+ * Headers are kept as raw bytes so that anything not touched by a rewrite (author, encoding,
+ * mergetag, unknown extension headers) is written back exactly as it was read.
+ */
+final class RawCommit {
+    private static final byte NEWLINE = '\n';
+    private static final byte SPACE = ' ';
+
+    private final List<byte[]> headers;
+    // The message is a range of the parsed object, so large messages are not copied until they are rewritten
+    private final byte[] messageData;
+    private final int messageOffset;
+
+    private RawCommit(List<byte[]> headers, byte[] messageData, int messageOffset) {
+        this.headers = headers;
+        this.messageData = messageData;
+        this.messageOffset = messageOffset;
+    }
+
+    private RawCommit(List<byte[]> headers, byte[] message) {
+        this(headers, message, 0);
+    }
+
+    /**
+     * Parses the content of a commit object (without the loose object header)
+     */
+    static RawCommit parse(byte[] data) {
+        List<byte[]> headers = new ArrayList<>();
+        int position = 0;
+        int headerStart = -1;
+        int headerEnd = -1;
+
+        while (position < data.length) {
+            int lineEnd = indexOf(data, NEWLINE, position);
+            if (lineEnd < 0) {
+                lineEnd = data.length;
+            }
+
+            if (lineEnd == position) {
+                // Blank line separates headers from the message
+                position = lineEnd + 1;
+                break;
+            }
+
+            if (data[position] != SPACE) {
+                if (headerStart >= 0) {
+                    headers.add(copy(data, headerStart, headerEnd));
+                }
+                headerStart = position;
+            }
+            headerEnd = lineEnd;
+            position = lineEnd + 1;
+        }
+
+        if (headerStart >= 0) {
+            headers.add(copy(data, headerStart, headerEnd));
+        }
+
+        RawCommit commit = new RawCommit(headers, data, Math.min(position, data.length));
+        if (commit.getTree() == null) {
+            throw new IllegalArgumentException("Not a commit object: missing tree header");
+        }
+        return commit;
+    }
+
+    String getTree() {
+        String tree = getHeader("tree");
+        return tree != null ? tree.trim() : null;
+    }
+
+    List<String> getParents() {
+        List<String> parents = new ArrayList<>(2);
+        for (byte[] header : headers) {
+            if (hasKey(header, "parent")) {
+                parents.add(value(header).trim());
+            }
+        }
+        return Collections.unmodifiableList(parents);
+    }
+
+    String getCommitter() {
+        return getHeader("committer");
+    }
+
+    /**
+     * Charset declared by the {@code encoding} header, UTF-8 when absent or unknown
+     */
+    Charset getMessageEncoding() {
+        for (byte[] header : headers) {
+            if (hasKey(header, "encoding")) {
+                try {
+                    return Charset.forName(value(header).trim());
+                } catch (IllegalArgumentException e) {
+                    return StandardCharsets.UTF_8;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    String getMessage() {
+        return new String(messageData, messageOffset, messageData.length - messageOffset, getMessageEncoding());
+    }
+
+    /**
+     * The message without surrounding whitespace, decoded with a single copy
+     */
+    String getStrippedMessage() {
+        return CommitMessageCodec.decodeStripped(messageData, messageOffset, messageData.length, getMessageEncoding());
+    }
+
+    /**
+     * Returns a copy with the given message, cleaned up and encoded the way {@code git commit -F} stores it
+     *
+     * @param encoding value of {@code i18n.commitEncoding}, or {@code null} for UTF-8; replaces the {@code encoding}
+     *                 header, which like git is written right after the committer and only for other encodings
+     */
+    RawCommit withMessage(String newMessage, CommitMessageCodec.Cleanup cleanup, String encoding) {
+        List<byte[]> updated = new ArrayList<>(headers.size() + 1);
+        for (byte[] header : withoutSignature(headers)) {
+            if (hasKey(header, "encoding")) {
+                continue;
+            }
+            updated.add(header);
+            if (hasKey(header, "committer") && !CommitMessageCodec.isUtf8(encoding)) {
+                updated.add(("encoding " + encoding.trim()).getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        return new RawCommit(updated, CommitMessageCodec.encode(newMessage, cleanup, CommitMessageCodec.charset(encoding)));
+    }
+
+    RawCommit withTree(String tree) {
+        return new RawCommit(replaceHeader(withoutSignature(headers), "tree", tree), messageData, messageOffset);
+    }
+
+    RawCommit withParents(List<String> parents) {
+        List<byte[]> updated = new ArrayList<>(headers.size() + parents.size());
+        boolean inserted = false;
+        for (byte[] header : withoutSignature(headers)) {
+            if (hasKey(header, "parent")) {
+                continue;
+            }
+            updated.add(header);
+            if (!inserted && hasKey(header, "tree")) {
+                for (String parent : parents) {
+                    updated.add(("parent " + parent).getBytes(StandardCharsets.US_ASCII));
+                }
+                inserted = true;
+            }
+        }
+        return new RawCommit(updated, messageData, messageOffset);
+    }
+
+    /**
+     * Returns a copy with the committer identity replaced, e.g. {@code "Jane <jane@example.com> 1700000000 +0100"}
+     */
+    RawCommit withCommitter(String ident) {
+        return new RawCommit(replaceHeader(withoutSignature(headers), "committer", ident), messageData, messageOffset);
+    }
+
+    byte[] toBytes() {
+        int messageLength = messageData.length - messageOffset;
+        int length = messageLength + 1;
+        for (byte[] header : headers) {
+            length += header.length + 1;
+        }
+
+        byte[] result = new byte[length];
+        int position = 0;
+        for (byte[] header : headers) {
+            System.arraycopy(header, 0, result, position, header.length);
+            position += header.length;
+            result[position++] = NEWLINE;
+        }
+        result[position++] = NEWLINE;
+        System.arraycopy(messageData, messageOffset, result, position, messageLength);
+        return result;
+    }
+
+    private String getHeader(String key) {
+        for (byte[] header : headers) {
+            if (hasKey(header, key)) {
+                return new String(header, key.length() + 1, header.length - key.length() - 1, getMessageEncoding());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Signatures cover the whole object, so any rewrite invalidates them
+     */
+    private static List<byte[]> withoutSignature(List<byte[]> headers) {
+        List<byte[]> result = new ArrayList<>(headers.size());
+        for (byte[] header : headers) {
+            if (!hasKey(header, "gpgsig") && !hasKey(header, "gpgsig-sha256")) {
+                result.add(header);
+            }
+        }
+        return result;
+    }
+
+    private List<byte[]> replaceHeader(List<byte[]> source, String key, String value) {
+        List<byte[]> result = new ArrayList<>(source.size());
+        boolean replaced = false;
+        for (byte[] header : source) {
+            if (!replaced && hasKey(header, key)) {
+                result.add((key + " " + value).getBytes(getMessageEncoding()));
+                replaced = true;
+            } else {
+                result.add(header);
+            }
+        }
+        if (!replaced) {
+            throw new IllegalStateException("Commit has no " + key + " header");
+        }
+        return result;
+    }
+
+    private static boolean hasKey(byte[] header, String key) {
+        int length = key.length();
+        if (header.length <= length || header[length] != SPACE) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (header[i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String value(byte[] header) {
+        int space = indexOf(header, SPACE, 0);
+        return new String(header, space + 1, header.length - space - 1, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int indexOf(byte[] data, byte value, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] copy(byte[] data, int from, int to) {
+        byte[] result = new byte[Math.max(0, to - from)];
+        System.arraycopy(data, from, result, 0, result.length);
+        return result;
+    }
+}
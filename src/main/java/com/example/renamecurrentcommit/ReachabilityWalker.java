@@ -0,0 +1,110 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides whether a commit is contained in the history of any of a set of refs, using the commit-graph.
+ * <p>
+ * The commit-graph is closed under parents, and a commit can only reach commits with a lower generation number.
+ * So the walk from the ref tips stops at every graph commit whose generation is not above the target's, and when
+ * the target is not in the graph at all only commits newer than the graph are walked. Those are read through a
+ * {@link ParentSource}, with a budget after which the caller should ask git instead.
+ */
+final class ReachabilityWalker {
+    // Commits created or fetched since git last wrote the commit-graph; more than this is left to git
+    static final int MAX_COMMITS_OUTSIDE_GRAPH = 2000;
+
+    /**
+     * Parents of commits the graph does not cover
+     */
+    interface ParentSource {
+        List<String> parents(String commit) throws IOException;
+    }
+
+    private ReachabilityWalker() {
+    }
+
+    /**
+     * @param refs ref names mapped to the commits they point to, searched in iteration order
+     * @return the first ref whose history contains {@code target}, or {@code null} if none does
+     * @throws IOException if commits outside the graph cannot be read or there are more than
+     *                     {@link #MAX_COMMITS_OUTSIDE_GRAPH} of them on the way
+     */
+    static String findContainingRef(CommitGraph graph, Map<String, String> refs, String target, ParentSource outside) throws IOException {
+        for (Map.Entry<String, String> ref : refs.entrySet()) {
+            if (target.equals(ref.getValue())) {
+                return ref.getKey();
+            }
+        }
+
+        int targetPosition = graph.find(target);
+        int targetGeneration = targetPosition != CommitGraph.NOT_FOUND ? graph.generation(targetPosition) : Integer.MAX_VALUE;
+        // Shared by all tips: a commit that did not lead to the target from one tip will not from another
+        BitSet visited = new BitSet(graph.size());
+        Set<String> visitedOutside = new HashSet<>();
+        Deque<String> outsideQueue = new ArrayDeque<>();
+        int[] stack = new int[64];
+
+        for (Map.Entry<String, String> ref : refs.entrySet()) {
+            int size = 0;
+            int tip = graph.find(ref.getValue());
+            if (tip != CommitGraph.NOT_FOUND) {
+                stack[size++] = tip;
+            } else {
+                outsideQueue.push(ref.getValue());
+            }
+
+            while (size > 0 || !outsideQueue.isEmpty()) {
+                if (!outsideQueue.isEmpty()) {
+                    String commit = outsideQueue.pop();
+                    if (commit.equals(target)) {
+                        return ref.getKey();
+                    }
+                    if (!visitedOutside.add(commit)) {
+                        continue;
+                    }
+                    if (visitedOutside.size() > MAX_COMMITS_OUTSIDE_GRAPH) {
+                        throw new IOException("More than " + MAX_COMMITS_OUTSIDE_GRAPH + " commits are not in the commit-graph");
+                    }
+                    for (String parent : outside.parents(commit)) {
+                        int position = graph.find(parent);
+                        if (position == CommitGraph.NOT_FOUND) {
+                            outsideQueue.push(parent);
+                        } else {
+                            if (size == stack.length) {
+                                stack = Arrays.copyOf(stack, size * 2);
+                            }
+                            stack[size++] = position;
+                        }
+                    }
+                    continue;
+                }
+
+                int position = stack[--size];
+                if (position == targetPosition) {
+                    return ref.getKey();
+                }
+                // Graph commits cannot reach commits outside the graph, nor commits of the same or a higher generation
+                if (visited.get(position) || targetPosition == CommitGraph.NOT_FOUND || graph.generation(position) <= targetGeneration) {
+                    continue;
+                }
+                visited.set(position);
+                for (int parent : graph.parents(position)) {
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = parent;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.dvcs.repo.VcsRepositoryManager;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.colors.EditorColorsListener;
+import com.intellij.openapi.editor.colors.EditorColorsManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.IconLoader;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.messages.MessageBusConnection;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import git4idea.repo.GitRepositoryManager;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-project cache of everything {@link RenameCurrentCommitAction#update} and {@link UndoRenameAction#update}
+ * need, so presentation updates are plain field reads. Entries are invalidated on Git repository change events,
+ * renames, {@code .git/HEAD} changes, root mapping changes and editor switches; undo entries also when the undo
+ * history changes.
+ * <p>
+ * Every value carries the generation it was computed under, and invalidation bumps the generation first, so a value
+ * computed concurrently with an invalidation and stored after it is never read.
+ */
+@Service(Service.Level.PROJECT)
+final class RenameActionStateCache implements Disposable {
+    private static final Icon ICON_FOR_DARK_THEME = IconLoader.getIcon("/icons/rename_icon_light.svg", RenameActionStateCache.class);
+    private static final Icon ICON_FOR_LIGHT_THEME = IconLoader.getIcon("/icons/rename_icon_dark.svg", RenameActionStateCache.class);
+
+    private final Project project;
+    private final GitRepositoryManager repositoryManager;
+    private final Map<GitRepository, Stamped<Boolean>> enablement = new ConcurrentHashMap<>();
+    private final Map<GitRepository, Stamped<RenameUndoHistory.Entry>> undoable = new ConcurrentHashMap<>();
+    private final AtomicLong repositoryGeneration = new AtomicLong();
+    private final AtomicLong defaultRepositoryGeneration = new AtomicLong();
+
+    private volatile Icon icon = currentThemeIcon();
+    // null until resolved; the resolved repository itself may be null
+    private volatile Stamped<GitRepository> defaultRepository;
+
+    RenameActionStateCache(Project project) {
+        this.project = project;
+        this.repositoryManager = GitUtil.getRepositoryManager(project);
+
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(GitRepository.GIT_REPO_CHANGE, this::invalidate);
+        connection.subscribe(RenameCommitListener.TOPIC, (repo, before, after) -> invalidate(repo));
+        connection.subscribe(VcsRepositoryManager.VCS_REPOSITORY_MAPPING_UPDATED, this::invalidateAll);
+        connection.subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerListener() {
+            @Override
+            public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+                invalidateDefaultRepository();
+            }
+        });
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends @NotNull VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    if (isHeadFile(event.getPath())) {
+                        invalidateAll();
+                        return;
+                    }
+                }
+            }
+        });
+
+        ApplicationManager.getApplication().getMessageBus().connect(this)
+                .subscribe(EditorColorsManager.TOPIC, (EditorColorsListener) scheme -> icon = currentThemeIcon());
+    }
+
+    static RenameActionStateCache getInstance(Project project) {
+        return project.getService(RenameActionStateCache.class);
+    }
+
+    Icon getIcon() {
+        return icon;
+    }
+
+    /**
+     * Returns whether the action can run for the repository of the given context file (or the default one)
+     */
+    boolean isEnabled(VirtualFile contextFile) {
+        GitRepository repo = resolveRepository(contextFile);
+        if (repo == null) {
+            return false;
+        }
+
+        long currentGeneration = repositoryGeneration.get();
+        Stamped<Boolean> cached = enablement.get(repo);
+        if (cached != null && cached.generation == currentGeneration) {
+            return cached.value;
+        }
+
+        boolean enabled = repo.getCurrentRevision() != null && repo.getState() == GitRepository.State.NORMAL;
+        enablement.put(repo, new Stamped<>(currentGeneration, enabled));
+        return enabled;
+    }
+
+    /**
+     * Returns the rename {@link UndoRenameAction} would undo in the repository of the given context file (or the
+     * default one), or {@code null} if there is none. The answer may be stale by one event; the action checks the
+     * branch on disk again before moving it.
+     */
+    RenameUndoHistory.Entry getUndoable(VirtualFile contextFile) {
+        GitRepository repo = resolveRepository(contextFile);
+        if (repo == null) {
+            return null;
+        }
+
+        RenameUndoHistory history = RenameUndoHistory.getInstance(project);
+        // Entries are recorded after the rename is published, so the history's count is part of the stamp; both
+        // counters only grow, so their sum stays the same only while neither changes
+        long currentGeneration = repositoryGeneration.get() + history.getModificationCount();
+        Stamped<RenameUndoHistory.Entry> cached = undoable.get(repo);
+        if (cached != null && cached.generation == currentGeneration) {
+            return cached.value;
+        }
+
+        RenameUndoHistory.Entry entry = history.findUndoable(repo);
+        undoable.put(repo, new Stamped<>(currentGeneration, entry));
+        return entry;
+    }
+
+    private GitRepository resolveRepository(VirtualFile contextFile) {
+        GitRepository repo = contextFile != null ? repositoryManager.getRepositoryForFileQuick(contextFile) : null;
+        if (repo == null) {
+            repo = getDefaultRepository();
+        }
+        return repo == null || repo.isDisposed() ? null : repo;
+    }
+
+    private GitRepository getDefaultRepository() {
+        long currentGeneration = defaultRepositoryGeneration.get();
+        Stamped<GitRepository> cached = defaultRepository;
+        if (cached != null && cached.generation == currentGeneration) {
+            return cached.value;
+        }
+
+        GitRepository resolved = RenameCurrentCommitAction.findRepository(project, null, false);
+        defaultRepository = new Stamped<>(currentGeneration, resolved);
+        return resolved;
+    }
+
+    private void invalidate(GitRepository repo) {
+        repositoryGeneration.incrementAndGet();
+        enablement.remove(repo);
+        undoable.remove(repo);
+    }
+
+    private void invalidateDefaultRepository() {
+        defaultRepositoryGeneration.incrementAndGet();
+    }
+
+    private void invalidateAll() {
+        repositoryGeneration.incrementAndGet();
+        defaultRepositoryGeneration.incrementAndGet();
+        enablement.clear();
+        undoable.clear();
+    }
+
+    private static boolean isHeadFile(String path) {
+        return path.endsWith("/HEAD") && path.contains("/.git");
+    }
+
+    private static Icon currentThemeIcon() {
+        return EditorColorsManager.getInstance().isDarkEditor() ? ICON_FOR_DARK_THEME : ICON_FOR_LIGHT_THEME;
+    }
+
+    @Override
+    public void dispose() {
+        enablement.clear();
+        undoable.clear();
+        defaultRepository = null;
+    }
+
+    /**
+     * A cached value and the generation it was computed under
+     */
+    private static final class Stamped<T> {
+        private final long generation;
+        private final T value;
+
+        Stamped(long generation, T value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nls;
+
+import javax.swing.*;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Settings page under Version Control for the commit message rules
+ */
+public class RenameCommitConfigurable implements Configurable {
+    private JSpinner summaryMaxLength;
+    private JBCheckBox conventionalCommits;
+    private JBTextField ticketPattern;
+    private JSpinner bodyWrapWidth;
+    private JBCheckBox checkTrailers;
+    private JSpinner gitTimeout;
+    private JSpinner hookTimeout;
+    private JBCheckBox warnIfPushed;
+    private JBCheckBox updateSuperprojects;
+
+    @Override
+    public @Nls String getDisplayName() {
+        return "Rename Current Commit";
+    }
+
+    @Override
+    public JComponent createComponent() {
+        summaryMaxLength = new JSpinner(new SpinnerNumberModel(CommitMessageRules.DEFAULT_SUMMARY_LENGTH, 0, 1000, 1));
+        conventionalCommits = new JBCheckBox("Require Conventional Commits summary (type(scope): description)");
+        ticketPattern = new JBTextField();
+        ticketPattern.getEmptyText().setText("e.g. [A-Z]+-\\d+");
+        bodyWrapWidth = new JSpinner(new SpinnerNumberModel(0, 0, 1000, 1));
+        checkTrailers = new JBCheckBox("Check trailer syntax (Key: value)");
+        gitTimeout = new JSpinner(new SpinnerNumberModel(30, 0, 3600, 5));
+        hookTimeout = new JSpinner(new SpinnerNumberModel(300, 0, 3600, 10));
+        warnIfPushed = new JBCheckBox("Warn when the commit is already on a remote-tracking branch", true);
+        updateSuperprojects = new JBCheckBox("After renaming a submodule commit, amend the superproject commit that records it");
+
+        return FormBuilder.createFormBuilder()
+                .addLabeledComponent("Maximum summary length (0 to disable):", summaryMaxLength)
+                .addLabeledComponent("Ticket ID prefix pattern:", ticketPattern)
+                .addLabeledComponent("Body wrap width (0 to disable):", bodyWrapWidth)
+                .addComponent(conventionalCommits)
+                .addComponent(checkTrailers)
+                .addSeparator()
+                .addLabeledComponent("Git command timeout, seconds (0 for none):", gitTimeout)
+                .addLabeledComponent("Commit with hooks timeout, seconds (0 for none):", hookTimeout)
+                .addSeparator()
+                .addComponent(warnIfPushed)
+                .addComponent(updateSuperprojects)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+    }
+
+    @Override
+    public boolean isModified() {
+        RenameCommitSettings.State state = RenameCommitSettings.getInstance().getState();
+        return state.summaryMaxLength != (int) summaryMaxLength.getValue()
+                || state.conventionalCommits != conventionalCommits.isSelected()
+                || !Objects.equals(state.ticketPattern, ticketPattern.getText().trim())
+                || state.bodyWrapWidth != (int) bodyWrapWidth.getValue()
+                || state.checkTrailers != checkTrailers.isSelected()
+                || state.gitTimeoutSeconds != (int) gitTimeout.getValue()
+                || state.hookTimeoutSeconds != (int) hookTimeout.getValue()
+                || state.warnIfPushed != warnIfPushed.isSelected()
+                || state.updateSuperprojects != updateSuperprojects.isSelected();
+    }
+
+    @Override
+    public void apply() throws ConfigurationException {
+        String pattern = ticketPattern.getText().trim();
+        try {
+            Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            throw new ConfigurationException("Invalid ticket ID pattern: " + e.getDescription());
+        }
+
+        RenameCommitSettings.State state = RenameCommitSettings.getInstance().getState();
+        state.summaryMaxLength = (int) summaryMaxLength.getValue();
+        state.conventionalCommits = conventionalCommits.isSelected();
+        state.ticketPattern = pattern;
+        state.bodyWrapWidth = (int) bodyWrapWidth.getValue();
+        state.checkTrailers = checkTrailers.isSelected();
+        state.gitTimeoutSeconds = (int) gitTimeout.getValue();
+        state.hookTimeoutSeconds = (int) hookTimeout.getValue();
+        state.warnIfPushed = warnIfPushed.isSelected();
+        state.updateSuperprojects = updateSuperprojects.isSelected();
+    }
+
+    @Override
+    public void reset() {
+        RenameCommitSettings.State state = RenameCommitSettings.getInstance().getState();
+        summaryMaxLength.setValue(state.summaryMaxLength);
+        conventionalCommits.setSelected(state.conventionalCommits);
+        ticketPattern.setText(state.ticketPattern);
+        bodyWrapWidth.setValue(state.bodyWrapWidth);
+        checkTrailers.setSelected(state.checkTrailers);
+        gitTimeout.setValue(state.gitTimeoutSeconds);
+        hookTimeout.setValue(state.hookTimeoutSeconds);
+        warnIfPushed.setSelected(state.warnIfPushed);
+        updateSuperprojects.setSelected(state.updateSuperprojects);
+    }
+
+    @Override
+    public void disposeUIResource() {
+        summaryMaxLength = null;
+        conventionalCommits = null;
+        ticketPattern = null;
+        bodyWrapWidth = null;
+        checkTrailers = null;
+        gitTimeout = null;
+        hookTimeout = null;
+        warnIfPushed = null;
+        updateSuperprojects = null;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Applies one commit message to HEAD of several Git roots, renaming them in parallel.
+ */
+public class RenameCommitInRootsAction extends AnAction {
+
+    @Override
+    public void update(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        event.getPresentation().setEnabled(project != null
+                && GitUtil.getRepositoryManager(project).getRepositories().size() > 1);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        if (project == null) {
+            return;
+        }
+
+        List<GitRepository> repositories = GitUtil.getRepositoryManager(project).getRepositories().stream()
+                .filter(repo -> repo.getCurrentRevision() != null && repo.getState() == GitRepository.State.NORMAL)
+                .sorted((a, b) -> a.getRoot().getPresentableUrl().compareTo(b.getRoot().getPresentableUrl()))
+                .collect(Collectors.toList());
+        if (repositories.isEmpty()) {
+            RenameCurrentCommitAction.showError(project, "No Git roots with a commit on a branch to rename");
+            return;
+        }
+
+        GitRepository current = RenameCurrentCommitAction.findRepository(project, event, false);
+        RenameCurrentCommitAction.runBackgroundTask(project, "Reading commit messages", indicator -> {
+            Map<GitRepository, String> messages = readHeadMessages(repositories);
+            String initialMessage = messages.getOrDefault(current, messages.get(repositories.get(0)));
+            ApplicationManager.getApplication().invokeLater(
+                    () -> showDialog(project, repositories, messages, initialMessage != null ? initialMessage : ""),
+                    ModalityState.defaultModalityState());
+        });
+    }
+
+    private void showDialog(Project project, List<GitRepository> repositories, Map<GitRepository, String> messages, String initialMessage) {
+        MultiRootRenameDialog dialog = new MultiRootRenameDialog(project, repositories, messages, initialMessage);
+        if (dialog.showAndGet()) {
+            List<GitRepository> selected = dialog.getSelectedRepositories();
+            String message = dialog.getCommitMessage();
+            RenameCurrentCommitAction.runBackgroundTask(project, "Renaming commits", indicator -> {
+                List<RenameResult> results = RenameCommitService.getInstance(project).renameHeads(selected, message, indicator).join();
+                showResults(project, results);
+                RenameCurrentCommitAction.updateSuperprojects(project, results, indicator);
+            });
+        }
+    }
+
+    private static Map<GitRepository, String> readHeadMessages(List<GitRepository> repositories) {
+        Map<GitRepository, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (GitRepository repo : repositories) {
+            futures.put(repo, CompletableFuture.supplyAsync(
+                    () -> RenameCurrentCommitAction.getCurrentCommitMessage(repo),
+                    AppExecutorUtil.getAppExecutorService()));
+        }
+
+        Map<GitRepository, String> messages = new LinkedHashMap<>();
+        futures.forEach((repo, future) -> {
+            String message = future.join();
+            if (message != null) {
+                messages.put(repo, message);
+            }
+        });
+        return messages;
+    }
+
+    private static void showResults(Project project, List<RenameResult> results) {
+        List<RenameResult> failures = results.stream().filter(result -> !result.isRenamed()).collect(Collectors.toList());
+        results.forEach(result -> result.getWarnings().forEach(warning -> RenameCurrentCommitAction.showError(project,
+                result.getRepository().getRoot().getPresentableUrl() + ": " + warning)));
+        if (failures.isEmpty()) {
+            RenameCurrentCommitAction.showSuccess(project);
+            return;
+        }
+
+        StringBuilder report = new StringBuilder()
+                .append("Renamed ").append(results.size() - failures.size()).append(" of ").append(results.size()).append(" roots.\n\nFailed:\n");
+        failures.forEach(result ->
+                report.append(result.getRepository().getRoot().getPresentableUrl()).append(": ").append(result.getError()).append('\n'));
+
+        if (!ApplicationManager.getApplication().isUnitTestMode()) {
+            ApplicationManager.getApplication().invokeLater(
+                    () -> Messages.showWarningDialog(project, report.toString().trim(), "Rename Last Commit"),
+                    ModalityState.defaultModalityState());
+        }
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+}
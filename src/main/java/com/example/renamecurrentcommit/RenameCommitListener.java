@@ -0,0 +1,16 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.util.messages.Topic;
+import git4idea.repo.GitRepository;
+
+/**
+ * Notified on the project message bus when the plugin has moved the current branch to a rewritten commit.
+ * <p>
+ * Published after the repository state has been re-read and {@link GitRepository#GIT_REPO_CHANGE} was sent, so
+ * listeners see the new HEAD through {@link GitRepository#getCurrentRevision()}.
+ */
+public interface RenameCommitListener {
+    Topic<RenameCommitListener> TOPIC = Topic.create("Rename Current Commit", RenameCommitListener.class);
+
+    void headRewritten(GitRepository repo, String before, String after);
+}
@@ -0,0 +1,432 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous entry point for renaming and rewording commits, without any UI.
+ * <p>
+ * Renames of one repository run one at a time, in submission order, even across projects; renames of different
+ * repositories run in parallel (see {@link RenameQueue}). HEAD renames that are still waiting when another rename of
+ * the same HEAD arrives, from any project that opened the worktree, are coalesced into one amend with the latest
+ * message, which completes all their futures.
+ * The returned futures always complete normally with a {@link RenameResult}. Cancelling a future, or the progress
+ * indicator passed in, kills the running git process and rolls the repository back; a coalesced rename stops only
+ * once all the requests it serves are cancelled. After renaming submodule
+ * commits, {@link #updateSuperprojects} makes their superprojects record the new commits.
+ */
+@Service(Service.Level.PROJECT)
+public final class RenameCommitService implements Disposable {
+    private static final Logger LOG = Logger.getInstance(RenameCommitService.class);
+
+    private volatile boolean disposed;
+
+    public static RenameCommitService getInstance(Project project) {
+        return project.getService(RenameCommitService.class);
+    }
+
+    /**
+     * Replaces the message of the HEAD commit
+     *
+     * @param includeStaged whether staged changes become part of the commit; otherwise they are kept staged
+     */
+    public CompletableFuture<RenameResult> renameHead(@NotNull GitRepository repo, @NotNull String message, boolean includeStaged) {
+        return renameHead(repo, message, includeStaged, null);
+    }
+
+    /**
+     * @param indicator receives progress text and is checked for cancellation, or {@code null}
+     */
+    public CompletableFuture<RenameResult> renameHead(@NotNull GitRepository repo, @NotNull String message, boolean includeStaged,
+                                                      @Nullable ProgressIndicator indicator) {
+        return submit(new QueuedRename(repo, indicator, GitPlumbing.headRevision(repo), includeStaged, (progress, warnings) ->
+                RenamePipeline.renameHead(repo, message, includeStaged, progress, warnings)));
+    }
+
+    /**
+     * Replaces the message of {@code commit}, which must be HEAD or one of its ancestors, re-parenting its descendants
+     */
+    public CompletableFuture<RenameResult> reword(@NotNull GitRepository repo, @NotNull String commit, @NotNull String message) {
+        return reword(repo, commit, message, null);
+    }
+
+    public CompletableFuture<RenameResult> reword(@NotNull GitRepository repo, @NotNull String commit, @NotNull String message,
+                                                  @Nullable ProgressIndicator indicator) {
+        return submit(new QueuedRename(repo, indicator, null, false, (progress, warnings) ->
+                RenamePipeline.reword(repo, commit, message, progress)));
+    }
+
+    /**
+     * Applies one message to HEAD of every repository, keeping staged changes out of the commits
+     *
+     * @return one result per repository, in the given order
+     */
+    public CompletableFuture<List<RenameResult>> renameHeads(@NotNull Collection<GitRepository> repositories, @NotNull String message) {
+        return renameHeads(repositories, message, null);
+    }
+
+    /**
+     * @param indicator receives the overall fraction and is checked for cancellation, or {@code null}
+     */
+    public CompletableFuture<List<RenameResult>> renameHeads(@NotNull Collection<GitRepository> repositories, @NotNull String message,
+                                                             @Nullable ProgressIndicator indicator) {
+        List<CompletableFuture<RenameResult>> futures = new ArrayList<>(repositories.size());
+        List<ProgressIndicator> rootIndicators = new ArrayList<>(repositories.size());
+        AtomicInteger finished = new AtomicInteger();
+        if (indicator != null) {
+            indicator.setIndeterminate(false);
+        }
+        for (GitRepository repo : repositories) {
+            // Each root gets its own indicator: parallel renames must not overwrite each other's progress text
+            ProgressIndicator rootIndicator = new EmptyProgressIndicator();
+            CompletableFuture<RenameResult> future = renameHead(repo, message, false, rootIndicator);
+            if (indicator != null) {
+                future.thenRun(() -> {
+                    int done = finished.incrementAndGet();
+                    indicator.setFraction((double) done / repositories.size());
+                    indicator.setText("Renamed " + done + " of " + repositories.size() + " roots");
+                    indicator.setText2(repo.getRoot().getPresentableUrl());
+                });
+            }
+            futures.add(future);
+            rootIndicators.add(rootIndicator);
+        }
+
+        // Cancelling the indicators rather than the futures lets every root report whether it was renamed after all
+        CompletableFuture<List<RenameResult>> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+        ScheduledFuture<?> cancellationWatch = indicator == null ? null : AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+            if (indicator.isCanceled()) {
+                rootIndicators.forEach(ProgressIndicator::cancel);
+            }
+        }, CancellableGitRunner.POLL_INTERVAL_MS, CancellableGitRunner.POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        all.whenComplete((results, error) -> {
+            if (cancellationWatch != null) {
+                cancellationWatch.cancel(false);
+            }
+            if (all.isCancelled()) {
+                rootIndicators.forEach(ProgressIndicator::cancel);
+            }
+        });
+        return all;
+    }
+
+    /**
+     * Makes superprojects record renamed submodule commits. Every superproject whose HEAD records the old commit of
+     * a renamed submodule gets that HEAD rewritten to record the new one, see {@link SuperprojectUpdater}, and so on
+     * up to the outermost superproject. Each superproject is rewritten once, after all of its renamed submodules,
+     * with all their gitlinks in one pass; superprojects in independent subtrees are updated in parallel.
+     *
+     * @param renamed results of renames of any repositories, e.g. from {@link #renameHeads}
+     * @return one result per superproject whose HEAD was rewritten or could not be, innermost first
+     */
+    public CompletableFuture<List<RenameResult>> updateSuperprojects(@NotNull Collection<RenameResult> renamed) {
+        Map<GitRepository, RenameResult> ownResults = new HashMap<>();
+        Map<GitRepository, List<GitRepository>> submodules = new LinkedHashMap<>();
+        Deque<GitRepository> pending = new ArrayDeque<>();
+        for (RenameResult result : renamed) {
+            ownResults.put(result.getRepository(), result);
+            pending.push(result.getRepository());
+        }
+        while (!pending.isEmpty()) {
+            GitRepository submodule = pending.pop();
+            GitRepository superproject = SuperprojectUpdater.findSuperproject(submodule);
+            if (superproject == null) {
+                continue;
+            }
+            List<GitRepository> siblings = submodules.computeIfAbsent(superproject, key -> new ArrayList<>());
+            if (siblings.isEmpty()) {
+                pending.push(superproject);
+            }
+            if (!siblings.contains(submodule)) {
+                siblings.add(submodule);
+            }
+        }
+
+        List<CompletableFuture<RenameResult>> updates = new ArrayList<>();
+        Map<GitRepository, CompletableFuture<RenameResult>> heads = new HashMap<>();
+        for (GitRepository superproject : submodules.keySet()) {
+            headChange(superproject, ownResults, submodules, heads, updates);
+        }
+        return CompletableFuture.allOf(updates.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> updates.stream()
+                        .map(CompletableFuture::join)
+                        .filter(result -> result != null && !(result.isRenamed() && Objects.equals(result.getBefore(), result.getAfter())))
+                        .toList());
+    }
+
+    /**
+     * How HEAD of {@code repo} changes overall: its own rename, if any, followed by recording the renames of its
+     * submodules. Gitlink updates are added to {@code updates} children first.
+     */
+    private CompletableFuture<RenameResult> headChange(GitRepository repo, Map<GitRepository, RenameResult> ownResults,
+                                                       Map<GitRepository, List<GitRepository>> submodules,
+                                                       Map<GitRepository, CompletableFuture<RenameResult>> heads,
+                                                       List<CompletableFuture<RenameResult>> updates) {
+        CompletableFuture<RenameResult> known = heads.get(repo);
+        if (known != null) {
+            return known;
+        }
+        RenameResult own = ownResults.get(repo);
+        List<GitRepository> children = submodules.get(repo);
+        if (children == null) {
+            CompletableFuture<RenameResult> unchanged = CompletableFuture.completedFuture(own);
+            heads.put(repo, unchanged);
+            return unchanged;
+        }
+
+        List<CompletableFuture<RenameResult>> childChanges = new ArrayList<>(children.size());
+        for (GitRepository child : children) {
+            childChanges.add(headChange(child, ownResults, submodules, heads, updates));
+        }
+        CompletableFuture<RenameResult> update = CompletableFuture.allOf(childChanges.toArray(new CompletableFuture[0]))
+                .thenCompose(ignored -> {
+                    Map<String, TreeRewriter.Replacement> gitlinks = new LinkedHashMap<>();
+                    for (int i = 0; i < children.size(); i++) {
+                        RenameResult change = childChanges.get(i).join();
+                        if (change != null && change.isRenamed() && change.getBefore() != null && change.getAfter() != null
+                                && !change.getBefore().equals(change.getAfter())) {
+                            gitlinks.put(SuperprojectUpdater.gitlinkPath(repo, children.get(i)),
+                                    new TreeRewriter.Replacement(change.getBefore(), change.getAfter()));
+                        }
+                    }
+                    if (gitlinks.isEmpty()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // Queued in the superproject's own lane, behind its own rename if there is one
+                    return submit(new QueuedRename(repo, null, null, false, (progress, warnings) ->
+                            SuperprojectUpdater.updateGitlinks(repo, gitlinks, progress, warnings)));
+                });
+        updates.add(update);
+
+        CompletableFuture<RenameResult> change = update.thenApply(result -> combine(own, result));
+        heads.put(repo, change);
+        return change;
+    }
+
+    /**
+     * A rename followed by a gitlink update of the same repository, as seen by its superproject
+     */
+    private static RenameResult combine(@Nullable RenameResult own, @Nullable RenameResult update) {
+        if (update == null || !update.isRenamed()) {
+            return own;
+        }
+        if (own == null || !own.isRenamed()) {
+            return update;
+        }
+        List<String> warnings = new ArrayList<>(own.getWarnings());
+        warnings.addAll(update.getWarnings());
+        return RenameResult.renamed(own.getRepository(), own.getBefore(), update.getAfter(), warnings);
+    }
+
+    private CompletableFuture<RenameResult> submit(QueuedRename rename) {
+        CompletableFuture<RenameResult> result = rename.waiters.get(0);
+        if (disposed || !RenameQueue.getInstance().submit(rename.repo, rename)) {
+            result.complete(RenameResult.cancelled(rename.repo, rename.repo.getCurrentRevision(), List.of()));
+        }
+        return result;
+    }
+
+    private static RenameResult run(GitRepository repo, ProgressIndicator progress, Operation operation) {
+        String before = GitPlumbing.headRevision(repo);
+        List<String> warnings = new ArrayList<>();
+        String[] after = new String[1];
+        VcsException[] failure = new VcsException[1];
+        try {
+            ProgressManager.getInstance().executeProcessUnderProgress(() -> {
+                try {
+                    after[0] = operation.run(progress, warnings);
+                } catch (VcsException e) {
+                    failure[0] = e;
+                }
+            }, progress);
+        } catch (ProcessCanceledException e) {
+            return RenameResult.cancelled(repo, before, warnings);
+        } catch (RuntimeException e) {
+            LOG.warn("Rename failed in " + repo.getRoot().getPresentableUrl(), e);
+            return RenameResult.failed(repo, before, e, warnings);
+        }
+        return failure[0] != null
+                ? RenameResult.failed(repo, before, failure[0], warnings)
+                : RenameResult.renamed(repo, before, after[0], warnings);
+    }
+
+    @Override
+    public void dispose() {
+        // Running renames finish, including their rollback; queued ones complete as cancelled
+        disposed = true;
+    }
+
+    /**
+     * A rename waiting in the repository lane, together with every request it serves
+     */
+    private final class QueuedRename extends RenameQueue.Job {
+        private final GitRepository repo;
+        // HEAD when a HEAD rename was requested; null for operations that are never coalesced
+        private final @Nullable String expectedHead;
+        // Git directory of the worktree whose HEAD is renamed, the same for every project that opened it
+        private final @Nullable Path headDirectory;
+        private final boolean includeStaged;
+        // Mutated only under the lane lock before the job starts
+        private final List<CompletableFuture<RenameResult>> waiters = new ArrayList<>(1);
+        private final List<ProgressIndicator> callers = new ArrayList<>(1);
+        private Operation operation;
+
+        private QueuedRename(GitRepository repo, @Nullable ProgressIndicator indicator, @Nullable String expectedHead,
+                             boolean includeStaged, Operation operation) {
+            this.repo = repo;
+            this.expectedHead = expectedHead;
+            this.headDirectory = expectedHead != null ? headDirectory(repo) : null;
+            this.includeStaged = includeStaged;
+            this.operation = operation;
+
+            CompletableFuture<RenameResult> result = new CompletableFuture<>();
+            ProgressIndicator own = indicator != null ? indicator : new EmptyProgressIndicator();
+            // A cancelled future stays cancelled; the pipeline sees the indicator and rolls back
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    own.cancel();
+                }
+            });
+            waiters.add(result);
+            callers.add(own);
+        }
+
+        /**
+         * Takes over a later rename of the same HEAD, also when it comes from another project that opened the same
+         * worktree: the latest message wins, progress goes to every caller. Other worktrees share the lane but have
+         * a HEAD and index of their own, so their renames are never coalesced with this one.
+         */
+        @Override
+        boolean absorb(RenameQueue.Job later) {
+            if (!(later instanceof QueuedRename other) || expectedHead == null
+                    || !Objects.equals(headDirectory, other.headDirectory)
+                    || !expectedHead.equals(other.expectedHead) || includeStaged != other.includeStaged) {
+                return false;
+            }
+            operation = other.operation;
+            waiters.addAll(other.waiters);
+            callers.addAll(other.callers);
+            LOG.debug("Coalesced rename of " + expectedHead + " in " + repo.getRoot().getPresentableUrl());
+            return true;
+        }
+
+        @Override
+        void run() {
+            List<CompletableFuture<RenameResult>> pending = waiters.stream().filter(waiter -> !waiter.isDone()).toList();
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (disposed) {
+                RenameResult cancelled = RenameResult.cancelled(repo, repo.getCurrentRevision(), List.of());
+                pending.forEach(waiter -> waiter.complete(cancelled));
+                return;
+            }
+            if (callers.size() == 1) {
+                RenameResult result = RenameCommitService.run(repo, callers.get(0), operation);
+                pending.forEach(waiter -> waiter.complete(result));
+                return;
+            }
+
+            // No single caller may stop a rename the others still wait for
+            MergedIndicator merged = new MergedIndicator(callers);
+            ScheduledFuture<?> cancellationWatch = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+                if (callers.stream().allMatch(ProgressIndicator::isCanceled)) {
+                    merged.cancel();
+                }
+            }, 0, CancellableGitRunner.POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            RenameResult result;
+            try {
+                result = RenameCommitService.run(repo, merged, operation);
+            } finally {
+                cancellationWatch.cancel(false);
+            }
+            pending.forEach(waiter -> waiter.complete(result));
+        }
+    }
+
+    private static Path headDirectory(GitRepository repo) {
+        try {
+            return GitPlumbing.getGitDirectory(repo).toAbsolutePath().normalize();
+        } catch (VcsException e) {
+            return repo.getRoot().toNioPath();
+        }
+    }
+
+    /**
+     * Indicator of a coalesced rename, cancelled by the rename's cancellation watch; text and fraction are passed
+     * on to every caller still waiting
+     */
+    private static final class MergedIndicator extends ProgressIndicatorBase {
+        private final List<ProgressIndicator> callers;
+
+        MergedIndicator(List<ProgressIndicator> callers) {
+            this.callers = callers;
+        }
+
+        @Override
+        public void setText(String text) {
+            super.setText(text);
+            forEach(caller -> caller.setText(text));
+        }
+
+        @Override
+        public void setText2(String text) {
+            super.setText2(text);
+            forEach(caller -> caller.setText2(text));
+        }
+
+        @Override
+        public void setFraction(double fraction) {
+            super.setFraction(fraction);
+            forEach(caller -> caller.setFraction(fraction));
+        }
+
+        @Override
+        public void setIndeterminate(boolean indeterminate) {
+            super.setIndeterminate(indeterminate);
+            forEach(caller -> caller.setIndeterminate(indeterminate));
+        }
+
+        private void forEach(Consumer<ProgressIndicator> update) {
+            for (ProgressIndicator caller : callers) {
+                if (!caller.isCanceled()) {
+                    update.accept(caller);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        String run(ProgressIndicator indicator, List<String> warnings) throws VcsException;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application-wide settings of the plugin, persisted in {@code renameCurrentCommit.xml}
+ */
+@Service(Service.Level.APP)
+@State(name = "RenameCurrentCommitSettings", storages = @Storage("renameCurrentCommit.xml"))
+public final class RenameCommitSettings implements PersistentStateComponent<RenameCommitSettings.State> {
+    private State state = new State();
+
+    static RenameCommitSettings getInstance() {
+        return ApplicationManager.getApplication().getService(RenameCommitSettings.class);
+    }
+
+    @Override
+    public @NotNull State getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        this.state = state;
+    }
+
+    /**
+     * Rule set for the current commit message settings; compiled once per distinct configuration
+     */
+    CommitMessageRules.RuleSet getRuleSet() {
+        State current = state;
+        return CommitMessageRules.compile(new CommitMessageRules.Config(current.summaryMaxLength,
+                current.conventionalCommits, current.ticketPattern, current.bodyWrapWidth, current.checkTrailers));
+    }
+
+    /**
+     * Longest time a git command that cannot run hooks may take, or 0 for no limit
+     */
+    long getGitTimeoutMillis() {
+        return TimeUnit.SECONDS.toMillis(Math.max(0, state.gitTimeoutSeconds));
+    }
+
+    /**
+     * Longest time a commit, including its hooks, may take, or 0 for no limit
+     */
+    long getHookTimeoutMillis() {
+        return TimeUnit.SECONDS.toMillis(Math.max(0, state.hookTimeoutSeconds));
+    }
+
+    /**
+     * Whether the rename dialog warns when the commit is already on a remote-tracking branch
+     */
+    boolean isWarnIfPushed() {
+        return state.warnIfPushed;
+    }
+
+    /**
+     * Whether renaming a submodule commit also rewrites the superproject commits that record it
+     */
+    boolean isUpdateSuperprojects() {
+        return state.updateSuperprojects;
+    }
+
+    public static final class State {
+        public int summaryMaxLength = CommitMessageRules.DEFAULT_SUMMARY_LENGTH;
+        public boolean conventionalCommits;
+        public String ticketPattern = "";
+        public int bodyWrapWidth;
+        public boolean checkTrailers;
+        public int gitTimeoutSeconds = 30;
+        public int hookTimeoutSeconds = 300;
+        public boolean warnIfPushed = true;
+        public boolean updateSuperprojects;
+    }
+}
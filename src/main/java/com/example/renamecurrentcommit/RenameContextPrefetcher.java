@@ -0,0 +1,211 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Computes everything the rename dialog needs (detached state, staged changes, HEAD message) ahead of time.
+ * <p>
+ * The probes run concurrently and are refreshed speculatively whenever HEAD or the index of a repository
+ * that was renamed in before changes. Results are keyed by what HEAD points to (branch and revision) and by the
+ * modification time, size and file key of the index, so a stale context is never shown.
+ */
+@Service(Service.Level.PROJECT)
+final class RenameContextPrefetcher implements Disposable {
+    private final Project project;
+    private final Executor executor = AppExecutorUtil.getAppExecutorService();
+    private final Map<GitRepository, Entry> entries = new ConcurrentHashMap<>();
+
+    RenameContextPrefetcher(Project project) {
+        this.project = project;
+
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(GitRepository.GIT_REPO_CHANGE, this::prefetchIfTracked);
+        connection.subscribe(RenameCommitListener.TOPIC, (repo, before, after) -> prefetchIfTracked(repo));
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends @NotNull VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    if (event.getPath().endsWith("/index") && event.getPath().contains("/.git/")) {
+                        entries.keySet().forEach(RenameContextPrefetcher.this::prefetchIfTracked);
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    static RenameContextPrefetcher getInstance(Project project) {
+        return project.getService(RenameContextPrefetcher.class);
+    }
+
+    /**
+     * Returns the context if it has already been computed for the current HEAD and index, without waiting for the
+     * probes. Reads HEAD and stats the index, so it must not be called on the EDT.
+     */
+    RenameContext getIfReady(GitRepository repo) {
+        Entry entry = entries.get(repo);
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            return null;
+        }
+        return entry.key.equals(Key.read(repo)) ? entry.future.join() : null;
+    }
+
+    /**
+     * Returns the context for the current HEAD and index, starting the probes if nothing up to date is cached
+     */
+    CompletableFuture<RenameContext> getContext(GitRepository repo) {
+        Key key = Key.read(repo);
+
+        Entry entry = entries.get(repo);
+        if (entry != null && entry.key.equals(key) && !entry.future.isCompletedExceptionally()) {
+            return entry.future;
+        }
+
+        Entry fresh = new Entry(key, probe(repo, key));
+        entries.put(repo, fresh);
+        // A message that could not be read is retried on the next request rather than served until HEAD moves
+        fresh.future.thenAccept(context -> {
+            if (context.getCommitMessage() == null) {
+                entries.remove(repo, fresh);
+            }
+        });
+        return fresh.future;
+    }
+
+    private void prefetchIfTracked(GitRepository repo) {
+        if (!entries.containsKey(repo) || repo.isDisposed() || project.isDisposed()) {
+            return;
+        }
+        getContext(repo);
+    }
+
+    private CompletableFuture<RenameContext> probe(GitRepository repo, Key key) {
+        // Taken from the HEAD read for the key, so the cached answer cannot disagree with what it is keyed by
+        boolean detached = key.headRead ? key.headRef == null : repo.getState() == GitRepository.State.DETACHED;
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> staged = CompletableFuture.supplyAsync(
+                () -> RenamePipeline.hasStagedChanges(repo), executor);
+        CompletableFuture<String> message = CompletableFuture.supplyAsync(
+                () -> RenameCurrentCommitAction.getCurrentCommitMessage(repo), executor);
+        return staged.thenCombine(message, (hasStaged, commitMessage) -> {
+            RenameTimings.record(RenameTimings.Phase.PROBE, System.nanoTime() - start);
+            return new RenameContext(detached, hasStaged, commitMessage);
+        });
+    }
+
+    @Override
+    public void dispose() {
+        entries.values().forEach(entry -> entry.future.cancel(false));
+        entries.clear();
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final CompletableFuture<RenameContext> future;
+
+        Entry(Key key, CompletableFuture<RenameContext> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+
+    /**
+     * State a context was computed for. The index is identified by its file key and size as well as its
+     * modification time, since a rewrite within the timestamp granularity, or a rename over it, keeps the time.
+     */
+    private static final class Key {
+        private final boolean headRead;
+        private final String headRef;
+        private final String headRevision;
+        private final FileTime indexModified;
+        private final long indexSize;
+        private final Object indexFileKey;
+
+        private Key(boolean headRead, String headRef, String headRevision, FileTime indexModified, long indexSize,
+                    Object indexFileKey) {
+            this.headRead = headRead;
+            this.headRef = headRef;
+            this.headRevision = headRevision;
+            this.indexModified = indexModified;
+            this.indexSize = indexSize;
+            this.indexFileKey = indexFileKey;
+        }
+
+        static Key read(GitRepository repo) {
+            HeadRefReader.Head head = GitPlumbing.readHead(repo);
+            boolean headRead = head != null;
+            String ref = headRead ? head.getRef() : null;
+            String revision = headRead && head.getRevision() != null ? head.getRevision() : repo.getCurrentRevision();
+            try {
+                BasicFileAttributes index = Files.readAttributes(
+                        GitPlumbing.getGitDirectory(repo).resolve("index"), BasicFileAttributes.class);
+                return new Key(headRead, ref, revision, index.lastModifiedTime(), index.size(), index.fileKey());
+            } catch (IOException | VcsException e) {
+                return new Key(headRead, ref, revision, null, -1, null);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return headRead == other.headRead
+                    && indexSize == other.indexSize
+                    && Objects.equals(headRef, other.headRef)
+                    && Objects.equals(headRevision, other.headRevision)
+                    && Objects.equals(indexModified, other.indexModified)
+                    && Objects.equals(indexFileKey, other.indexFileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(headRef, headRevision, indexModified, indexSize);
+        }
+    }
+
+    static final class RenameContext {
+        private final boolean detached;
+        private final boolean hasStagedChanges;
+        private final String commitMessage;
+
+        RenameContext(boolean detached, boolean hasStagedChanges, String commitMessage) {
+            this.detached = detached;
+            this.hasStagedChanges = hasStagedChanges;
+            this.commitMessage = commitMessage;
+        }
+
+        boolean isDetached() {
+            return detached;
+        }
+
+        boolean hasStagedChanges() {
+            return hasStagedChanges;
+        }
+
+        String getCommitMessage() {
+            return commitMessage;
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.example.renamecurrentcommit;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
-import com.intellij.openapi.editor.colors.EditorColorsManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -12,15 +11,9 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.Key;
-import com.intellij.openapi.util.IconLoader;
-import com.intellij.openapi.vcs.VcsException;
 import com.intellij.openapi.vfs.VirtualFile;
 import git4idea.GitUtil;
 import git4idea.branch.GitBranchUtil;
-import git4idea.commands.Git;
-import git4idea.commands.GitCommand;
-import git4idea.commands.GitCommandResult;
-import git4idea.commands.GitLineHandler;
 import git4idea.repo.GitRepository;
 import git4idea.repo.GitRepositoryManager;
 import org.jetbrains.annotations.NotNull;
@@ -39,28 +32,21 @@ public class RenameCurrentCommitAction extends AnAction {
 
     @Override
     public void update(@NotNull AnActionEvent event) {
-        // Dynamic icon based on IDE theme
-        boolean isDarkTheme = EditorColorsManager.getInstance().isDarkEditor();
-        String iconPath = isDarkTheme ? "/icons/rename_icon_light.svg" : "/icons/rename_icon_dark.svg";
-        event.getPresentation().setIcon(IconLoader.getIcon(iconPath, getClass()));
-
-        // Enable/disable action based on git repository state
         Project project = event.getProject();
         if (project == null) {
             event.getPresentation().setEnabled(false);
             return;
         }
 
-        GitRepository repo = findRepository(project, event, false);
-        boolean enabled = repo != null
-                && repo.getCurrentRevision() != null
-                && !isRepositoryInConflictingState(repo);
-
-        event.getPresentation().setEnabled(enabled);
+        // Icon, resolved repository and enablement are precomputed and invalidated by Git change events
+        RenameActionStateCache cache = RenameActionStateCache.getInstance(project);
+        event.getPresentation().setIcon(cache.getIcon());
+        event.getPresentation().setEnabled(cache.isEnabled(event.getData(CommonDataKeys.VIRTUAL_FILE)));
     }
 
     @Override
     public void actionPerformed(@NotNull AnActionEvent event) {
+        long invokedAt = System.nanoTime();
         Project project = event.getProject();
         if (project == null) {
             showError(null, "No project found");
@@ -91,173 +77,105 @@ public class RenameCurrentCommitAction extends AnAction {
             return;
         }
 
-        runBackgroundTask(project, "Checking git repository status", indicator -> {
-            try {
-                if (isHeadDetached(repo)) {
-                    showError(project, "Cannot rename commit in detached HEAD state");
-                    return;
-                }
-
-                boolean hasStagedChanges = hasStagedChanges(repo);
-                String commitMessage = getCurrentCommitMessage(repo);
-
-                if (commitMessage == null || commitMessage.isEmpty()) {
-                    showError(project, "Failed to retrieve current commit message");
-                    return;
+        // Start streaming history for completions now, so suggestions are ready when the dialog opens
+        CommitHistoryService.getInstance(project).getIndex(repo);
+
+        // Prefetched context lets the dialog open without any git process on the critical path; checking that it
+        // still matches HEAD and the index touches the disk, so it happens on a pooled thread
+        RenameContextPrefetcher prefetcher = RenameContextPrefetcher.getInstance(project);
+        ModalityState modality = ModalityState.defaultModalityState();
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            RenameContextPrefetcher.RenameContext ready = prefetcher.getIfReady(repo);
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (ready != null) {
+                    showCommitDialog(event, repo, ready, invokedAt);
+                } else {
+                    loadContextAndShowDialog(event, repo, prefetcher, invokedAt);
                 }
+            }, modality, project.getDisposed());
+        });
+    }
 
-                ApplicationManager.getApplication().invokeLater(() -> {
-                    showCommitDialog(event, repo, commitMessage, hasStagedChanges);
-                }, ModalityState.defaultModalityState());
-
+    private void loadContextAndShowDialog(AnActionEvent event, GitRepository repo, RenameContextPrefetcher prefetcher, long invokedAt) {
+        Project project = event.getProject();
+        runBackgroundTask(project, "Checking git repository status", indicator -> {
+            try {
+                RenameContextPrefetcher.RenameContext context = prefetcher.getContext(repo).get();
+                ApplicationManager.getApplication().invokeLater(
+                        () -> showCommitDialog(event, repo, context, invokedAt),
+                        ModalityState.defaultModalityState());
             } catch (Exception e) {
                 showError(project, "Error accessing Git repository: " + e.getMessage());
             }
         });
     }
 
+    private void showCommitDialog(AnActionEvent event, GitRepository repo, RenameContextPrefetcher.RenameContext context, long invokedAt) {
+        if (context.isDetached()) {
+            showError(event.getProject(), "Cannot rename commit in detached HEAD state");
+            return;
+        }
+
+        String commitMessage = context.getCommitMessage();
+        if (commitMessage == null || commitMessage.isEmpty()) {
+            showError(event.getProject(), "Failed to retrieve current commit message");
+            return;
+        }
+
+        showCommitDialog(event, repo, commitMessage, context.hasStagedChanges(), invokedAt);
+    }
+
     /**
      * Shows the commit message dialog
      */
-    private void showCommitDialog(AnActionEvent event, GitRepository repo, String commitMessage, boolean hasStagedChanges) {
-        CommitMessageDialog dialog = createCommitDialog(event.getProject(), commitMessage, hasStagedChanges);
+    private void showCommitDialog(AnActionEvent event, GitRepository repo, String commitMessage, boolean hasStagedChanges, long invokedAt) {
+        Project project = event.getProject();
+        CommitMessageDialog dialog = createCommitDialog(project, repo, commitMessage, hasStagedChanges);
+        dialog.recordTimeToInteractive(invokedAt);
+        if (RenameCommitSettings.getInstance().isWarnIfPushed()) {
+            dialog.checkPushed(() -> PushedCommitDetector.getInstance(project)
+                    .findRemoteBranchContaining(repo, GitPlumbing.headRevision(repo)));
+        }
         if (dialog.showAndGet()) {
             amendCommit(event, repo, dialog.getCommitMessage(), dialog.shouldIncludeStaged());
         }
         Disposer.dispose(dialog);
     }
 
-    protected CommitMessageDialog createCommitDialog(Project project, String commitMessage, boolean hasStagedChanges) {
-        return new CommitMessageDialog(project, commitMessage, hasStagedChanges);
+    protected CommitMessageDialog createCommitDialog(Project project, GitRepository repo, String commitMessage, boolean hasStagedChanges) {
+        return new CommitMessageDialog(project, commitMessage, hasStagedChanges, CommitHistoryService.getInstance(project).getIndex(repo));
     }
 
     /**
      * Amends the most recent commit with new message
      */
     private void amendCommit(AnActionEvent event, GitRepository repo, String newMessage, boolean includeStaged) {
-        runBackgroundTask(event.getProject(), "Renaming commit", indicator -> {
-            try {
-                indicator.setText("Preparing commit amendment...");
-
-                boolean needStash = !includeStaged && hasStagedChanges(repo);
-                boolean stashCreated = false;
-
-                try {
-                    if (needStash) {
-                        indicator.setText("Temporarily stashing staged changes...");
-                        stashCreated = stashStagedChanges(repo);
-                    }
-
-                    indicator.setText("Amending commit...");
-                    GitLineHandler handler = new GitLineHandler(
-                            event.getProject(),
-                            repo.getRoot(),
-                            GitCommand.COMMIT
-                    );
-                    handler.addParameters("--amend", "-m", newMessage);
-                    GitCommandResult result = Git.getInstance().runCommand(handler);
-
-                    if (!result.success()) {
-                        throw new VcsException(result.getErrorOutputAsJoinedString());
-                    }
-
-                    repo.update();
-
-                    if (!ApplicationManager.getApplication().isUnitTestMode()) {
-                        ApplicationManager.getApplication().invokeLater(() ->
-                                Messages.showInfoMessage(
-                                        event.getProject(),
-                                        "Commit message successfully updated!",
-                                        "Success"
-                                ), ModalityState.defaultModalityState());
-                    }
-                } finally {
-                    if (stashCreated) {
-                        indicator.setText("Restoring staged changes...");
-                        try {
-                            unstashStagedChanges(repo);
-                        } catch (VcsException e) {
-                            showError(event.getProject(), "Commit renamed, but failed to restore staged changes: " + e.getMessage());
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                showError(event.getProject(), "Failed to rename commit: " + e.getMessage());
-            }
+        Project project = event.getProject();
+        runBackgroundTask(project, "Renaming commit", indicator -> {
+            RenameCommitService service = RenameCommitService.getInstance(project);
+            RenameResult result = service.renameHead(repo, newMessage, includeStaged, indicator).join();
+            showResult(project, result, "Failed to rename commit: ");
+            updateSuperprojects(project, List.of(result), indicator);
         });
     }
 
     /**
-     * Temporarily stash staged changes so they don't get included in the amend
-     */
-    private boolean stashStagedChanges(GitRepository repo) throws VcsException {
-        GitLineHandler handler = new GitLineHandler(
-                repo.getProject(),
-                repo.getRoot(),
-                GitCommand.STASH
-        );
-        handler.addParameters("push", "--staged", "--message", "Temporary stash for commit rename");
-        GitCommandResult result = Git.getInstance().runCommand(handler);
-
-        if (result.success()) {
-            return true;
-        }
-
-        // Fallback for Git versions without --staged support
-        GitLineHandler fallback = new GitLineHandler(
-                repo.getProject(),
-                repo.getRoot(),
-                GitCommand.STASH
-        );
-        fallback.addParameters("push", "--message", "Temporary stash for commit rename");
-        GitCommandResult fallbackResult = Git.getInstance().runCommand(fallback);
-        if (!fallbackResult.success()) {
-            throw new VcsException(fallbackResult.getErrorOutputAsJoinedString());
-        }
-        return true;
-    }
-
-    /**
-     * Restore the stashed changes after amend
+     * Lets superprojects record renamed submodule commits if enabled in the settings, reporting only problems
      */
-    private void unstashStagedChanges(GitRepository repo) throws VcsException {
-        GitLineHandler handler = new GitLineHandler(
-                repo.getProject(),
-                repo.getRoot(),
-                GitCommand.STASH
-        );
-        handler.addParameters("pop", "--index");
-        GitCommandResult result = Git.getInstance().runCommand(handler);
-        if (!result.success()) {
-            throw new VcsException(result.getErrorOutputAsJoinedString());
+    static void updateSuperprojects(Project project, List<RenameResult> results, ProgressIndicator indicator) {
+        if (!RenameCommitSettings.getInstance().isUpdateSuperprojects() || results.stream().noneMatch(RenameResult::isRenamed)) {
+            return;
         }
-    }
-
-    /**
-     * Checks if there are staged changes in the repository
-     */
-    private boolean hasStagedChanges(GitRepository repo) {
-        try {
-            GitLineHandler handler = new GitLineHandler(
-                    repo.getProject(),
-                    repo.getRoot(),
-                    GitCommand.DIFF
-            );
-            handler.addParameters("--cached", "--name-only");
-            String output = Git.getInstance().runCommand(handler).getOutputOrThrow();
-            return !output.trim().isEmpty();
-        } catch (Exception e) {
-            return false; // Assume no staged changes on error
+        indicator.setText("Updating superprojects...");
+        for (RenameResult update : RenameCommitService.getInstance(project).updateSuperprojects(results).join()) {
+            String root = update.getRepository().getRoot().getPresentableUrl();
+            update.getWarnings().forEach(warning -> showError(project, root + ": " + warning));
+            if (update.getStatus() == RenameResult.Status.FAILED) {
+                showError(project, "Failed to record the renamed submodule commit in " + root + ": " + update.getError());
+            }
         }
     }
 
-    /**
-     * Checks if the HEAD is detached
-     */
-    private boolean isHeadDetached(GitRepository repo) {
-        return repo.getState() == GitRepository.State.DETACHED;
-    }
-
     /**
      * Checks if repository is in rebasing state
      */
@@ -266,26 +184,19 @@ public class RenameCurrentCommitAction extends AnAction {
     }
 
     /**
-     * Retrieves the current commit message from Git log
+     * Retrieves the current commit message through the pooled object reader
      */
-    private String getCurrentCommitMessage(GitRepository repo) {
-        try {
-            GitLineHandler handler = new GitLineHandler(
-                    repo.getProject(),
-                    repo.getRoot(),
-                    GitCommand.LOG
-            );
-            handler.addParameters("-1", "--pretty=%B");
-            return Git.getInstance()
-                    .runCommand(handler)
-                    .getOutputOrThrow()
-                    .trim();
+    static String getCurrentCommitMessage(GitRepository repo) {
+        try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.MESSAGE_PROBE)) {
+            String head = GitPlumbing.headRevision(repo);
+            byte[] commit = GitPlumbing.readObject(repo, "commit", head != null ? head : "HEAD");
+            return RawCommit.parse(commit).getStrippedMessage();
         } catch (Exception e) {
             return null;
         }
     }
 
-    private GitRepository findRepository(Project project, AnActionEvent event, boolean allowSelection) {
+    static GitRepository findRepository(Project project, AnActionEvent event, boolean allowSelection) {
         GitRepositoryManager manager = GitUtil.getRepositoryManager(project);
 
         VirtualFile contextFile = event != null ? event.getData(CommonDataKeys.VIRTUAL_FILE) : null;
@@ -335,7 +246,7 @@ public class RenameCurrentCommitAction extends AnAction {
         return chosen;
     }
 
-    private GitRepository selectRepository(Project project, List<GitRepository> repositories, boolean allowSelection) {
+    private static GitRepository selectRepository(Project project, List<GitRepository> repositories, boolean allowSelection) {
         GitRepository current = GitBranchUtil.getCurrentRepository(project);
         if (current != null) {
             return current;
@@ -392,7 +303,7 @@ public class RenameCurrentCommitAction extends AnAction {
         return selected[0];
     }
 
-    private void runBackgroundTask(Project project, String title, Consumer<ProgressIndicator> task) {
+    static void runBackgroundTask(Project project, String title, Consumer<ProgressIndicator> task) {
         if (ApplicationManager.getApplication().isUnitTestMode()) {
             try {
                 ApplicationManager.getApplication()
@@ -412,10 +323,33 @@ public class RenameCurrentCommitAction extends AnAction {
         });
     }
 
+    /**
+     * Reports the outcome of a single rename; cancellations are not reported
+     */
+    static void showResult(Project project, RenameResult result, String failurePrefix) {
+        result.getWarnings().forEach(warning -> showError(project, warning));
+        if (result.isRenamed()) {
+            showSuccess(project);
+        } else if (result.getStatus() == RenameResult.Status.FAILED) {
+            showError(project, failurePrefix + result.getError());
+        }
+    }
+
+    static void showSuccess(Project project) {
+        if (!ApplicationManager.getApplication().isUnitTestMode()) {
+            ApplicationManager.getApplication().invokeLater(() ->
+                    Messages.showInfoMessage(
+                            project,
+                            "Commit message successfully updated!",
+                            "Success"
+                    ), ModalityState.defaultModalityState());
+        }
+    }
+
     /**
      * Shows error message in UI thread
      */
-    private void showError(Project project, String message) {
+    static void showError(Project project, String message) {
         ApplicationManager.getApplication().invokeLater(
                 () -> Messages.showErrorDialog(project, message, "Error"),
                 ModalityState.defaultModalityState()
@@ -0,0 +1,259 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.vcs.VcsException;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+import git4idea.repo.GitRepository;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The rename and reword pipelines, free of any UI. Callers are expected to go through {@link RenameCommitService},
+ * which schedules them per repository.
+ */
+final class RenamePipeline {
+    private static final Logger LOG = Logger.getInstance(RenamePipeline.class);
+
+    private RenamePipeline() {
+    }
+
+    /**
+     * Renames HEAD of one repository on the calling thread.
+     *
+     * @param warnings receives problems that did not stop the rename, e.g. staged changes that could not be restored
+     * @return the new HEAD commit
+     */
+    static String renameHead(GitRepository repo, String newMessage, boolean includeStaged, ProgressIndicator indicator,
+                             List<String> warnings) throws VcsException {
+        String before = GitPlumbing.headRevision(repo);
+        String branchRef = repo.getCurrentBranch() != null ? repo.getCurrentBranch().getFullName() : null;
+        try (RenameTimings.Span total = RenameTimings.start(RenameTimings.Phase.TOTAL, repo.getRoot().getPresentableUrl())) {
+            try {
+                String after = runRenamePhases(repo, branchRef, before, newMessage, includeStaged, indicator, warnings);
+                RenameUndoHistory.remember(repo, branchRef, before, after, newMessage);
+                return after;
+            } catch (VcsException | RuntimeException e) {
+                total.failed(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Rewords {@code target}, an ancestor of HEAD or HEAD itself, without touching the index or work tree
+     *
+     * @return the new HEAD commit
+     */
+    static String reword(GitRepository repo, String target, String newMessage, ProgressIndicator indicator) throws VcsException {
+        indicator.setText("Rewriting commit history...");
+        String before = GitPlumbing.headRevision(repo);
+        String branchRef = repo.getCurrentBranch() != null ? repo.getCurrentBranch().getFullName() : null;
+        String newHead = CommitRewriter.reword(repo, target, newMessage);
+        String after = RepositoryRefresher.headMoved(repo, branchRef, before, newHead);
+        RenameUndoHistory.remember(repo, branchRef, before, after, newMessage);
+        return after;
+    }
+
+    /**
+     * Runs the phases as one transaction: if any of them fails or is cancelled, the branch is moved back and
+     * stashed changes are restored before the exception is rethrown.
+     *
+     * @return the new HEAD commit
+     */
+    private static String runRenamePhases(GitRepository repo, String branchRef, String before, String newMessage,
+                                          boolean includeStaged, ProgressIndicator indicator, List<String> warnings) throws VcsException {
+        RenameTransaction transaction = new RenameTransaction(repo, branchRef, before);
+        boolean completed = false;
+        try {
+            String after = rewriteHead(repo, branchRef, before, newMessage, includeStaged, transaction, indicator);
+            completed = true;
+            return after;
+        } finally {
+            boolean succeeded = completed;
+            ProgressManager.getInstance().executeNonCancelableSection(
+                    () -> finishTransaction(repo, transaction, succeeded, indicator, warnings));
+        }
+    }
+
+    private static String rewriteHead(GitRepository repo, String branchRef, String before, String newMessage, boolean includeStaged,
+                                      RenameTransaction transaction, ProgressIndicator indicator) throws VcsException {
+        indicator.setText("Preparing commit amendment...");
+
+        boolean messageOnly = !includeStaged || !hasStagedChanges(repo);
+        if (messageOnly && CommitRewriter.canRewordInPlace(repo)) {
+            indicator.checkCanceled();
+            indicator.setText("Rewriting commit message...");
+            String newHead;
+            try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.REWORD)) {
+                newHead = CommitRewriter.rewordHead(repo, newMessage);
+            }
+            return RepositoryRefresher.headMoved(repo, branchRef, before, newHead);
+        }
+
+        boolean reusePreCommit = messageOnly && RenameRepositorySettings.getInstance(repo.getProject()).getHookPolicy(repo)
+                == RenameRepositorySettings.HookPolicy.REUSE_PRE_COMMIT;
+        if (reusePreCommit) {
+            indicator.checkCanceled();
+            indicator.setText("Running commit message hooks...");
+            boolean reworded;
+            try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.REWORD)) {
+                reworded = CommitHookRunner.rewordReusingPreCommit(repo, newMessage);
+            }
+            if (reworded) {
+                return RepositoryRefresher.headMoved(repo, branchRef, before, null);
+            }
+        }
+
+        if (!includeStaged && hasStagedChanges(repo)) {
+            indicator.checkCanceled();
+            indicator.setText("Temporarily stashing staged changes...");
+            transaction.beforeStash();
+            transaction.beforeIndexWrite();
+            try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.STASH)) {
+                transaction.stashFinished(stashStagedChanges(repo));
+            } catch (VcsException | RuntimeException e) {
+                transaction.stashInterrupted();
+                transaction.indexWriteInterrupted();
+                throw e;
+            }
+        }
+
+        indicator.checkCanceled();
+        indicator.setText("Amending commit...");
+        try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.AMEND)) {
+            GitLineHandler handler = new GitLineHandler(
+                    repo.getProject(),
+                    repo.getRoot(),
+                    GitCommand.COMMIT
+            );
+            // Through stdin rather than argv: no command line length limit and no extra copies of long messages
+            Charset encoding = GitPlumbing.commitEncoding(repo);
+            handler.addParameters("--amend", "-F", "-");
+            handler.setInputProcessor(stdin -> CommitMessageCodec.write(newMessage, encoding, stdin));
+            transaction.beforeIndexWrite();
+            GitCommandResult result;
+            try {
+                result = CancellableGitRunner.run(handler, RenameCommitSettings.getInstance().getHookTimeoutMillis());
+            } catch (VcsException | RuntimeException e) {
+                transaction.indexWriteInterrupted();
+                throw e;
+            }
+
+            if (!result.success()) {
+                throw new VcsException(result.getErrorOutputAsJoinedString());
+            }
+        }
+
+        String after = RepositoryRefresher.headMoved(repo, branchRef, before, null);
+        if (reusePreCommit) {
+            CommitHookRunner.recordPreCommitPassed(repo);
+        }
+        return after;
+    }
+
+    /**
+     * Rolls back a rename that did not complete, then restores stashed staged changes; runs non-cancellable.
+     * Stops without touching the repository if a stopped git command may have left the index locked.
+     */
+    private static void finishTransaction(GitRepository repo, RenameTransaction transaction, boolean completed,
+                                          ProgressIndicator indicator, List<String> warnings) {
+        Path indexLock = transaction.findIndexLockAfterInterruption();
+        if (indexLock != null) {
+            LOG.warn("Rollback in " + repo.getRoot().getPresentableUrl() + " stopped by " + indexLock);
+            warnings.add("Git was stopped and " + indexLock + " exists. Once no other git command is running, delete it"
+                    + (transaction.isStashCreated() ? " and restore the staged changes with 'git stash pop --index'" : "")
+                    + (completed ? "" : "; the branch may still point to the renamed commit"));
+            return;
+        }
+        if (!completed) {
+            try {
+                transaction.rollbackHead();
+            } catch (VcsException | RuntimeException e) {
+                LOG.warn("Cannot roll back rename in " + repo.getRoot().getPresentableUrl(), e);
+                warnings.add("Rename stopped, but the branch could not be moved back: " + e.getMessage());
+            }
+        }
+        if (transaction.isStashCreated()) {
+            indicator.setText("Restoring staged changes...");
+            try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.UNSTASH)) {
+                unstashStagedChanges(repo);
+            } catch (VcsException e) {
+                warnings.add((completed ? "Commit renamed" : "Rename stopped")
+                        + ", but failed to restore staged changes: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Temporarily stash staged changes so they don't get included in the amend
+     */
+    private static boolean stashStagedChanges(GitRepository repo) throws VcsException {
+        GitLineHandler handler = new GitLineHandler(
+                repo.getProject(),
+                repo.getRoot(),
+                GitCommand.STASH
+        );
+        handler.addParameters("push", "--staged", "--message", "Temporary stash for commit rename");
+        GitCommandResult result = CancellableGitRunner.run(handler);
+
+        if (result.success()) {
+            return !isNothingStashed(result);
+        }
+
+        // Fallback for Git versions without --staged support
+        GitLineHandler fallback = new GitLineHandler(
+                repo.getProject(),
+                repo.getRoot(),
+                GitCommand.STASH
+        );
+        fallback.addParameters("push", "--message", "Temporary stash for commit rename");
+        GitCommandResult fallbackResult = CancellableGitRunner.run(fallback);
+        if (!fallbackResult.success()) {
+            throw new VcsException(fallbackResult.getErrorOutputAsJoinedString());
+        }
+        return !isNothingStashed(fallbackResult);
+    }
+
+    /**
+     * {@code git stash push} succeeds without creating an entry when there is nothing to stash
+     */
+    private static boolean isNothingStashed(GitCommandResult result) {
+        return result.getOutputAsJoinedString().contains("No local changes to save");
+    }
+
+    /**
+     * Restore the stashed changes after amend
+     */
+    private static void unstashStagedChanges(GitRepository repo) throws VcsException {
+        GitLineHandler handler = new GitLineHandler(
+                repo.getProject(),
+                repo.getRoot(),
+                GitCommand.STASH
+        );
+        handler.addParameters("pop", "--index");
+        // Stopping it half-way would leave the index and work tree partly restored
+        GitCommandResult result = CancellableGitRunner.run(handler, 0);
+        if (!result.success()) {
+            throw new VcsException(result.getErrorOutputAsJoinedString());
+        }
+    }
+
+    /**
+     * Checks if there are staged changes in the repository
+     */
+    static boolean hasStagedChanges(GitRepository repo) {
+        try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.STAGED_PROBE)) {
+            return StagedChangeDetector.hasStagedChanges(repo);
+        } catch (VcsException e) {
+            LOG.warn("Cannot determine staged changes in " + repo.getRoot().getPresentableUrl(), e);
+            return true; // Offer the staged changes choice rather than silently amending them
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.repo.GitRepository;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Application-wide lanes that run rename jobs one at a time per repository.
+ * <p>
+ * Lanes are keyed by the common git directory, so the same repository opened in two projects, and all worktrees
+ * sharing one stash and one set of refs, never run two stash/amend/unstash sequences at once. Different
+ * repositories run in parallel on a bounded pool. A job waiting at the end of a lane may absorb a job submitted
+ * after it, see {@link Job#absorb}.
+ */
+@Service(Service.Level.APP)
+final class RenameQueue implements Disposable {
+    private static final int MAX_PARALLEL_RENAMES = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    private final ExecutorService pool = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+            "RenameCurrentCommit.Renames", MAX_PARALLEL_RENAMES);
+    private final Map<Path, Lane> lanes = new ConcurrentHashMap<>();
+
+    static RenameQueue getInstance() {
+        return ApplicationManager.getApplication().getService(RenameQueue.class);
+    }
+
+    /**
+     * Queues the job behind every earlier job of the repository, or hands it to the job still waiting last in line
+     * if that one absorbs it.
+     *
+     * @return {@code false} if the queue is shut down and the job will never run
+     */
+    boolean submit(GitRepository repo, Job job) {
+        Lane lane = lanes.computeIfAbsent(laneKey(repo), key -> new Lane(
+                AppExecutorUtil.createBoundedApplicationPoolExecutor("RenameCurrentCommit.Repository", pool, 1)));
+        synchronized (lane) {
+            Job waiting = lane.waiting;
+            if (waiting != null && waiting.absorb(job)) {
+                return true;
+            }
+            try {
+                lane.executor.execute(() -> {
+                    // Once started, a job takes no more requests; it sees everything absorbed before this point
+                    synchronized (lane) {
+                        if (lane.waiting == job) {
+                            lane.waiting = null;
+                        }
+                    }
+                    job.run();
+                });
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+            lane.waiting = job;
+        }
+        return true;
+    }
+
+    private static Path laneKey(GitRepository repo) {
+        try {
+            return GitPlumbing.getCommonDirectory(repo);
+        } catch (VcsException e) {
+            return repo.getRoot().toNioPath();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        lanes.values().forEach(lane -> lane.executor.shutdown());
+        pool.shutdown();
+    }
+
+    /**
+     * Unit of work in a lane
+     */
+    abstract static class Job {
+        /**
+         * Called, under the lane lock, on the last job of a lane that has not started yet when {@code later} is
+         * submitted to the same lane. Returning {@code true} means this job now also serves {@code later}, which is
+         * not queued.
+         */
+        boolean absorb(Job later) {
+            return false;
+        }
+
+        abstract void run();
+    }
+
+    private static final class Lane {
+        private final ExecutorService executor;
+        // Last submitted job until it starts; guarded by this
+        private Job waiting;
+
+        private Lane(ExecutorService executor) {
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.util.ui.FormBuilder;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.Nls;
+
+import javax.swing.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-repository hook policy for renames, under Version Control settings
+ */
+public class RenameRepositoryConfigurable implements Configurable {
+    private final Project project;
+    private final Map<GitRepository, ComboBox<RenameRepositorySettings.HookPolicy>> policies = new LinkedHashMap<>();
+
+    public RenameRepositoryConfigurable(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public @Nls String getDisplayName() {
+        return "Rename Current Commit Hooks";
+    }
+
+    @Override
+    public JComponent createComponent() {
+        FormBuilder form = FormBuilder.createFormBuilder()
+                .addComponent(new JLabel("<html>When a rename only changes the message, pre-commit results recorded for the same tree "
+                        + "can be reused; commit-msg, prepare-commit-msg and post-commit still run.</html>"));
+        policies.clear();
+        for (GitRepository repo : GitUtil.getRepositoryManager(project).getRepositories()) {
+            ComboBox<RenameRepositorySettings.HookPolicy> combo = new ComboBox<>(RenameRepositorySettings.HookPolicy.values());
+            policies.put(repo, combo);
+            form.addLabeledComponent(repo.getRoot().getPresentableUrl() + ":", combo);
+        }
+        return form.addComponentFillVertically(new JPanel(), 0).getPanel();
+    }
+
+    @Override
+    public boolean isModified() {
+        RenameRepositorySettings settings = RenameRepositorySettings.getInstance(project);
+        for (Map.Entry<GitRepository, ComboBox<RenameRepositorySettings.HookPolicy>> entry : policies.entrySet()) {
+            if (entry.getValue().getSelectedItem() != settings.getHookPolicy(entry.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void apply() {
+        RenameRepositorySettings settings = RenameRepositorySettings.getInstance(project);
+        policies.forEach((repo, combo) -> settings.setHookPolicy(repo, (RenameRepositorySettings.HookPolicy) combo.getSelectedItem()));
+    }
+
+    @Override
+    public void reset() {
+        RenameRepositorySettings settings = RenameRepositorySettings.getInstance(project);
+        policies.forEach((repo, combo) -> combo.setSelectedItem(settings.getHookPolicy(repo)));
+    }
+
+    @Override
+    public void disposeUIResource() {
+        policies.clear();
+    }
+}
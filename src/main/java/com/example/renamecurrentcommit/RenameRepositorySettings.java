@@ -0,0 +1,79 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-repository settings of the plugin, keyed by the repository root path
+ */
+@Service(Service.Level.PROJECT)
+@State(name = "RenameCurrentCommitRepositories", storages = @Storage(StoragePathMacros.WORKSPACE_FILE))
+public final class RenameRepositorySettings implements PersistentStateComponent<RenameRepositorySettings.State> {
+    private State state = new State();
+
+    /**
+     * How commit hooks are handled when a rename only changes the message
+     */
+    enum HookPolicy {
+        ALWAYS_RUN("Run all hooks"),
+        REUSE_PRE_COMMIT("Reuse pre-commit results for unchanged trees, run message hooks only");
+
+        private final String text;
+
+        HookPolicy(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    static RenameRepositorySettings getInstance(Project project) {
+        return project.getService(RenameRepositorySettings.class);
+    }
+
+    @Override
+    public synchronized @NotNull State getState() {
+        return state;
+    }
+
+    @Override
+    public synchronized void loadState(@NotNull State state) {
+        this.state = state;
+    }
+
+    synchronized HookPolicy getHookPolicy(GitRepository repo) {
+        String policy = state.hookPolicies.get(repo.getRoot().getPath());
+        if (policy != null) {
+            for (HookPolicy value : HookPolicy.values()) {
+                if (value.name().equals(policy)) {
+                    return value;
+                }
+            }
+        }
+        return HookPolicy.ALWAYS_RUN;
+    }
+
+    synchronized void setHookPolicy(GitRepository repo, HookPolicy policy) {
+        if (policy == HookPolicy.ALWAYS_RUN) {
+            state.hookPolicies.remove(repo.getRoot().getPath());
+        } else {
+            state.hookPolicies.put(repo.getRoot().getPath(), policy.name());
+        }
+    }
+
+    public static final class State {
+        public Map<String, String> hookPolicies = new HashMap<>();
+    }
+}
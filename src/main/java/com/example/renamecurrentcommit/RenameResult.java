@@ -0,0 +1,110 @@
+package com.example.renamecurrentcommit;
+
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Outcome of one rename or reword run by {@link RenameCommitService}.
+ * <p>
+ * Failures are reported here rather than by completing the future exceptionally, so batch callers get one result
+ * per repository.
+ */
+public final class RenameResult {
+
+    public enum Status {
+        /**
+         * The branch points to the rewritten commit
+         */
+        RENAMED,
+        /**
+         * Git or a hook refused the rename, or it timed out; the repository was rolled back
+         */
+        FAILED,
+        /**
+         * The rename was cancelled; the repository was rolled back
+         */
+        CANCELLED
+    }
+
+    private final GitRepository repository;
+    private final Status status;
+    private final String before;
+    private final String after;
+    private final String error;
+    private final Throwable cause;
+    private final List<String> warnings;
+
+    private RenameResult(GitRepository repository, Status status, String before, String after, String error,
+                         Throwable cause, List<String> warnings) {
+        this.repository = repository;
+        this.status = status;
+        this.before = before;
+        this.after = after;
+        this.error = error;
+        this.cause = cause;
+        this.warnings = List.copyOf(warnings);
+    }
+
+    static RenameResult renamed(GitRepository repository, String before, String after, List<String> warnings) {
+        return new RenameResult(repository, Status.RENAMED, before, after, null, null, warnings);
+    }
+
+    static RenameResult failed(GitRepository repository, String before, Throwable cause, List<String> warnings) {
+        return new RenameResult(repository, Status.FAILED, before, null, String.valueOf(cause.getMessage()), cause, warnings);
+    }
+
+    static RenameResult cancelled(GitRepository repository, String before, List<String> warnings) {
+        return new RenameResult(repository, Status.CANCELLED, before, null, "Cancelled", null, warnings);
+    }
+
+    public GitRepository getRepository() {
+        return repository;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isRenamed() {
+        return status == Status.RENAMED;
+    }
+
+    /**
+     * HEAD before the rename
+     */
+    public @Nullable String getBefore() {
+        return before;
+    }
+
+    /**
+     * HEAD after a successful rename
+     */
+    public @Nullable String getAfter() {
+        return after;
+    }
+
+    /**
+     * Why the rename did not happen, or {@code null} if it did
+     */
+    public @Nullable String getError() {
+        return error;
+    }
+
+    public @Nullable Throwable getCause() {
+        return cause;
+    }
+
+    /**
+     * Problems that did not decide the outcome, e.g. staged changes that could not be restored
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    @Override
+    public String toString() {
+        return repository.getRoot().getPresentableUrl() + ": " + status + (error != null ? " (" + error + ")" : "");
+    }
+}
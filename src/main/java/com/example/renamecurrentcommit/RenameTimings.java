@@ -0,0 +1,251 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-phase latency of renames: wall time, git processes and their exit codes.
+ * <p>
+ * Phases are measured with {@link Span}s. A span is current for the thread that opened it, so git invocations
+ * report to it via {@link #gitProcessFinished} without the span being passed around. Every closed span feeds a
+ * bounded histogram of its phase; closing a {@link Phase#TOTAL} span also writes one structured log line with
+ * the breakdown of that rename.
+ */
+final class RenameTimings {
+    private static final Logger LOG = Logger.getInstance(RenameTimings.class);
+    private static final int SAMPLES_PER_PHASE = 512;
+    private static final Map<Phase, PhaseHistogram> HISTOGRAMS = new EnumMap<>(Phase.class);
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    static {
+        for (Phase phase : Phase.values()) {
+            HISTOGRAMS.put(phase, new PhaseHistogram());
+        }
+    }
+
+    enum Phase {
+        /** Wall time until the staged-changes and message probes both finished */
+        PROBE,
+        STAGED_PROBE,
+        MESSAGE_PROBE,
+        STASH,
+        AMEND,
+        REWORD,
+        UNSTASH,
+        REPO_UPDATE,
+        UNDO,
+        /** Rewriting a superproject's HEAD to record renamed submodule commits */
+        GITLINK_UPDATE,
+        /** Whether the commit to rename is already on a remote-tracking branch */
+        PUSHED_CHECK,
+        /** From invoking the rename action until the message text area has focus and accepts input */
+        TIME_TO_INTERACTIVE,
+        TOTAL;
+
+        String id() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private RenameTimings() {
+    }
+
+    /**
+     * Starts timing a phase on the calling thread; close the span on the same thread
+     *
+     * @param label shown in the log line of a {@link Phase#TOTAL} span, e.g. the repository root
+     */
+    static Span start(Phase phase, String label) {
+        Span span = new Span(phase, label, CURRENT.get());
+        CURRENT.set(span);
+        return span;
+    }
+
+    static Span start(Phase phase) {
+        return start(phase, null);
+    }
+
+    /**
+     * Records a phase measured elsewhere, e.g. across several threads
+     */
+    static void record(Phase phase, long nanos) {
+        HISTOGRAMS.get(phase).add(nanos, List.of());
+    }
+
+    /**
+     * Attributes a finished git process to the span current on this thread, if any
+     */
+    static void gitProcessFinished(int exitCode) {
+        Span span = CURRENT.get();
+        if (span != null) {
+            span.exitCodes.add(exitCode);
+        }
+    }
+
+    /**
+     * p50/p95/p99 and git process statistics of every phase that has samples, as JSON
+     */
+    static String dumpJson() {
+        StringBuilder json = new StringBuilder("{\n  \"samplesPerPhase\": ").append(SAMPLES_PER_PHASE).append(",\n  \"phases\": {");
+        boolean first = true;
+        for (Map.Entry<Phase, PhaseHistogram> entry : HISTOGRAMS.entrySet()) {
+            String phaseJson = entry.getValue().toJson();
+            if (phaseJson != null) {
+                json.append(first ? "\n" : ",\n").append("    ").append(quote(entry.getKey().id())).append(": ").append(phaseJson);
+                first = false;
+            }
+        }
+        return json.append(first ? "}\n}" : "\n  }\n}").toString();
+    }
+
+    static void clear() {
+        HISTOGRAMS.values().forEach(PhaseHistogram::clear);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    static final class Span implements AutoCloseable {
+        private final Phase phase;
+        private final String label;
+        private final Span parent;
+        private final long startNanos = System.nanoTime();
+        private final List<Integer> exitCodes = new ArrayList<>();
+        private final List<Span> children = new ArrayList<>();
+        private long durationNanos;
+        private String outcome = "ok";
+
+        private Span(Phase phase, String label, Span parent) {
+            this.phase = phase;
+            this.label = label;
+            this.parent = parent;
+        }
+
+        /**
+         * Marks the phase as failed in the log line; the duration is still recorded
+         */
+        void failed(Throwable error) {
+            outcome = error.getClass().getSimpleName();
+        }
+
+        @Override
+        public void close() {
+            durationNanos = System.nanoTime() - startNanos;
+            if (parent != null) {
+                CURRENT.set(parent);
+                parent.children.add(this);
+            } else {
+                CURRENT.remove();
+            }
+            HISTOGRAMS.get(phase).add(durationNanos, allExitCodes(new ArrayList<>()));
+
+            if (phase == Phase.TOTAL) {
+                LOG.info("Rename timings " + toJson());
+            }
+        }
+
+        private List<Integer> allExitCodes(List<Integer> into) {
+            into.addAll(exitCodes);
+            for (Span child : children) {
+                child.allExitCodes(into);
+            }
+            return into;
+        }
+
+        private String toJson() {
+            StringBuilder json = new StringBuilder("{");
+            if (label != null) {
+                json.append("\"root\":").append(quote(label)).append(',');
+            }
+            json.append("\"phase\":").append(quote(phase.id()))
+                    .append(",\"outcome\":").append(quote(outcome))
+                    .append(",\"ms\":").append(millis(durationNanos))
+                    .append(",\"gitProcesses\":").append(allExitCodes(new ArrayList<>()).size())
+                    .append(",\"exitCodes\":").append(exitCodes);
+            if (!children.isEmpty()) {
+                json.append(",\"phases\":[");
+                for (int i = 0; i < children.size(); i++) {
+                    json.append(i > 0 ? "," : "").append(children.get(i).toJson());
+                }
+                json.append(']');
+            }
+            return json.append('}').toString();
+        }
+    }
+
+    /**
+     * Ring buffer of the latest durations of one phase plus lifetime git process counters
+     */
+    private static final class PhaseHistogram {
+        private final long[] samples = new long[SAMPLES_PER_PHASE];
+        private final Map<Integer, Integer> exitCodes = new TreeMap<>();
+        private long count;
+        private long gitProcesses;
+
+        synchronized void add(long nanos, List<Integer> codes) {
+            samples[(int) (count++ % samples.length)] = nanos;
+            gitProcesses += codes.size();
+            for (int code : codes) {
+                exitCodes.merge(code, 1, Integer::sum);
+            }
+        }
+
+        synchronized void clear() {
+            count = 0;
+            gitProcesses = 0;
+            exitCodes.clear();
+        }
+
+        synchronized String toJson() {
+            if (count == 0) {
+                return null;
+            }
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(sorted);
+
+            StringBuilder json = new StringBuilder("{\"count\": ").append(count)
+                    .append(", \"p50Ms\": ").append(millis(percentile(sorted, 50)))
+                    .append(", \"p95Ms\": ").append(millis(percentile(sorted, 95)))
+                    .append(", \"p99Ms\": ").append(millis(percentile(sorted, 99)))
+                    .append(", \"maxMs\": ").append(millis(sorted[sorted.length - 1]))
+                    .append(", \"gitProcesses\": ").append(gitProcesses)
+                    .append(", \"exitCodes\": {");
+            boolean first = true;
+            for (Map.Entry<Integer, Integer> entry : exitCodes.entrySet()) {
+                json.append(first ? "" : ", ").append(quote(String.valueOf(entry.getKey()))).append(": ").append(entry.getValue());
+                first = false;
+            }
+            return json.append("}}").toString();
+        }
+
+        /**
+         * Nearest-rank percentile of a sorted, non-empty sample
+         */
+        private static long percentile(long[] sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
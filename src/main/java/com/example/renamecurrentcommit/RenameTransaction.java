@@ -0,0 +1,106 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.vcs.VcsException;
+import git4idea.repo.GitRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Ref and stash state of one rename, so that a rename which fails or is cancelled half-way can be rolled back.
+ * <p>
+ * The branch is only moved back when it points to a rewrite of the original commit (same parents), so a commit
+ * made concurrently by someone else is never discarded. An {@code index.lock} found after a git command was
+ * stopped is never deleted, as another git process may hold it by then; the rollback stops and reports it.
+ */
+final class RenameTransaction {
+    private static final String STASH_REF = "refs/stash";
+
+    private final GitRepository repo;
+    private final String branchRef;
+    private final String before;
+    private String stashBefore;
+    private boolean stashCreated;
+    private Path indexLock;
+    private boolean indexWriteInterrupted;
+
+    RenameTransaction(GitRepository repo, String branchRef, String before) {
+        this.repo = repo;
+        this.branchRef = branchRef;
+        this.before = before;
+    }
+
+    /**
+     * Call right before stashing, so that an interrupted stash can be detected
+     */
+    void beforeStash() {
+        stashBefore = GitPlumbing.readRef(repo, STASH_REF);
+    }
+
+    void stashFinished(boolean created) {
+        stashCreated = created;
+    }
+
+    /**
+     * A killed {@code git stash push} may or may not have recorded its entry; the stash ref tells which
+     */
+    void stashInterrupted() {
+        String stash = GitPlumbing.readRef(repo, STASH_REF);
+        stashCreated = stash != null && !stash.equals(stashBefore);
+    }
+
+    boolean isStashCreated() {
+        return stashCreated;
+    }
+
+    /**
+     * Call right before a git command that locks the index
+     */
+    void beforeIndexWrite() {
+        try {
+            indexLock = GitPlumbing.getGitDirectory(repo).resolve("index.lock");
+        } catch (VcsException e) {
+            indexLock = null;
+        }
+        indexWriteInterrupted = false;
+    }
+
+    /**
+     * Call when the command announced with {@link #beforeIndexWrite} was stopped or failed
+     */
+    void indexWriteInterrupted() {
+        indexWriteInterrupted = true;
+    }
+
+    /**
+     * @return {@code index.lock} if it exists after the command announced with {@link #beforeIndexWrite} was
+     * stopped, otherwise {@code null}. Git removes its lock when terminated, so the file is either left by a
+     * forced kill or held by another git process; which one cannot be told, so it is only reported.
+     */
+    Path findIndexLockAfterInterruption() {
+        return indexWriteInterrupted && indexLock != null && Files.exists(indexLock) ? indexLock : null;
+    }
+
+    /**
+     * Moves the branch back to the commit it pointed to before the rename, if the rename got as far as moving it.
+     * Must run in a non-cancellable section.
+     */
+    void rollbackHead() throws VcsException {
+        HeadRefReader.Head head = GitPlumbing.readHead(repo);
+        if (branchRef == null || before == null || head == null || !branchRef.equals(head.getRef())) {
+            return;
+        }
+        String current = head.getRevision();
+        if (current == null || current.equals(before) || !isRewriteOfBefore(current)) {
+            return;
+        }
+        GitPlumbing.updateRef(repo, branchRef, before, current, "rename rolled back");
+        RepositoryRefresher.headMoved(repo, branchRef, current, before);
+    }
+
+    private boolean isRewriteOfBefore(String current) throws VcsException {
+        RawCommit rewritten = RawCommit.parse(GitPlumbing.readObject(repo, "commit", current));
+        RawCommit original = RawCommit.parse(GitPlumbing.readObject(repo, "commit", before));
+        return rewritten.getParents().equals(original.getParents());
+    }
+}
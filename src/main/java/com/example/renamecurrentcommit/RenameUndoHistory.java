@@ -0,0 +1,127 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers the branch tip before each rename, a few per repository, so a rename can be undone by moving the branch
+ * back instead of amending again. Persisted in the workspace file, so it survives IDE restarts.
+ */
+@Service(Service.Level.PROJECT)
+@State(name = "RenameCurrentCommitUndo", storages = @Storage(StoragePathMacros.WORKSPACE_FILE))
+public final class RenameUndoHistory implements PersistentStateComponent<RenameUndoHistory.State> {
+    static final int ENTRIES_PER_REPOSITORY = 10;
+
+    private State state = new State();
+    private volatile long modificationCount;
+
+    static RenameUndoHistory getInstance(Project project) {
+        return project.getService(RenameUndoHistory.class);
+    }
+
+    @Override
+    public synchronized @NotNull State getState() {
+        return state;
+    }
+
+    @Override
+    public synchronized void loadState(@NotNull State state) {
+        this.state = state;
+        modificationCount++;
+    }
+
+    /**
+     * Changes whenever an entry is added or removed, so cached answers of {@link #findUndoable} can be checked
+     */
+    long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Records the rename that just moved the current branch away from {@code before}, if it did
+     */
+    static void remember(GitRepository repo, String branchRef, String before, String after, String newMessage) {
+        if (branchRef == null || before == null || after == null || after.equals(before)) {
+            return;
+        }
+        getInstance(repo.getProject()).recorded(repo, branchRef, before, after, HeadRewriter.subjectOf(newMessage));
+    }
+
+    /**
+     * Records a rename that moved {@code branchRef} from {@code before} to {@code after}, dropping the oldest
+     * entry of the repository once the ring is full
+     */
+    synchronized void recorded(GitRepository repo, String branchRef, String before, String after, String subject) {
+        String root = repo.getRoot().getPath();
+        List<Entry> entries = state.entries;
+        int count = 0;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).root.equals(root) && ++count >= ENTRIES_PER_REPOSITORY) {
+                entries.remove(i);
+            }
+        }
+        entries.add(new Entry(root, branchRef, before, after, subject, System.currentTimeMillis()));
+        modificationCount++;
+    }
+
+    /**
+     * Returns the latest rename of the repository if the branch still points at the commit it created
+     */
+    synchronized Entry findUndoable(GitRepository repo) {
+        String head = GitPlumbing.headRevision(repo);
+        String branch = repo.getCurrentBranch() != null ? repo.getCurrentBranch().getFullName() : null;
+        Entry latest = latest(repo.getRoot().getPath());
+        if (latest == null || head == null || !head.equals(latest.after) || !latest.branchRef.equals(branch)) {
+            return null;
+        }
+        return latest;
+    }
+
+    synchronized void undone(Entry entry) {
+        state.entries.remove(entry);
+        modificationCount++;
+    }
+
+    private Entry latest(String root) {
+        for (int i = state.entries.size() - 1; i >= 0; i--) {
+            if (state.entries.get(i).root.equals(root)) {
+                return state.entries.get(i);
+            }
+        }
+        return null;
+    }
+
+    public static final class State {
+        public List<Entry> entries = new ArrayList<>();
+    }
+
+    public static final class Entry {
+        public String root = "";
+        public String branchRef = "";
+        public String before = "";
+        public String after = "";
+        public String subject = "";
+        public long timestamp;
+
+        public Entry() {
+        }
+
+        Entry(String root, String branchRef, String before, String after, String subject, long timestamp) {
+            this.root = root;
+            this.branchRef = branchRef;
+            this.before = before;
+            this.after = after;
+            this.subject = subject;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.diagnostic.Logger;
+import git4idea.repo.GitRepository;
+
+/**
+ * Brings the IDE up to date after the plugin moved the current branch.
+ * <p>
+ * git4idea has no public way to update a single ref of a {@link GitRepository}, so the repository state is re-read
+ * with a synchronous {@link GitRepository#update()}, which also publishes {@link GitRepository#GIT_REPO_CHANGE}.
+ * Callers see the new HEAD and branch state as soon as this returns. When HEAD on disk is what the rename should have
+ * produced, {@link RenameCommitListener#TOPIC} is published afterwards.
+ */
+final class RepositoryRefresher {
+    private static final Logger LOG = Logger.getInstance(RepositoryRefresher.class);
+
+    private RepositoryRefresher() {
+    }
+
+    /**
+     * @param branchRef     the branch the rename moved
+     * @param before        the commit the branch pointed to before the rename
+     * @param expectedAfter the commit the rename created, or {@code null} if only git knows it (e.g. after an amend)
+     * @return the commit HEAD points to now
+     */
+    static String headMoved(GitRepository repo, String branchRef, String before, String expectedAfter) {
+        try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.REPO_UPDATE)) {
+            HeadRefReader.Head head = GitPlumbing.readHead(repo);
+            repo.update();
+            if (!isExpected(repo, head, branchRef, before, expectedAfter)) {
+                LOG.debug("HEAD of " + repo.getRoot().getPresentableUrl() + " is not as expected after a rename");
+                return repo.getCurrentRevision();
+            }
+            String after = head.getRevision();
+            repo.getProject().getMessageBus().syncPublisher(RenameCommitListener.TOPIC).headRewritten(repo, before, after);
+            return after;
+        }
+    }
+
+    private static boolean isExpected(GitRepository repo, HeadRefReader.Head head, String branchRef, String before, String expectedAfter) {
+        if (head == null || branchRef == null || head.getRevision() == null || !branchRef.equals(head.getRef())) {
+            return false;
+        }
+        if (repo.getCurrentBranch() == null || !branchRef.equals(repo.getCurrentBranch().getFullName())) {
+            return false;
+        }
+        return expectedAfter != null ? expectedAfter.equals(head.getRevision()) : !head.getRevision().equals(before);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.vcs.log.CommitId;
+import com.intellij.vcs.log.VcsLogCommitSelection;
+import com.intellij.vcs.log.VcsLogDataKeys;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Git log action that rewords the selected commit without checking out or re-applying any of its descendants.
+ */
+public class RewordCommitAction extends AnAction {
+
+    @Override
+    public void update(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        CommitId commit = getSelectedCommit(event);
+        if (project == null || commit == null) {
+            event.getPresentation().setEnabled(false);
+            return;
+        }
+
+        GitRepository repo = GitUtil.getRepositoryManager(project).getRepositoryForRootQuick(commit.getRoot());
+        event.getPresentation().setEnabled(repo != null && repo.getState() == GitRepository.State.NORMAL);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        CommitId commit = getSelectedCommit(event);
+        if (project == null || commit == null) {
+            return;
+        }
+
+        GitRepository repo = GitUtil.getRepositoryManager(project).getRepositoryForRootQuick(commit.getRoot());
+        if (repo == null) {
+            RenameCurrentCommitAction.showError(project, "Cannot determine Git repository for this operation");
+            return;
+        }
+        if (repo.getState() != GitRepository.State.NORMAL) {
+            RenameCurrentCommitAction.showError(project, "Cannot reword commit while Git is performing another operation or HEAD is detached");
+            return;
+        }
+
+        startReword(project, repo, commit.getHash().asString());
+    }
+
+    /**
+     * Reads the message of {@code target}, lets the user edit it and rewords the commit in the background
+     */
+    void startReword(Project project, GitRepository repo, String target) {
+        RenameCurrentCommitAction.runBackgroundTask(project, "Reading commit message", indicator -> {
+            try {
+                String message = RawCommit.parse(GitPlumbing.readObject(repo, "commit", target)).getStrippedMessage();
+                ApplicationManager.getApplication().invokeLater(
+                        () -> showCommitDialog(project, repo, target, message),
+                        ModalityState.defaultModalityState());
+            } catch (Exception e) {
+                RenameCurrentCommitAction.showError(project, "Error accessing Git repository: " + e.getMessage());
+            }
+        });
+    }
+
+    private void showCommitDialog(Project project, GitRepository repo, String target, String message) {
+        CommitMessageDialog dialog = createCommitDialog(project, repo, message);
+        if (RenameCommitSettings.getInstance().isWarnIfPushed()) {
+            dialog.checkPushed(() -> PushedCommitDetector.getInstance(project).findRemoteBranchContaining(repo, target));
+        }
+        if (dialog.showAndGet()) {
+            reword(project, repo, target, dialog.getCommitMessage());
+        }
+        Disposer.dispose(dialog);
+    }
+
+    protected CommitMessageDialog createCommitDialog(Project project, GitRepository repo, String commitMessage) {
+        return new CommitMessageDialog(project, commitMessage, false, CommitHistoryService.getInstance(project).getIndex(repo));
+    }
+
+    private void reword(Project project, GitRepository repo, String target, String newMessage) {
+        RenameCurrentCommitAction.runBackgroundTask(project, "Rewording commit", indicator -> {
+            RenameResult result = RenameCommitService.getInstance(project).reword(repo, target, newMessage, indicator).join();
+            RenameCurrentCommitAction.showResult(project, result, "Failed to reword commit: ");
+            RenameCurrentCommitAction.updateSuperprojects(project, List.of(result), indicator);
+        });
+    }
+
+    private static CommitId getSelectedCommit(AnActionEvent event) {
+        VcsLogCommitSelection selection = event.getData(VcsLogDataKeys.VCS_LOG_COMMIT_SELECTION);
+        if (selection == null) {
+            return null;
+        }
+        List<CommitId> commits = selection.getCommits();
+        return commits.size() == 1 ? commits.get(0) : null;
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+}
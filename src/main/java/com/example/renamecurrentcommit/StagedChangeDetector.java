@@ -0,0 +1,71 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.vcs.VcsException;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+import git4idea.repo.GitRepository;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Detects whether the index differs from HEAD, reading {@code .git/index} directly when possible.
+ */
+final class StagedChangeDetector {
+
+    private StagedChangeDetector() {
+    }
+
+    static boolean hasStagedChanges(GitRepository repo) throws VcsException {
+        String head = GitPlumbing.headRevision(repo);
+        if (head != null) {
+            GitIndexReader.StagedState state = readIndex(repo, head);
+            if (state != GitIndexReader.StagedState.UNKNOWN) {
+                return state == GitIndexReader.StagedState.STAGED;
+            }
+        }
+        return askGit(repo);
+    }
+
+    private static GitIndexReader.StagedState readIndex(GitRepository repo, String head) throws VcsException {
+        return GitIndexReader.compareWithHead(GitPlumbing.getGitDirectory(repo), head,
+                GitPlumbing.readObject(repo, "commit", head), name -> readTree(repo, name));
+    }
+
+    /**
+     * Trees for the entry walk, read in-process or through the pooled {@code cat-file} process. A tree neither can
+     * supply ends the walk: a git process per tree would cost more than the single {@code git diff} it replaces.
+     */
+    private static byte[] readTree(GitRepository repo, String name) {
+        try {
+            byte[] loose = LooseObjectReader.read(GitPlumbing.getCommonDirectory(repo).resolve("objects"), name, "tree");
+            if (loose != null) {
+                return loose;
+            }
+        } catch (IOException | VcsException e) {
+            return null;
+        }
+        List<CatFileBatch.GitObject> pooled = GitObjectReaderPool.getInstance(repo.getProject()).read(repo, List.of(name));
+        CatFileBatch.GitObject object = pooled != null ? pooled.get(0) : null;
+        return object != null && "tree".equals(object.getType()) ? object.getContent() : null;
+    }
+
+    /**
+     * Exit-code based check: git stops at the first difference and prints no paths
+     */
+    private static boolean askGit(GitRepository repo) throws VcsException {
+        GitLineHandler handler = new GitLineHandler(repo.getProject(), repo.getRoot(), GitCommand.DIFF);
+        handler.setSilent(true);
+        handler.addParameters("--cached", "--quiet");
+        GitCommandResult result = CancellableGitRunner.run(handler);
+        switch (result.getExitCode()) {
+            case 0:
+                return false;
+            case 1:
+                return true;
+            default:
+                throw new VcsException(result.getErrorOutputAsJoinedString());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.renamecurrentcommit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@code git log} process read lazily: pages are taken from its output only when asked for, and git blocks on
+ * the full pipe in between, so the history is never produced further than the reader consumed it.
+ */
+final class StreamingLogReader implements CommitLogSource {
+    private final Process process;
+    private final BufferedReader output;
+    private volatile boolean exhausted;
+
+    StreamingLogReader(String gitExecutable, Path workingDirectory, String revision) throws IOException {
+        this.process = new ProcessBuilder(gitExecutable, "-c", "i18n.logOutputEncoding=UTF-8", "log", FORMAT, revision, "--")
+                .directory(workingDirectory.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        process.getOutputStream().close();
+        this.output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public synchronized List<Entry> readPage(int count) throws IOException {
+        List<Entry> page = new ArrayList<>(count);
+        while (!exhausted && page.size() < count) {
+            String line = output.readLine();
+            if (line == null) {
+                exhausted = true;
+                break;
+            }
+            Entry entry = Entry.parse(line);
+            if (entry != null) {
+                page.add(entry);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            if (!process.waitFor(200, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes a superproject record the renamed commits of its submodules.
+ * <p>
+ * The superproject's HEAD commit is rewritten with the same message and parents and a tree in which only the
+ * gitlink entries differ, built in-process by {@link TreeRewriter}; then the branch is moved with a compare-and-swap.
+ * Nothing is checked out and no hooks run. Of the index only the gitlink entries are touched, and only where they
+ * still record the old commits, since the submodules already have the new commits checked out.
+ */
+final class SuperprojectUpdater {
+    private static final String GITLINK_MODE = "160000";
+
+    private SuperprojectUpdater() {
+    }
+
+    /**
+     * @return the innermost repository of the project whose work tree contains {@code submodule}, or {@code null}
+     */
+    static @Nullable GitRepository findSuperproject(GitRepository submodule) {
+        GitRepository superproject = null;
+        for (GitRepository repo : GitUtil.getRepositoryManager(submodule.getProject()).getRepositories()) {
+            if (VfsUtilCore.isAncestor(repo.getRoot(), submodule.getRoot(), true)
+                    && (superproject == null || VfsUtilCore.isAncestor(superproject.getRoot(), repo.getRoot(), true))) {
+                superproject = repo;
+            }
+        }
+        return superproject;
+    }
+
+    /**
+     * Path of the submodule's gitlink in the superproject's tree
+     */
+    static String gitlinkPath(GitRepository superproject, GitRepository submodule) {
+        return VfsUtilCore.getRelativePath(submodule.getRoot(), superproject.getRoot(), '/');
+    }
+
+    /**
+     * Rewrites HEAD of {@code superproject} so that each gitlink recording the expected commit records its
+     * replacement instead. Gitlinks recording other commits are left alone.
+     *
+     * @param gitlinks replacements keyed by gitlink path, see {@link #gitlinkPath}
+     * @return the new HEAD commit, or the unchanged one if HEAD records none of the expected commits
+     */
+    static String updateGitlinks(GitRepository superproject, Map<String, TreeRewriter.Replacement> gitlinks,
+                                 ProgressIndicator indicator, List<String> warnings) throws VcsException {
+        indicator.setText("Recording renamed submodule commits...");
+        String before = GitPlumbing.headRevision(superproject);
+        if (before == null) {
+            throw new VcsException("Superproject " + superproject.getRoot().getPresentableUrl() + " has no commits");
+        }
+        String branchRef = superproject.getCurrentBranch() != null ? superproject.getCurrentBranch().getFullName() : null;
+
+        RawCommit commit = RawCommit.parse(GitPlumbing.readObject(superproject, "commit", before));
+        List<String> replaced = new ArrayList<>(gitlinks.size());
+        String newHead;
+        try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.GITLINK_UPDATE)) {
+            LooseObjectWriter writer = GitPlumbing.createObjectWriter(superproject, before);
+            TreeRewriter.ObjectStore store = new TreeRewriter.ObjectStore() {
+                @Override
+                public byte[] read(String type, String name) throws IOException {
+                    ProgressManager.checkCanceled();
+                    try {
+                        return GitPlumbing.readObject(superproject, type, name);
+                    } catch (VcsException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                }
+
+                @Override
+                public String write(String type, byte[] content) throws IOException {
+                    return writer.write(type, content);
+                }
+            };
+
+            try {
+                String tree = TreeRewriter.replaceGitlinks(commit.getTree(), gitlinks, store, replaced);
+                if (replaced.isEmpty()) {
+                    return before;
+                }
+                RawCommit amended = commit
+                        .withTree(tree)
+                        .withCommitter(GitPlumbing.currentCommitterIdent(superproject, commit.getCommitter()));
+                newHead = writer.write("commit", amended.toBytes());
+            } catch (IOException e) {
+                throw new VcsException("Failed to rewrite the superproject tree: " + e.getMessage(), e);
+            }
+
+            ProgressManager.checkCanceled();
+            GitPlumbing.updateRef(superproject, "HEAD", newHead, before, "commit (amend): record submodules " + String.join(", ", replaced));
+        }
+
+        // HEAD has moved, so the index and refresh must follow even if the rename is cancelled now
+        return ProgressManager.getInstance().computeInNonCancelableSection(() -> {
+            updateIndex(superproject, gitlinks, replaced, warnings);
+            String after = RepositoryRefresher.headMoved(superproject, branchRef, before, newHead);
+            RenameUndoHistory.remember(superproject, branchRef, before, after, commit.getStrippedMessage());
+            return after;
+        });
+    }
+
+    private static void updateIndex(GitRepository superproject, Map<String, TreeRewriter.Replacement> gitlinks,
+                                     List<String> replaced, List<String> warnings) {
+        try {
+            Map<String, String> indexed = GitPlumbing.readIndexEntries(superproject, replaced);
+            Map<String, String> updates = new LinkedHashMap<>();
+            for (String path : replaced) {
+                TreeRewriter.Replacement replacement = gitlinks.get(path);
+                // A different commit staged for the submodule is the user's, keep it
+                if (replacement.getExpected().equals(indexed.get(path))) {
+                    updates.put(path, replacement.getReplacement());
+                }
+            }
+            if (!updates.isEmpty()) {
+                GitPlumbing.updateIndexEntries(superproject, GITLINK_MODE, updates);
+            }
+        } catch (VcsException e) {
+            warnings.add("Submodule commits recorded, but the index still shows the old ones: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces gitlink entries (the commits recorded for submodules) in a tree, writing new tree objects only along
+ * the paths that change.
+ * <p>
+ * Entry names and modes stay the same, so every rewritten tree has the size and entry order of the original and
+ * only the object name bytes are patched. All gitlinks below one tree are replaced in a single pass, so each tree
+ * is read and written at most once however many submodules it leads to.
+ */
+final class TreeRewriter {
+    private static final byte[] GITLINK_MODE = "160000".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TREE_MODE = "40000".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Object database the trees are read from and written to
+     */
+    interface ObjectStore {
+        byte[] read(String type, String name) throws IOException;
+
+        String write(String type, byte[] content) throws IOException;
+    }
+
+    private TreeRewriter() {
+    }
+
+    /**
+     * @param gitlinks '/'-separated paths relative to {@code tree}, mapped to the commit expected there and its
+     *                 replacement; a path whose gitlink records any other commit is left alone
+     * @param replaced receives the paths that were replaced
+     * @return the name of the rewritten tree, or {@code tree} itself if nothing was replaced
+     */
+    static String replaceGitlinks(String tree, Map<String, Replacement> gitlinks, ObjectStore store,
+                                  Collection<String> replaced) throws IOException {
+        Set<String> directories = new HashSet<>();
+        for (String path : gitlinks.keySet()) {
+            for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+                directories.add(path.substring(0, slash));
+            }
+        }
+        return rewrite(tree, "", gitlinks, directories, store, replaced);
+    }
+
+    private static String rewrite(String tree, String prefix, Map<String, Replacement> gitlinks, Set<String> directories,
+                                  ObjectStore store, Collection<String> replaced) throws IOException {
+        byte[] data = store.read("tree", tree);
+        int hashBytes = tree.length() / 2;
+        byte[] rewritten = null;
+
+        int position = 0;
+        while (position < data.length) {
+            int space = indexOf(data, (byte) ' ', position);
+            int nul = indexOf(data, (byte) 0, space + 1);
+            if (space < 0 || nul < 0 || nul + 1 + hashBytes > data.length) {
+                throw new IOException("Tree " + tree + " is malformed");
+            }
+            int hash = nul + 1;
+            boolean gitlink = Arrays.equals(data, position, space, GITLINK_MODE, 0, GITLINK_MODE.length);
+            boolean subtree = !gitlink && Arrays.equals(data, position, space, TREE_MODE, 0, TREE_MODE.length);
+
+            if (gitlink || subtree) {
+                String path = prefix + new String(data, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+                String current = HexFormat.of().formatHex(data, hash, hash + hashBytes);
+                String replacement = null;
+                if (gitlink) {
+                    Replacement link = gitlinks.get(path);
+                    if (link != null && link.expected.equals(current) && link.replacement.length() == current.length()) {
+                        replacement = link.replacement;
+                        replaced.add(path);
+                    }
+                } else if (directories.contains(path)) {
+                    String child = rewrite(current, path + "/", gitlinks, directories, store, replaced);
+                    replacement = child.equals(current) ? null : child;
+                }
+
+                if (replacement != null) {
+                    if (rewritten == null) {
+                        rewritten = data.clone();
+                    }
+                    System.arraycopy(HexFormat.of().parseHex(replacement), 0, rewritten, hash, hashBytes);
+                }
+            }
+            position = hash + hashBytes;
+        }
+        return rewritten != null ? store.write("tree", rewritten) : tree;
+    }
+
+    private static int indexOf(byte[] data, byte value, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The commit a gitlink is expected to record and the one to record instead
+     */
+    static final class Replacement {
+        private final String expected;
+        private final String replacement;
+
+        Replacement(String expected, String replacement) {
+            this.expected = expected;
+            this.replacement = replacement;
+        }
+
+        String getExpected() {
+            return expected;
+        }
+
+        String getReplacement() {
+            return replacement;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.renamecurrentcommit;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.VcsException;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Undoes the latest rename by moving the branch back to the commit it pointed to before.
+ * <p>
+ * The move is a compare-and-swap on the branch ref: no commit is created, no hooks run, the index and work tree
+ * are left alone, and nothing happens if the branch moved since the rename.
+ */
+public class UndoRenameAction extends AnAction {
+
+    @Override
+    public void update(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        // Served from the cache, which Git change events invalidate; actionPerformed reads the branch again
+        RenameUndoHistory.Entry entry = project != null
+                ? RenameActionStateCache.getInstance(project).getUndoable(event.getData(CommonDataKeys.VIRTUAL_FILE))
+                : null;
+        event.getPresentation().setEnabled(entry != null);
+        if (entry != null) {
+            event.getPresentation().setDescription("Restores the commit before \"" + entry.subject + "\"");
+        }
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        if (project == null) {
+            return;
+        }
+        GitRepository repo = RenameCurrentCommitAction.findRepository(project, event, true);
+        if (repo == null) {
+            RenameCurrentCommitAction.showError(project, "Cannot determine Git repository for this operation");
+            return;
+        }
+
+        RenameUndoHistory history = RenameUndoHistory.getInstance(project);
+        RenameUndoHistory.Entry entry = history.findUndoable(repo);
+        if (entry == null) {
+            RenameCurrentCommitAction.showError(project, "Nothing to undo: the branch has moved since the last rename");
+            return;
+        }
+
+        RenameCurrentCommitAction.runBackgroundTask(project, "Undoing commit rename", indicator -> {
+            try (RenameTimings.Span ignored = RenameTimings.start(RenameTimings.Phase.UNDO)) {
+                GitPlumbing.updateRef(repo, entry.branchRef, entry.before, entry.after,
+                        "rename undo: restore before \"" + entry.subject + "\"");
+                history.undone(entry);
+                RepositoryRefresher.headMoved(repo, entry.branchRef, entry.after, entry.before);
+                RenameCurrentCommitAction.showSuccess(project);
+            } catch (VcsException e) {
+                RenameCurrentCommitAction.showError(project, "Cannot undo rename, the branch has moved since: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+}
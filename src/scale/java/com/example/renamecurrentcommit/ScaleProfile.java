@@ -0,0 +1,124 @@
+package com.example.renamecurrentcommit;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Size of a generated repository and the latency budgets a rename must meet on it.
+ * <p>
+ * Budgets apply to the median of the measured runs, so a single slow run on a busy machine does not fail the
+ * suite while a real regression does.
+ */
+final class ScaleProfile {
+    static final List<ScaleProfile> PRESETS = List.of(
+            new ScaleProfile("small", 10_000, 10_000, 100, 100, 10, 100, 100, 500),
+            new ScaleProfile("medium", 100_000, 200_000, 1_000, 1_000, 100, 150, 150, 1_500),
+            new ScaleProfile("large", 500_000, 1_000_000, 5_000, 10_000, 1_000, 250, 200, 5_000));
+
+    private final String name;
+    private final int files;
+    private final int commits;
+    private final int branches;
+    private final int tags;
+    private final int stagedFiles;
+    private final long dialogBudgetMillis;
+    private final long renameBudgetMillis;
+    private final long amendBudgetMillis;
+
+    private ScaleProfile(String name, int files, int commits, int branches, int tags, int stagedFiles,
+                         long dialogBudgetMillis, long renameBudgetMillis, long amendBudgetMillis) {
+        this.name = name;
+        this.files = files;
+        this.commits = commits;
+        this.branches = branches;
+        this.tags = tags;
+        this.stagedFiles = stagedFiles;
+        this.dialogBudgetMillis = dialogBudgetMillis;
+        this.renameBudgetMillis = renameBudgetMillis;
+        this.amendBudgetMillis = amendBudgetMillis;
+    }
+
+    /**
+     * Parses {@code name} or {@code name:key=value,...}, e.g. {@code large:files=2000000,renameBudgetMillis=1000}.
+     * Keys are the field names; unset ones keep the preset's value.
+     */
+    static ScaleProfile parse(String spec) {
+        int colon = spec.indexOf(':');
+        String name = (colon < 0 ? spec : spec.substring(0, colon)).trim().toLowerCase(Locale.ROOT);
+        ScaleProfile profile = PRESETS.stream()
+                .filter(preset -> preset.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown scale profile: " + name));
+        if (colon < 0) {
+            return profile;
+        }
+
+        int files = profile.files, commits = profile.commits, branches = profile.branches, tags = profile.tags;
+        int stagedFiles = profile.stagedFiles;
+        long dialog = profile.dialogBudgetMillis, rename = profile.renameBudgetMillis, amend = profile.amendBudgetMillis;
+        for (String setting : spec.substring(colon + 1).split(",")) {
+            String[] pair = setting.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected key=value in scale profile: " + setting);
+            }
+            long value = Long.parseLong(pair[1].trim());
+            switch (pair[0].trim()) {
+                case "files" -> files = Math.toIntExact(value);
+                case "commits" -> commits = Math.toIntExact(value);
+                case "branches" -> branches = Math.toIntExact(value);
+                case "tags" -> tags = Math.toIntExact(value);
+                case "stagedFiles" -> stagedFiles = Math.toIntExact(value);
+                case "dialogBudgetMillis" -> dialog = value;
+                case "renameBudgetMillis" -> rename = value;
+                case "amendBudgetMillis" -> amend = value;
+                default -> throw new IllegalArgumentException("Unknown scale profile setting: " + pair[0]);
+            }
+        }
+        if (files < 1 || commits < 1) {
+            throw new IllegalArgumentException("A scale repository needs at least one file and one commit");
+        }
+        return new ScaleProfile(name, files, commits, branches, tags, stagedFiles, dialog, rename, amend);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getFiles() {
+        return files;
+    }
+
+    int getCommits() {
+        return commits;
+    }
+
+    int getBranches() {
+        return branches;
+    }
+
+    int getTags() {
+        return tags;
+    }
+
+    int getStagedFiles() {
+        return stagedFiles;
+    }
+
+    long getDialogBudgetMillis() {
+        return dialogBudgetMillis;
+    }
+
+    long getRenameBudgetMillis() {
+        return renameBudgetMillis;
+    }
+
+    long getAmendBudgetMillis() {
+        return amendBudgetMillis;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + files + " files, " + commits + " commits, " + branches + " branches, " + tags + " tags, "
+                + stagedFiles + " staged)";
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.renamecurrentcommit;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Large throw-away repository generated with {@code git fast-import}, sized by a {@link ScaleProfile}.
+ * <p>
+ * The first commit adds all files, spread over directories of 100 entries like a real source tree; every later
+ * commit changes one file, so history depth does not multiply the size of the object store. Branches and tags
+ * point at commits spread over the history. The index is built from HEAD with {@code read-tree} and the work tree
+ * is not checked out: no rename step reads it, and writing hundreds of thousands of files would dominate the run.
+ * Staged files are added to the index only.
+ */
+final class ScaleRepository implements AutoCloseable {
+    private static final String COMMITTER = "Scale Suite <scale@example.com>";
+    private static final long FIRST_COMMIT_TIME = 1_500_000_000L;
+
+    private final Path root;
+
+    private ScaleRepository(Path root) {
+        this.root = root;
+    }
+
+    static ScaleRepository create(ScaleProfile profile) throws IOException {
+        ScaleRepository repo = new ScaleRepository(Files.createTempDirectory("rename-commit-scale"));
+        try {
+            repo.git("init", "--quiet");
+            repo.git("config", "user.name", "Scale Suite");
+            repo.git("config", "user.email", "scale@example.com");
+            repo.git("config", "gc.auto", "0");
+            repo.git("config", "commit.gpgSign", "false");
+            repo.fastImport(profile);
+            repo.git("symbolic-ref", "HEAD", "refs/heads/main");
+            repo.git("read-tree", "HEAD");
+            repo.stage(profile.getStagedFiles());
+            return repo;
+        } catch (IOException | RuntimeException e) {
+            repo.close();
+            throw e;
+        }
+    }
+
+    private void fastImport(ScaleProfile profile) throws IOException {
+        Process process = new ProcessBuilder("git", "fast-import", "--quiet", "--done")
+                .directory(root.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try (OutputStream out = new BufferedOutputStream(process.getOutputStream(), 256 * 1024)) {
+            for (int commit = 1; commit <= profile.getCommits(); commit++) {
+                StringBuilder command = new StringBuilder(256)
+                        .append("commit refs/heads/main\n")
+                        .append("mark :").append(commit).append('\n')
+                        .append("committer ").append(COMMITTER).append(' ')
+                        .append(FIRST_COMMIT_TIME + commit * 60L).append(" +0000\n");
+                data(command, commit == 1 ? "Initial commit\n" : "Change " + commit + "\n\nBody of change " + commit + "\n");
+                if (commit > 1) {
+                    command.append("from :").append(commit - 1).append('\n');
+                }
+                out.write(command.toString().getBytes(StandardCharsets.UTF_8));
+
+                if (commit == 1) {
+                    for (int file = 0; file < profile.getFiles(); file++) {
+                        writeFile(out, filePath(file), "content " + file + "\n");
+                    }
+                }
+                writeFile(out, "changes/change" + (commit % 16) + ".txt", "change " + commit + "\n");
+                out.write('\n');
+            }
+
+            writeRefs(out, "refs/heads/branch", profile.getBranches(), profile.getCommits());
+            writeRefs(out, "refs/tags/v", profile.getTags(), profile.getCommits());
+            out.write("done\n".getBytes(StandardCharsets.UTF_8));
+        }
+        int exitCode = waitFor(process);
+        if (exitCode != 0) {
+            throw new IOException("git fast-import failed with exit code " + exitCode);
+        }
+    }
+
+    /**
+     * Three levels below {@code src}, 100 entries per directory
+     */
+    private static String filePath(int file) {
+        return "src/module" + (file / 10_000) + "/package" + (file / 100 % 100) + "/File" + file + ".java";
+    }
+
+    private static void writeFile(OutputStream out, String path, String content) throws IOException {
+        StringBuilder command = new StringBuilder(path.length() + content.length() + 48)
+                .append("M 100644 inline ").append(path).append('\n');
+        data(command, content);
+        out.write(command.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void data(StringBuilder command, String content) {
+        command.append("data ").append(content.getBytes(StandardCharsets.UTF_8).length).append('\n').append(content).append('\n');
+    }
+
+    /**
+     * Points {@code count} refs at commits spread evenly over the history
+     */
+    private static void writeRefs(OutputStream out, String prefix, int count, int commits) throws IOException {
+        for (int i = 0; i < count; i++) {
+            long mark = 1 + (long) i * commits / Math.max(1, count);
+            out.write(("reset " + prefix + i + "\nfrom :" + mark + "\n\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void stage(int files) throws IOException {
+        if (files == 0) {
+            return;
+        }
+        String blob = gitWithInput("staged content\n", "hash-object", "-w", "--stdin");
+        StringBuilder entries = new StringBuilder(files * 80);
+        for (int i = 0; i < files; i++) {
+            entries.append("100644 ").append(blob).append('\t').append("staged/Staged").append(i).append(".java\n");
+        }
+        gitWithInput(entries.toString(), "update-index", "--add", "--index-info");
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    Path getGitDirectory() {
+        return root.resolve(".git");
+    }
+
+    Path getObjectsDirectory() {
+        return getGitDirectory().resolve("objects");
+    }
+
+    /**
+     * Runs git in the repository and returns its trimmed standard output
+     */
+    String git(String... args) throws IOException {
+        return gitWithInput(null, args);
+    }
+
+    /**
+     * Runs git with {@code input} on its standard input and returns its trimmed standard output
+     */
+    String gitWithInput(String input, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command)
+                .directory(root.toFile())
+                .redirectErrorStream(true)
+                .start();
+        try (OutputStream stdin = process.getOutputStream()) {
+            if (input != null) {
+                stdin.write(input.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        int exitCode = waitFor(process);
+        if (exitCode != 0) {
+            throw new IOException("git " + String.join(" ", args) + " failed (" + exitCode + "): " + output);
+        }
+        return output.trim();
+    }
+
+    /**
+     * Value of a config key as {@code git config --get} reports it, {@code null} if the key is not set
+     */
+    String config(String key) throws IOException {
+        Process process = new ProcessBuilder("git", "config", "--get", key)
+                .directory(root.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        process.getOutputStream().close();
+        String value;
+        try (InputStream in = process.getInputStream()) {
+            value = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        return waitFor(process) == 0 ? value : null;
+    }
+
+    /**
+     * Runs git in the repository and returns only its exit code
+     */
+    int gitExitCode(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command)
+                .directory(root.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        process.getOutputStream().close();
+        return waitFor(process);
+    }
+
+    private static int waitFor(Process process) throws IOException {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for git", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                path.toFile().setWritable(true);
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency check of the rename on generated repositories, run with {@code ./gradlew scaleCheck}.
+ * <p>
+ * The action itself needs a running IDE, so the suite calls the IDE-free cores the action is built on: the staged
+ * changes check of {@link GitIndexReader#compareWithHead} and the message read the prefetcher runs before the dialog
+ * can open, {@link HeadRewriter#rewordHead} for the message-only rename that keeps staged files out, and the
+ * {@code git commit --amend} that includes them. The suite only provides repository access, with plain git
+ * processes where the plugin uses its pooled readers and git4idea. Every run starts from the generated HEAD. The process
+ * exits with 1 when a median exceeds its budget.
+ *
+ * @see ScaleProfile for the sizes and budgets
+ */
+public final class ScaleSuite {
+    private static final int DEFAULT_RUNS = 7;
+
+    private ScaleSuite() {
+    }
+
+    /**
+     * @param args profile specs as accepted by {@link ScaleProfile#parse}; {@code small} if none are given
+     */
+    public static void main(String[] args) throws IOException {
+        List<ScaleProfile> profiles = new ArrayList<>();
+        for (String arg : args.length > 0 ? args : new String[]{"small"}) {
+            for (String spec : arg.split("\\s+")) {
+                if (!spec.isBlank()) {
+                    profiles.add(ScaleProfile.parse(spec));
+                }
+            }
+        }
+        int runs = Integer.getInteger("scale.runs", DEFAULT_RUNS);
+
+        List<Measurement> measurements = new ArrayList<>();
+        for (ScaleProfile profile : profiles) {
+            measurements.addAll(run(profile, runs));
+        }
+
+        String report = System.getProperty("scale.report");
+        if (report != null) {
+            Path file = Path.of(report);
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.writeString(file, toJson(measurements), StandardCharsets.UTF_8);
+        }
+
+        List<Measurement> overBudget = measurements.stream().filter(Measurement::isOverBudget).toList();
+        if (!overBudget.isEmpty()) {
+            System.err.println("Latency budgets exceeded:");
+            overBudget.forEach(measurement -> System.err.println("  " + measurement));
+            System.exit(1);
+        }
+        System.out.println("All latency budgets met");
+    }
+
+    private static List<Measurement> run(ScaleProfile profile, int runs) throws IOException {
+        System.out.println("Generating " + profile + "...");
+        long generationStart = System.nanoTime();
+        try (ScaleRepository repo = ScaleRepository.create(profile);
+             CatFileBatchProcess catFile = new CatFileBatchProcess("git", repo.getRoot())) {
+            System.out.println("Generated in " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - generationStart) + " s");
+            String original = repo.git("rev-parse", "HEAD");
+
+            List<Measurement> measurements = new ArrayList<>();
+            measurements.add(measure(profile, "time_to_dialog", profile.getDialogBudgetMillis(), runs, () -> {
+            }, () -> openDialog(repo, profile.getStagedFiles() > 0)));
+            measurements.add(measure(profile, "time_to_rename", profile.getRenameBudgetMillis(), runs,
+                    () -> resetHead(repo, original), () -> renameMessageOnly(repo, catFile, original)));
+            if (profile.getStagedFiles() > 0) {
+                measurements.add(measure(profile, "time_to_amend_staged", profile.getAmendBudgetMillis(), runs,
+                        () -> resetHead(repo, original), () -> amendWithStaged(repo, original)));
+            }
+            measurements.forEach(System.out::println);
+            return measurements;
+        }
+    }
+
+    /**
+     * What has to be known before the dialog opens, starting from a cold object reader as on the first open
+     */
+    private static void openDialog(ScaleRepository repo, boolean expectStaged) throws IOException {
+        GitIndexReader.StagedState state;
+        try (CatFileBatchProcess catFile = new CatFileBatchProcess("git", repo.getRoot())) {
+            SuiteStore store = new SuiteStore(repo, catFile);
+            String head = store.headRevision();
+            if (head == null) {
+                throw new IOException("HEAD cannot be read from " + repo.getGitDirectory());
+            }
+            byte[] commit = store.readCommit(head);
+            if (RawCommit.parse(commit).getStrippedMessage().isEmpty()) {
+                throw new IOException("HEAD has no message");
+            }
+            state = GitIndexReader.compareWithHead(repo.getGitDirectory(), head, commit, store::readTree);
+        }
+
+        // When the index alone cannot tell, StagedChangeDetector runs this same git command
+        boolean staged = state == GitIndexReader.StagedState.UNKNOWN
+                ? repo.gitExitCode("diff", "--cached", "--quiet") == 1
+                : state == GitIndexReader.StagedState.STAGED;
+        if (staged != expectStaged) {
+            throw new IOException("Staged changes detected as " + staged + ", expected " + expectStaged);
+        }
+    }
+
+    /**
+     * The in-place reword of a message-only rename, with a warm object reader as the pool keeps it
+     */
+    private static void renameMessageOnly(ScaleRepository repo, CatFileBatchProcess catFile, String original) throws IOException {
+        String newHead = HeadRewriter.rewordHead(new SuiteStore(repo, catFile), "Renamed by the scale suite\n\nat " + System.nanoTime());
+        String after = HeadRefReader.read(repo.getGitDirectory(), repo.getGitDirectory()).getRevision();
+        if (!newHead.equals(after) || after.equals(original)) {
+            throw new IOException("HEAD was not renamed");
+        }
+    }
+
+    /**
+     * The amend {@link RenamePipeline} runs when staged changes are included, message passed through stdin
+     */
+    private static void amendWithStaged(ScaleRepository repo, String original) throws IOException {
+        repo.gitWithInput("Renamed with staged files by the scale suite\n", "commit", "--amend", "-F", "-");
+        String after = HeadRefReader.read(repo.getGitDirectory(), repo.getGitDirectory()).getRevision();
+        if (after == null || after.equals(original)) {
+            throw new IOException("HEAD was not amended");
+        }
+    }
+
+    /**
+     * Moves the branch back to the generated commit; the index keeps its staged files
+     */
+    private static void resetHead(ScaleRepository repo, String original) throws IOException {
+        repo.git("update-ref", "refs/heads/main", original);
+    }
+
+    private static Measurement measure(ScaleProfile profile, String step, long budgetMillis, int runs,
+                                       Step prepare, Step measured) throws IOException {
+        // One unmeasured run loads classes and warms the file system cache
+        prepare.run();
+        measured.run();
+
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            prepare.run();
+            long start = System.nanoTime();
+            measured.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new Measurement(profile.getName(), step, budgetMillis, nanos[runs / 2], nanos[runs - 1]);
+    }
+
+    private static String toJson(List<Measurement> measurements) {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < measurements.size(); i++) {
+            Measurement measurement = measurements.get(i);
+            json.append(String.format(Locale.ROOT,
+                    "  {\"profile\": \"%s\", \"step\": \"%s\", \"medianMs\": %.2f, \"maxMs\": %.2f, \"budgetMs\": %d, \"overBudget\": %b}",
+                    measurement.profile, measurement.step, millis(measurement.medianNanos), millis(measurement.maxNanos),
+                    measurement.budgetMillis, measurement.isOverBudget()));
+            json.append(i + 1 < measurements.size() ? ",\n" : "\n");
+        }
+        return json.append("]\n").toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Repository access as {@link GitPlumbing} provides it: files read directly where possible, git otherwise
+     */
+    private static final class SuiteStore implements HeadRewriter.Store {
+        private final ScaleRepository repo;
+        private final CatFileBatchProcess catFile;
+
+        SuiteStore(ScaleRepository repo, CatFileBatchProcess catFile) {
+            this.repo = repo;
+            this.catFile = catFile;
+        }
+
+        @Override
+        public String headRevision() throws IOException {
+            HeadRefReader.Head head = HeadRefReader.read(repo.getGitDirectory(), repo.getGitDirectory());
+            return head != null && head.getRevision() != null ? head.getRevision() : repo.git("rev-parse", "HEAD");
+        }
+
+        @Override
+        public byte[] readCommit(String name) throws IOException {
+            byte[] loose = LooseObjectReader.read(repo.getObjectsDirectory(), name, "commit");
+            if (loose != null) {
+                return loose;
+            }
+            CatFileBatch.GitObject object = catFile.read(List.of(name)).get(0);
+            if (object == null || object.getContent() == null) {
+                throw new IOException("Commit " + name + " cannot be read");
+            }
+            return object.getContent();
+        }
+
+        /**
+         * Tree for the entry walk of {@link GitIndexReader}, the same way StagedChangeDetector reads it
+         */
+        byte[] readTree(String name) throws IOException {
+            byte[] loose = LooseObjectReader.read(repo.getObjectsDirectory(), name, "tree");
+            if (loose != null) {
+                return loose;
+            }
+            CatFileBatch.GitObject object = catFile.read(List.of(name)).get(0);
+            return object != null && "tree".equals(object.getType()) ? object.getContent() : null;
+        }
+
+        @Override
+        public Path objectsDirectory() {
+            return repo.getObjectsDirectory();
+        }
+
+        @Override
+        public String committerIdent(String fallbackIdent) throws IOException {
+            return HeadRewriter.committerIdent(repo.config("user.name"), repo.config("user.email"), fallbackIdent);
+        }
+
+        @Override
+        public CommitMessageCodec.Cleanup cleanup() throws IOException {
+            String mode = repo.config("commit.cleanup");
+            return CommitMessageCodec.Cleanup.fromConfig(mode, "strip".equals(mode) ? repo.config("core.commentChar") : null);
+        }
+
+        @Override
+        public String commitEncoding() throws IOException {
+            return repo.config("i18n.commitEncoding");
+        }
+
+        @Override
+        public void updateHead(String newHead, String expectedOldHead, String reason) throws IOException {
+            repo.git("update-ref", "-m", reason, "HEAD", newHead, expectedOldHead);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws IOException;
+    }
+
+    private static final class Measurement {
+        private final String profile;
+        private final String step;
+        private final long budgetMillis;
+        private final long medianNanos;
+        private final long maxNanos;
+
+        Measurement(String profile, String step, long budgetMillis, long medianNanos, long maxNanos) {
+            this.profile = profile;
+            this.step = step;
+            this.budgetMillis = budgetMillis;
+            this.medianNanos = medianNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        boolean isOverBudget() {
+            return medianNanos > TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-8s %-22s median %9.2f ms  max %9.2f ms  budget %6d ms%s",
+                    profile, step, millis(medianNanos), millis(maxNanos), budgetMillis, isOverBudget() ? "  OVER BUDGET" : "");
+        }
+    }
+}
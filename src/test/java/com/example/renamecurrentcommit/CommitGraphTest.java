@@ -0,0 +1,148 @@
+package com.example.renamecurrentcommit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommitGraphTest {
+    @TempDir
+    Path directory;
+
+    private TestRepository repo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repo = TestRepository.init(directory);
+    }
+
+    @Test
+    void noGraphFile() throws IOException {
+        repo.commit("first");
+
+        assertNull(CommitGraph.open(repo.getObjectsDirectory(), true));
+    }
+
+    @Test
+    void singleFileChain() throws IOException {
+        List<String> commits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            commits.add(repo.commit("commit " + i));
+        }
+        repo.git("commit-graph", "write", "--reachable");
+
+        CommitGraph graph = CommitGraph.open(repo.getObjectsDirectory(), true);
+
+        assertNotNull(graph);
+        assertEquals(20, graph.getHashLength());
+        assertEquals(5, graph.size());
+        for (int i = 0; i < commits.size(); i++) {
+            int position = graph.find(commits.get(i));
+            assertEquals(commits.get(i), graph.name(position));
+            assertEquals(i + 1, graph.generation(position));
+            assertEquals(i == 0 ? List.of() : List.of(commits.get(i - 1)), parentNames(graph, position));
+        }
+    }
+
+    @Test
+    void splitChainWithTwoLayers() throws IOException {
+        List<String> commits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            commits.add(repo.commit("base " + i));
+        }
+        repo.git("commit-graph", "write", "--reachable", "--split");
+        for (int i = 0; i < 3; i++) {
+            commits.add(repo.commit("top " + i));
+        }
+        repo.git("commit-graph", "write", "--reachable", "--split=no-merge");
+
+        Path chain = repo.getObjectsDirectory().resolve("info").resolve("commit-graphs").resolve("commit-graph-chain");
+        assertEquals(2, Files.readAllLines(chain).size());
+
+        for (boolean memoryMap : new boolean[]{true, false}) {
+            CommitGraph graph = CommitGraph.open(repo.getObjectsDirectory(), memoryMap);
+            assertNotNull(graph);
+            assertEquals(6, graph.size());
+            for (int i = 0; i < commits.size(); i++) {
+                int position = graph.find(commits.get(i));
+                assertEquals(commits.get(i), graph.name(position));
+                assertEquals(i + 1, graph.generation(position));
+                assertEquals(i == 0 ? List.of() : List.of(commits.get(i - 1)), parentNames(graph, position));
+            }
+            // The bottom layer comes first, so positions are global across layers
+            assertTrue(graph.find(commits.get(3)) >= 3);
+        }
+    }
+
+    @Test
+    void octopusMergeReadsExtraEdges() throws IOException {
+        String base = repo.commit("base");
+        List<String> tips = new ArrayList<>();
+        for (String branch : new String[]{"a", "b", "c"}) {
+            repo.git("checkout", "--quiet", "-b", branch, base);
+            tips.add(repo.commit("on " + branch));
+        }
+        repo.git("checkout", "--quiet", "a");
+        repo.git("merge", "--quiet", "--no-edit", "b", "c");
+        String merge = repo.git("rev-parse", "HEAD");
+        repo.git("commit-graph", "write", "--reachable");
+
+        CommitGraph graph = CommitGraph.open(repo.getObjectsDirectory(), true);
+
+        assertNotNull(graph);
+        int position = graph.find(merge);
+        assertEquals(tips, parentNames(graph, position));
+        assertEquals(3, graph.generation(position));
+        assertEquals(Arrays.asList(repo.git("rev-parse", merge + "^@").split("\n")), parentNames(graph, position));
+    }
+
+    @Test
+    void commitsAfterTheGraphAreNotFound() throws IOException {
+        String covered = repo.commit("covered");
+        repo.git("commit-graph", "write", "--reachable");
+        String later = repo.commit("later");
+
+        CommitGraph graph = CommitGraph.open(repo.getObjectsDirectory(), true);
+
+        assertNotNull(graph);
+        assertEquals(0, graph.find(covered));
+        assertEquals(CommitGraph.NOT_FOUND, graph.find(later));
+        assertEquals(CommitGraph.NOT_FOUND, graph.find("abc"));
+    }
+
+    @Test
+    void stampChangesWhenTheGraphIsRewritten() throws IOException {
+        repo.commit("first");
+        repo.git("commit-graph", "write", "--reachable");
+        String stamp = CommitGraph.open(repo.getObjectsDirectory(), true).getStamp();
+        repo.commit("second");
+        repo.git("commit-graph", "write", "--reachable");
+
+        CommitGraph graph = CommitGraph.open(repo.getObjectsDirectory(), true);
+
+        assertNotEquals(stamp, graph.getStamp());
+        assertEquals(graph.getStamp(), CommitGraph.stampOf(repo.getObjectsDirectory()));
+        assertArrayEquals(new int[]{graph.find(repo.git("rev-parse", "HEAD~1"))}, graph.parents(graph.find(repo.git("rev-parse", "HEAD"))));
+    }
+
+    private static List<String> parentNames(CommitGraph graph, int position) {
+        List<String> names = new ArrayList<>();
+        for (int parent : graph.parents(position)) {
+            names.add(graph.name(parent));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.renamecurrentcommit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CommitMessageCodec#cleanUp} is compared with {@code git stripspace} on hand-written and random messages
+ */
+class CommitMessageCodecTest {
+    private static final String[] FRAGMENTS = {
+            "", " ", "  ", "\t", "\r", "\f", "\u000b", "\n", "\n\n", "#", "# comment", ";", "; note", "a", "word",
+            "Summary line", "ü", "日本", " #not a comment", "Signed-off-by: A <a@example.com>", "--- >8 ---"};
+    private static final int RANDOM_MESSAGES = 300;
+
+    @TempDir
+    Path directory;
+
+    private TestRepository repo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repo = TestRepository.init(directory);
+    }
+
+    @Test
+    void whitespaceCleanupMatchesGit() throws IOException {
+        for (String message : messages()) {
+            assertEquals(stripspace(message, "stripspace"), CommitMessageCodec.cleanUp(message, CommitMessageCodec.Cleanup.WHITESPACE),
+                    () -> "message " + escape(message));
+        }
+    }
+
+    @Test
+    void stripCleanupMatchesGit() throws IOException {
+        CommitMessageCodec.Cleanup cleanup = CommitMessageCodec.Cleanup.fromConfig("strip", null);
+        for (String message : messages()) {
+            assertEquals(stripspace(message, "stripspace", "--strip-comments"), CommitMessageCodec.cleanUp(message, cleanup),
+                    () -> "message " + escape(message));
+        }
+    }
+
+    @Test
+    void stripCleanupWithCommentCharMatchesGit() throws IOException {
+        CommitMessageCodec.Cleanup cleanup = CommitMessageCodec.Cleanup.fromConfig("strip", ";");
+        for (String message : messages()) {
+            assertEquals(stripspace(message, "-c", "core.commentChar=;", "stripspace", "--strip-comments"),
+                    CommitMessageCodec.cleanUp(message, cleanup), () -> "message " + escape(message));
+        }
+    }
+
+    @Test
+    void fromConfig() {
+        assertSame(CommitMessageCodec.Cleanup.VERBATIM, CommitMessageCodec.Cleanup.fromConfig("verbatim", null));
+        assertSame(CommitMessageCodec.Cleanup.WHITESPACE, CommitMessageCodec.Cleanup.fromConfig(null, null));
+        assertSame(CommitMessageCodec.Cleanup.WHITESPACE, CommitMessageCodec.Cleanup.fromConfig("default", null));
+        assertSame(CommitMessageCodec.Cleanup.WHITESPACE, CommitMessageCodec.Cleanup.fromConfig("scissors", null));
+        assertSame(CommitMessageCodec.Cleanup.WHITESPACE, CommitMessageCodec.Cleanup.fromConfig("whitespace", null));
+        assertEquals("", CommitMessageCodec.cleanUp("# only\n", CommitMessageCodec.Cleanup.fromConfig(" strip ", "auto")));
+    }
+
+    @Test
+    void verbatimKeepsTheMessage() {
+        String message = "\n  Summary  \n\n\n# kept\n";
+
+        assertEquals(message, CommitMessageCodec.cleanUp(message, CommitMessageCodec.Cleanup.VERBATIM));
+        assertFalse(CommitMessageCodec.isRefusedAsEmpty("", CommitMessageCodec.Cleanup.VERBATIM));
+        assertTrue(CommitMessageCodec.isRefusedAsEmpty("", CommitMessageCodec.Cleanup.WHITESPACE));
+    }
+
+    @Test
+    void encodeInCommitEncoding() {
+        byte[] encoded = CommitMessageCodec.encode("Grüße  \n\n", CommitMessageCodec.Cleanup.WHITESPACE, StandardCharsets.ISO_8859_1);
+
+        assertArrayEquals("Grüße\n".getBytes(StandardCharsets.ISO_8859_1), encoded);
+    }
+
+    @Test
+    void writeStreamsTheMessageUnchanged() throws IOException {
+        String message = "Summary  \n\n" + "ü".repeat(20_000) + "\n\n\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        CommitMessageCodec.write(message, StandardCharsets.UTF_8, out);
+
+        assertArrayEquals(message.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    void decodeStripped() {
+        byte[] data = "xx \n Summary\n\n".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("Summary", CommitMessageCodec.decodeStripped(data, 2, data.length, StandardCharsets.UTF_8));
+        assertEquals(StandardCharsets.UTF_8, CommitMessageCodec.charset("no-such-charset"));
+        assertTrue(CommitMessageCodec.isUtf8(" UTF8 "));
+        assertFalse(CommitMessageCodec.isUtf8("ISO-8859-1"));
+    }
+
+    /**
+     * Hand-written edge cases followed by random combinations of whitespace, comments and text
+     */
+    private static List<String> messages() {
+        List<String> messages = new ArrayList<>(List.of(
+                "", "\n", "   \n\t\n", "Summary", "Summary\n", "\n\nSummary  \n\n\n\nBody\t\n\n",
+                "Summary\r\n\r\nBody\r\n", "# comment\nSummary\n# another\n\n\nBody", "Summary\n#\n\n#\nBody",
+                "Summary\n \n\t\n\nBody  \n  indented\n"));
+        Random random = new Random(42);
+        for (int i = 0; i < RANDOM_MESSAGES; i++) {
+            StringBuilder message = new StringBuilder();
+            int fragments = random.nextInt(12);
+            for (int j = 0; j < fragments; j++) {
+                message.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                if (random.nextInt(3) == 0) {
+                    message.append('\n');
+                }
+            }
+            messages.add(message.toString());
+        }
+        return messages;
+    }
+
+    /**
+     * Output of the given {@code git stripspace} command line for {@code message}, unchanged
+     */
+    private String stripspace(String message, String... args) throws IOException {
+        byte[] output = repo.gitBytes(message.getBytes(StandardCharsets.UTF_8), List.of(), args);
+        return new String(output, StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String message) {
+        return message.replace("\n", "\\n").replace("\t", "\\t").replace("\r", "\\r")
+                .replace("\f", "\\f").replace("\u000b", "\\v");
+    }
+}
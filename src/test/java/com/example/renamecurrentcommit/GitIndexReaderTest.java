@@ -0,0 +1,301 @@
+package com.example.renamecurrentcommit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Index files are written by git in every format the reader walks: versions 2 to 4, with and without the
+ * end-of-index-entries extension, and each answer that is not {@link GitIndexReader.StagedState#UNKNOWN} is checked
+ * against {@code git diff --cached --quiet}. Tests that set {@link #trees} also let the reader walk the entries
+ * against the HEAD tree.
+ */
+class GitIndexReaderTest {
+    // Git writes version 3 only while an entry needs extended flags, see extendedFlags
+    private static final int[] VERSIONS = {2, 4};
+    private static final int[] EXTENDED_VERSIONS = {3, 4};
+
+    @TempDir
+    Path directory;
+
+    private TestRepository repo;
+    private GitIndexReader.TreeSource trees;
+    private final List<String> treesRead = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repo = TestRepository.init(directory);
+        repo.write("README.md", "readme\n");
+        repo.write("src/main/Main.java", "class Main {}\n");
+        repo.write("src/main/util/Util.java", "class Util {}\n");
+        repo.git("add", ".");
+        repo.commit("initial");
+    }
+
+    @Test
+    void cleanAfterCommit() throws IOException {
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.CLEAN);
+    }
+
+    @Test
+    void stagedChangeWithWrittenCacheTree() throws IOException {
+        repo.write("src/main/util/Util.java", "class Util { }\n");
+        repo.git("add", "src/main/util/Util.java");
+        repo.git("write-tree");
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.STAGED);
+    }
+
+    @Test
+    void stagedChangeRevertedInIndex() throws IOException {
+        repo.write("README.md", "changed\n");
+        repo.git("add", "README.md");
+        repo.git("reset", "--quiet", "--", "README.md");
+        repo.git("write-tree");
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.CLEAN);
+    }
+
+    @Test
+    void invalidatedCacheTreeIsUnknown() throws IOException {
+        repo.write("src/main/New.java", "class New {}\n");
+        repo.git("add", "src/main/New.java");
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.UNKNOWN);
+    }
+
+    @Test
+    void indexWithoutCacheTreeIsUnknown() throws IOException {
+        String[] paths = repo.git("ls-files").split("\n");
+        Files.delete(indexFile());
+        for (String path : paths) {
+            repo.git("update-index", "--add", path);
+        }
+        assertFalse(hasExtension("TREE"));
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.UNKNOWN);
+    }
+
+    @Test
+    void invalidatedCacheTreeIsWalked() throws IOException {
+        trees = this::readTree;
+        repo.write("src/main/New.java", "class New {}\n");
+        repo.git("add", "src/main/New.java");
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.STAGED);
+    }
+
+    @Test
+    void walkFindsRevertedEntriesClean() throws IOException {
+        trees = this::readTree;
+        String original = repo.git("rev-parse", ":src/main/util/Util.java");
+        repo.write("src/main/util/Util.java", "class Util { }\n");
+        repo.git("add", "src/main/util/Util.java");
+        repo.git("update-index", "--cacheinfo", "100644," + original + ",src/main/util/Util.java");
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.CLEAN);
+    }
+
+    @Test
+    void walkWithoutCacheTree() throws IOException {
+        trees = this::readTree;
+        String[] paths = repo.git("ls-files").split("\n");
+        Files.delete(indexFile());
+        for (String path : paths) {
+            repo.git("update-index", "--add", path);
+        }
+        assertFalse(hasExtension("TREE"));
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.CLEAN);
+    }
+
+    @Test
+    void walkFindsModeChangesAndRemovals() throws IOException {
+        trees = this::readTree;
+        repo.git("update-index", "--chmod=+x", "src/main/Main.java");
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.STAGED);
+
+        repo.git("update-index", "--chmod=-x", "src/main/Main.java");
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.CLEAN);
+
+        // The last entry, so the walk only notices once the index has run out
+        repo.git("rm", "--cached", "--quiet", "src/main/util/Util.java");
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.STAGED);
+    }
+
+    @Test
+    void walkSkipsIntentToAdd() throws IOException {
+        trees = this::readTree;
+        repo.write("src/main/Later.java", "class Later {}\n");
+        repo.git("add", "--intent-to-add", "src/main/Later.java");
+
+        assertInEveryFormat(EXTENDED_VERSIONS, GitIndexReader.StagedState.CLEAN);
+    }
+
+    @Test
+    void walkStopsAtTheFirstDifference() throws IOException {
+        trees = this::readTree;
+        repo.write("README.md", "changed\n");
+        repo.git("add", "README.md");
+        rewrite(2, false);
+
+        assertEquals(GitIndexReader.StagedState.STAGED, read());
+        assertEquals(List.of(repo.git("rev-parse", "HEAD^{tree}")), treesRead);
+    }
+
+    @Test
+    void unreadableTreeEndsTheWalk() throws IOException {
+        trees = name -> null;
+        repo.write("src/main/New.java", "class New {}\n");
+        repo.git("add", "src/main/New.java");
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.UNKNOWN);
+    }
+
+    @Test
+    void extendedFlags() throws IOException {
+        repo.git("update-index", "--skip-worktree", "README.md");
+        repo.git("write-tree");
+
+        assertInEveryFormat(EXTENDED_VERSIONS, GitIndexReader.StagedState.CLEAN);
+
+        repo.write("src/main/Main.java", "class Main { }\n");
+        repo.git("add", "src/main/Main.java");
+        repo.git("write-tree");
+
+        assertInEveryFormat(EXTENDED_VERSIONS, GitIndexReader.StagedState.STAGED);
+    }
+
+    @Test
+    void splitIndex() throws IOException {
+        repo.git("update-index", "--split-index");
+        repo.write("src/main/Main.java", "class Main { }\n");
+        repo.git("commit", "--quiet", "-am", "split");
+        assertTrue(hasExtension("link"));
+        try (Stream<Path> files = Files.list(repo.getGitDirectory())) {
+            assertTrue(files.anyMatch(file -> file.getFileName().toString().startsWith("sharedindex.")));
+        }
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.CLEAN);
+
+        repo.write("README.md", "split and staged\n");
+        repo.git("add", "README.md");
+        repo.git("write-tree");
+
+        assertInEveryFormat(VERSIONS, GitIndexReader.StagedState.STAGED);
+    }
+
+    @Test
+    void splitIndexIsNotWalked() throws IOException {
+        trees = this::readTree;
+        repo.git("update-index", "--split-index");
+        repo.write("src/main/New.java", "class New {}\n");
+        repo.git("add", "src/main/New.java");
+        assertTrue(hasExtension("link"));
+
+        assertEquals(GitIndexReader.StagedState.UNKNOWN, read());
+    }
+
+    @Test
+    void unmergedEntries() throws IOException {
+        repo.git("checkout", "--quiet", "-b", "other");
+        repo.write("README.md", "other\n");
+        repo.git("add", "README.md");
+        repo.commit("other");
+        repo.git("checkout", "--quiet", "main");
+        repo.write("README.md", "main\n");
+        repo.git("add", "README.md");
+        repo.commit("main");
+        assertEquals(1, repo.gitExitCode("merge", "other"));
+        assertTrue(repo.git("ls-files", "--unmerged").contains("README.md"));
+
+        for (int version : VERSIONS) {
+            rewrite(version, false);
+            // The stage bits are only seen when the entries are walked
+            assertEquals(GitIndexReader.StagedState.STAGED, read(), "version " + version);
+            rewrite(version, true);
+            assertAgreesWithGit(read(), "version " + version + " with EOIE");
+        }
+    }
+
+    @Test
+    void compareWithHeadReadsTheTreeOfTheCommit() throws IOException {
+        String head = repo.git("rev-parse", "HEAD");
+        byte[] commit = (repo.git("cat-file", "commit", head) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(GitIndexReader.StagedState.CLEAN,
+                GitIndexReader.compareWithHead(repo.getGitDirectory(), head, commit, null));
+
+        Files.delete(indexFile());
+        assertEquals(GitIndexReader.StagedState.UNKNOWN,
+                GitIndexReader.compareWithHead(repo.getGitDirectory(), head, commit, this::readTree));
+    }
+
+    @Test
+    void notAnIndexIsUnknown() {
+        ByteBuffer buffer = ByteBuffer.wrap("DIRX\0\0\0\2\0\0\0\0".repeat(3).getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(GitIndexReader.StagedState.UNKNOWN, GitIndexReader.compareWithTree(buffer, "0".repeat(40), 20));
+    }
+
+    /**
+     * Rewrites the index in each version, without and then with EOIE, and checks every result
+     */
+    private void assertInEveryFormat(int[] versions, GitIndexReader.StagedState expected) throws IOException {
+        for (int version : versions) {
+            for (boolean endOfEntries : new boolean[]{false, true}) {
+                rewrite(version, endOfEntries);
+                String format = "version " + version + (endOfEntries ? " with EOIE" : "");
+                GitIndexReader.StagedState state = read();
+                assertEquals(expected, state, format);
+                assertAgreesWithGit(state, format);
+            }
+        }
+    }
+
+    private void rewrite(int version, boolean endOfEntries) throws IOException {
+        repo.git("-c", "index.recordEndOfIndexEntries=" + endOfEntries, "update-index",
+                "--index-version", String.valueOf(version), "--force-write-index");
+        byte[] index = Files.readAllBytes(indexFile());
+        assertEquals(version, ByteBuffer.wrap(index).getInt(4));
+        assertEquals(endOfEntries, hasExtension("EOIE"));
+    }
+
+    private GitIndexReader.StagedState read() throws IOException {
+        return GitIndexReader.compareWithTree(indexFile(), repo.git("rev-parse", "HEAD^{tree}"), 40, trees);
+    }
+
+    private byte[] readTree(String name) throws IOException {
+        treesRead.add(name);
+        return repo.gitBytes(null, List.of(), "cat-file", "tree", name);
+    }
+
+    private void assertAgreesWithGit(GitIndexReader.StagedState state, String format) throws IOException {
+        if (state != GitIndexReader.StagedState.UNKNOWN) {
+            boolean staged = repo.gitExitCode("diff", "--cached", "--quiet") == 1;
+            assertEquals(staged, state == GitIndexReader.StagedState.STAGED, format);
+        }
+    }
+
+    private boolean hasExtension(String signature) throws IOException {
+        String index = new String(Files.readAllBytes(indexFile()), StandardCharsets.ISO_8859_1);
+        return index.contains(signature);
+    }
+
+    private Path indexFile() {
+        return repo.getGitDirectory().resolve("index");
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.renamecurrentcommit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link HeadRewriter#rewordHead} must write the very commit {@code git commit --amend -F -} writes for the same
+ * message, configuration and committer date
+ */
+class HeadRewriterTest {
+    private static final String COMMITTER_DATE = "1700001000 +0000";
+
+    @TempDir
+    Path directory;
+
+    private TestRepository repo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repo = TestRepository.init(directory);
+        repo.write("a.txt", "a");
+        repo.git("add", "a.txt");
+        repo.commit("Parent");
+        repo.write("b.txt", "b");
+        repo.git("add", "b.txt");
+        repo.commit("Original");
+    }
+
+    @Test
+    void matchesGitWithDefaultCleanup() throws IOException {
+        assertSameAsGit("\n\n  Subject  \n\n\n# not a comment here\nBody \t\n\n", StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void matchesGitWithStripCleanup() throws IOException {
+        repo.git("config", "commit.cleanup", "strip");
+        assertSameAsGit("Subject\n# comment\n\nBody\n#\n", StandardCharsets.UTF_8);
+        repo.git("config", "core.commentChar", ";");
+        assertSameAsGit("Subject\n; comment\n# kept\n", StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void matchesGitWithVerbatimCleanup() throws IOException {
+        repo.git("config", "commit.cleanup", "verbatim");
+        assertSameAsGit("  Subject\n\n\n# kept  \n\n", StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void matchesGitWithCommitEncoding() throws IOException {
+        repo.git("config", "i18n.commitEncoding", "ISO-8859-1");
+        assertSameAsGit("Grüße\n\nÄnderung", StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void refusesMessagesEmptyAfterCleanupLikeGit() throws IOException {
+        repo.git("config", "commit.cleanup", "strip");
+        String head = repo.git("rev-parse", "HEAD");
+
+        IOException e = assertThrows(IOException.class, () -> HeadRewriter.rewordHead(new Store(), " \n# only\n\n"));
+        assertEquals(HeadRewriter.EMPTY_MESSAGE, e.getMessage());
+        assertEquals(head, repo.git("rev-parse", "HEAD"));
+        assertNotEquals(0, repo.gitExitCode("commit", "--amend", "--quiet", "-m", "# only"));
+    }
+
+    private void assertSameAsGit(String message, Charset gitInputCharset) throws IOException {
+        String original = repo.git("rev-parse", "HEAD");
+        String reworded = HeadRewriter.rewordHead(new Store(), message);
+        assertEquals(reworded, repo.git("rev-parse", "HEAD"));
+
+        repo.git("update-ref", "HEAD", original);
+        repo.gitBytes(message.getBytes(gitInputCharset), List.of("GIT_COMMITTER_DATE=" + COMMITTER_DATE),
+                "commit", "--amend", "--quiet", "--no-verify", "-F", "-");
+        assertEquals(repo.git("cat-file", "commit", "HEAD"), repo.git("cat-file", "commit", reworded));
+        assertEquals(repo.git("rev-parse", "HEAD"), reworded);
+        repo.git("update-ref", "HEAD", original);
+    }
+
+    private String config(String key) throws IOException {
+        return repo.gitExitCode("config", key) == 0 ? repo.git("config", key) : null;
+    }
+
+    /**
+     * Reads and writes the test repository through git, with the committer of {@code git commit} at a fixed date
+     */
+    private final class Store implements HeadRewriter.Store {
+        @Override
+        public String headRevision() throws IOException {
+            return repo.git("rev-parse", "HEAD");
+        }
+
+        @Override
+        public byte[] readCommit(String name) throws IOException {
+            return repo.gitBytes(null, List.of(), "cat-file", "commit", name);
+        }
+
+        @Override
+        public Path objectsDirectory() {
+            return repo.getObjectsDirectory();
+        }
+
+        @Override
+        public String committerIdent(String fallbackIdent) {
+            return "Test <test@example.com> " + COMMITTER_DATE;
+        }
+
+        @Override
+        public CommitMessageCodec.Cleanup cleanup() throws IOException {
+            return CommitMessageCodec.Cleanup.fromConfig(config("commit.cleanup"), config("core.commentChar"));
+        }
+
+        @Override
+        public String commitEncoding() throws IOException {
+            return config("i18n.commitEncoding");
+        }
+
+        @Override
+        public void updateHead(String newHead, String expectedOldHead, String reason) throws IOException {
+            repo.git("update-ref", "-m", reason, "HEAD", newHead, expectedOldHead);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.renamecurrentcommit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link RawCommit} is checked against commit objects written by git, including signed commits and headers it
+ * does not know, and every rewrite is fed back to {@code git fsck}
+ */
+class RawCommitTest {
+    private static final String AUTHOR = "Test <test@example.com> 1700000060 +0000";
+    private static final String SIGNATURE = "gpgsig -----BEGIN PGP SIGNATURE-----\n"
+            + " \n"
+            + " iQEzBAABCAAdFiEE\n"
+            + " =abcd\n"
+            + " -----END PGP SIGNATURE-----";
+
+    @TempDir
+    Path directory;
+
+    private TestRepository repo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repo = TestRepository.init(directory);
+    }
+
+    @Test
+    void roundTripsCommitsWrittenByGit() throws IOException {
+        repo.write("a.txt", "a");
+        repo.git("add", "a.txt");
+        String root = repo.commit("Root\n\nBody");
+        repo.write("b.txt", "b");
+        repo.git("add", "b.txt");
+        String child = repo.commit("Child");
+        repo.git("checkout", "--quiet", "-b", "side", root);
+        String side = repo.commit("Side");
+        repo.git("checkout", "--quiet", "main");
+        repo.git("merge", "--quiet", "--no-ff", "-m", "Merge side", "side");
+        String merge = repo.git("rev-parse", "HEAD");
+
+        for (String name : List.of(root, child, side, merge)) {
+            byte[] data = catFile(name);
+            assertArrayEquals(data, RawCommit.parse(data).toBytes(), () -> "commit " + name);
+        }
+        RawCommit parsed = RawCommit.parse(catFile(merge));
+        assertEquals(repo.git("rev-parse", merge + "^{tree}"), parsed.getTree());
+        assertEquals(List.of(child, side), parsed.getParents());
+        assertEquals("Merge side", parsed.getStrippedMessage());
+        assertEquals("Root\n\nBody", RawCommit.parse(catFile(root)).getStrippedMessage());
+    }
+
+    @Test
+    void roundTripsSignaturesAndUnknownHeaders() throws IOException {
+        String name = hashObject(signedCommit("Signed\n"));
+        byte[] data = catFile(name);
+        RawCommit parsed = RawCommit.parse(data);
+
+        assertArrayEquals(data, parsed.toBytes());
+        assertEquals(List.of(), parsed.getParents());
+        assertEquals(AUTHOR, parsed.getCommitter());
+        assertEquals("Signed\n", parsed.getMessage());
+    }
+
+    @Test
+    void rewritesDropTheSignatureAndKeepOtherHeaders() throws IOException {
+        RawCommit parsed = RawCommit.parse(catFile(hashObject(signedCommit("Signed\n"))));
+        String committer = "Other <other@example.com> 1700000120 +0100";
+        String parent = repo.commit("Parent");
+
+        String reworded = write(parsed.withMessage("Reworded\n", CommitMessageCodec.Cleanup.VERBATIM, null));
+        String recommitted = write(parsed.withCommitter(committer));
+        String reparented = write(parsed.withParents(List.of(parent)));
+
+        for (String name : List.of(reworded, recommitted, reparented)) {
+            String content = new String(catFile(name), StandardCharsets.UTF_8);
+            assertFalse(content.contains("gpgsig"), () -> "commit " + name);
+            assertTrue(content.contains("\nx-unknown kept as is\n"), () -> "commit " + name);
+        }
+        assertEquals("Reworded", repo.git("log", "-1", "--format=%B", reworded));
+        assertEquals(committer, RawCommit.parse(catFile(recommitted)).getCommitter());
+        assertEquals(parent, repo.git("rev-parse", reparented + "^"));
+        repo.git("fsck", "--strict", "--no-dangling");
+    }
+
+    @Test
+    void withMessageWritesTheEncodingHeaderLikeGit() throws IOException {
+        String head = repo.commit("Original");
+        RawCommit parsed = RawCommit.parse(catFile(head));
+
+        String latin1 = write(parsed.withMessage("Grüße\n", CommitMessageCodec.Cleanup.VERBATIM, "ISO-8859-1"));
+        byte[] data = catFile(latin1);
+        assertTrue(new String(data, StandardCharsets.ISO_8859_1).contains(" +0000\nencoding ISO-8859-1\n\nGrüße\n"));
+        assertEquals("Grüße", RawCommit.parse(data).getStrippedMessage());
+        assertEquals("Grüße", repo.git("log", "-1", "--encoding=UTF-8", "--format=%B", latin1));
+
+        String utf8 = write(RawCommit.parse(data).withMessage("Back\n", CommitMessageCodec.Cleanup.VERBATIM, "utf8"));
+        assertFalse(new String(catFile(utf8), StandardCharsets.UTF_8).contains("encoding"));
+    }
+
+    @Test
+    void rejectsObjectsWithoutTree() {
+        byte[] data = ("author " + AUTHOR + "\n\nNo tree\n").getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> RawCommit.parse(data));
+    }
+
+    private byte[] signedCommit(String message) throws IOException {
+        String tree = new String(repo.gitBytes(new byte[0], List.of(), "hash-object", "-t", "tree", "-w", "--stdin"),
+                StandardCharsets.US_ASCII).trim();
+        return ("tree " + tree + "\n"
+                + "author " + AUTHOR + "\n"
+                + "committer " + AUTHOR + "\n"
+                + SIGNATURE + "\n"
+                + "x-unknown kept as is\n"
+                + "\n" + message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String write(RawCommit commit) throws IOException {
+        return hashObject(commit.toBytes());
+    }
+
+    private String hashObject(byte[] data) throws IOException {
+        return new String(repo.gitBytes(data, List.of(), "hash-object", "-t", "commit", "-w", "--stdin"),
+                StandardCharsets.US_ASCII).trim();
+    }
+
+    private byte[] catFile(String name) throws IOException {
+        return repo.gitBytes(null, List.of(), "cat-file", "commit", name);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.renamecurrentcommit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReachabilityWalkerTest {
+    @TempDir
+    Path directory;
+
+    private TestRepository repo;
+    private final List<String> parentLookups = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repo = TestRepository.init(directory);
+    }
+
+    @Test
+    void targetInGraphReachableThroughMerge() throws IOException {
+        String base = repo.commit("base");
+        repo.git("checkout", "--quiet", "-b", "feature");
+        String feature = repo.commit("feature");
+        repo.git("checkout", "--quiet", "main");
+        repo.commit("main");
+        repo.git("merge", "--quiet", "--no-edit", "feature");
+        repo.git("branch", "--quiet", "-D", "feature");
+        String unrelated = orphanCommit("unrelated");
+        repo.git("branch", "other", unrelated);
+        repo.git("commit-graph", "write", "--reachable");
+        CommitGraph graph = openGraph();
+
+        Map<String, String> refs = refs("refs/remotes/origin/other", unrelated, "refs/remotes/origin/main", repo.git("rev-parse", "main"));
+
+        assertEquals("refs/remotes/origin/main", ReachabilityWalker.findContainingRef(graph, refs, feature, this::parents));
+        assertEquals("refs/remotes/origin/main", ReachabilityWalker.findContainingRef(graph, refs, base, this::parents));
+        assertTrue(parentLookups.isEmpty());
+    }
+
+    @Test
+    void targetInGraphNotReachable() throws IOException {
+        repo.commit("base");
+        String mainTip = repo.commit("main");
+        repo.git("checkout", "--quiet", "-b", "side", "HEAD~1");
+        String side = repo.commit("side");
+        repo.git("commit-graph", "write", "--reachable");
+
+        String found = ReachabilityWalker.findContainingRef(openGraph(), refs("refs/remotes/origin/main", mainTip), side, this::parents);
+
+        assertNull(found);
+    }
+
+    @Test
+    void octopusMergeParentsAreWalked() throws IOException {
+        String base = repo.commit("base");
+        List<String> tips = new ArrayList<>();
+        for (String branch : new String[]{"a", "b", "c"}) {
+            repo.git("checkout", "--quiet", "-b", branch, base);
+            tips.add(repo.commit("on " + branch));
+        }
+        repo.git("checkout", "--quiet", "a");
+        repo.git("merge", "--quiet", "--no-edit", "b", "c");
+        String merge = repo.git("rev-parse", "HEAD");
+        repo.git("commit-graph", "write", "--reachable");
+        CommitGraph graph = openGraph();
+
+        for (String tip : tips) {
+            assertEquals("refs/remotes/origin/a", ReachabilityWalker.findContainingRef(graph, refs("refs/remotes/origin/a", merge), tip, this::parents));
+        }
+    }
+
+    @Test
+    void splitGraphIsWalkedAcrossLayers() throws IOException {
+        String old = repo.commit("old");
+        repo.commit("old 2");
+        repo.git("commit-graph", "write", "--reachable", "--split");
+        repo.commit("new");
+        String tip = repo.commit("new 2");
+        repo.git("commit-graph", "write", "--reachable", "--split=no-merge");
+
+        String found = ReachabilityWalker.findContainingRef(openGraph(), refs("refs/remotes/origin/main", tip), old, this::parents);
+
+        assertEquals("refs/remotes/origin/main", found);
+        assertTrue(parentLookups.isEmpty());
+    }
+
+    @Test
+    void targetOutsideGraphIsFoundThroughParentSource() throws IOException {
+        repo.commit("covered");
+        repo.git("commit-graph", "write", "--reachable");
+        String target = repo.commit("target");
+        String tip = repo.commit("tip");
+
+        String found = ReachabilityWalker.findContainingRef(openGraph(), refs("refs/remotes/origin/main", tip), target, this::parents);
+
+        assertEquals("refs/remotes/origin/main", found);
+        assertEquals(List.of(tip), parentLookups);
+    }
+
+    @Test
+    void targetOutsideGraphNotReachableStopsAtTheGraph() throws IOException {
+        repo.commit("covered");
+        String covered = repo.commit("covered 2");
+        repo.git("commit-graph", "write", "--reachable");
+        String remoteTip = repo.commit("pushed");
+        repo.git("checkout", "--quiet", "-b", "local", covered);
+        String target = repo.commit("local only");
+
+        String found = ReachabilityWalker.findContainingRef(openGraph(), refs("refs/remotes/origin/main", remoteTip), target, this::parents);
+
+        assertNull(found);
+        // Graph commits cannot lead back out of the graph, so the walk ends at its first graph commit
+        assertEquals(List.of(remoteTip), parentLookups);
+    }
+
+    @Test
+    void tooManyCommitsOutsideGraphAreLeftToGit() throws IOException {
+        repo.commit("covered");
+        repo.git("commit-graph", "write", "--reachable");
+        CommitGraph graph = openGraph();
+        String target = repo.commit("target");
+
+        // A history newer than the graph that never reaches it or the target
+        ReachabilityWalker.ParentSource endless = commit -> {
+            parentLookups.add(commit);
+            return List.of(String.format("%040x", Long.parseLong(commit.substring(24), 16) + 1));
+        };
+        Map<String, String> refs = refs("refs/remotes/origin/main", String.format("%040x", 1));
+
+        IOException error = assertThrows(IOException.class, () -> ReachabilityWalker.findContainingRef(graph, refs, target, endless));
+
+        assertTrue(error.getMessage().contains(String.valueOf(ReachabilityWalker.MAX_COMMITS_OUTSIDE_GRAPH)));
+        assertEquals(ReachabilityWalker.MAX_COMMITS_OUTSIDE_GRAPH, parentLookups.size());
+    }
+
+    @Test
+    void refPointingAtTargetNeedsNoWalk() throws IOException {
+        String target = repo.commit("target");
+
+        repo.git("commit-graph", "write", "--reachable");
+
+        String found = ReachabilityWalker.findContainingRef(openGraph(), refs("refs/remotes/origin/main", target), target, this::parents);
+
+        assertEquals("refs/remotes/origin/main", found);
+        assertTrue(parentLookups.isEmpty());
+    }
+
+    private CommitGraph openGraph() throws IOException {
+        CommitGraph graph = CommitGraph.open(repo.getObjectsDirectory(), true);
+        assertNotNull(graph);
+        return graph;
+    }
+
+    private String orphanCommit(String message) throws IOException {
+        String tree = repo.git("mktree", "--missing");
+        return repo.gitWithInput(message + "\n", "commit-tree", tree);
+    }
+
+    private List<String> parents(String commit) throws IOException {
+        parentLookups.add(commit);
+        String output = repo.git("rev-parse", commit + "^@");
+        return output.isEmpty() ? List.of() : List.of(output.split("\n"));
+    }
+
+    private static Map<String, String> refs(String... namesAndCommits) {
+        Map<String, String> refs = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndCommits.length; i += 2) {
+            refs.put(namesAndCommits[i], namesAndCommits[i + 1]);
+        }
+        return refs;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.renamecurrentcommit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Throw-away git repository for tests, driven through the git command line.
+ * <p>
+ * Global and system configuration are ignored, so fixtures do not depend on the machine running the tests.
+ */
+final class TestRepository {
+    private final Path root;
+    private int commits;
+
+    private TestRepository(Path root) {
+        this.root = root;
+    }
+
+    static TestRepository init(Path directory) throws IOException {
+        TestRepository repo = new TestRepository(directory);
+        repo.git("init", "--quiet", "--initial-branch=main");
+        repo.git("config", "user.name", "Test");
+        repo.git("config", "user.email", "test@example.com");
+        repo.git("config", "commit.gpgSign", "false");
+        repo.git("config", "gc.auto", "0");
+        return repo;
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    Path getGitDirectory() {
+        return root.resolve(".git");
+    }
+
+    Path getObjectsDirectory() {
+        return getGitDirectory().resolve("objects");
+    }
+
+    /**
+     * Writes {@code content} to {@code path} in the work tree, creating directories as needed
+     */
+    void write(String path, String content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Commits whatever is staged, or nothing, with a distinct timestamp
+     *
+     * @return the name of the new commit
+     */
+    String commit(String message) throws IOException {
+        String date = (1_700_000_000L + 60L * ++commits) + " +0000";
+        run(null, List.of("GIT_AUTHOR_DATE=" + date, "GIT_COMMITTER_DATE=" + date),
+                "commit", "--quiet", "--allow-empty", "-m", message);
+        return git("rev-parse", "HEAD");
+    }
+
+    /**
+     * Runs git in the repository and returns its trimmed standard output
+     */
+    String git(String... args) throws IOException {
+        return run(null, List.of(), args);
+    }
+
+    /**
+     * Runs git with {@code input} on its standard input and returns its trimmed standard output
+     */
+    String gitWithInput(String input, String... args) throws IOException {
+        return run(input, List.of(), args);
+    }
+
+    /**
+     * Runs git in the repository and returns only its exit code
+     */
+    int gitExitCode(String... args) throws IOException {
+        Process process = start(List.of(), args);
+        process.getOutputStream().close();
+        process.getInputStream().readAllBytes();
+        return waitFor(process);
+    }
+
+    /**
+     * Runs git with {@code input} bytes on its standard input and returns its standard output unchanged
+     */
+    byte[] gitBytes(byte[] input, List<String> environment, String... args) throws IOException {
+        Process process = start(environment, args);
+        try (OutputStream stdin = process.getOutputStream()) {
+            if (input != null) {
+                stdin.write(input);
+            }
+        }
+        byte[] output;
+        try (InputStream in = process.getInputStream()) {
+            output = in.readAllBytes();
+        }
+        int exitCode = waitFor(process);
+        if (exitCode != 0) {
+            throw new IOException("git " + String.join(" ", args) + " failed (" + exitCode + "): "
+                    + new String(output, StandardCharsets.UTF_8));
+        }
+        return output;
+    }
+
+    private String run(String input, List<String> environment, String... args) throws IOException {
+        byte[] stdin = input != null ? input.getBytes(StandardCharsets.UTF_8) : null;
+        return new String(gitBytes(stdin, environment, args), StandardCharsets.UTF_8).trim();
+    }
+
+    private Process start(List<String> environment, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(root.toFile())
+                .redirectErrorStream(true);
+        builder.environment().put("GIT_CONFIG_NOSYSTEM", "1");
+        builder.environment().put("GIT_CONFIG_GLOBAL", root.resolve(".git").resolve("no-global-config").toString());
+        for (String variable : environment) {
+            int equals = variable.indexOf('=');
+            builder.environment().put(variable.substring(0, equals), variable.substring(equals + 1));
+        }
+        return builder.start();
+    }
+
+    private static int waitFor(Process process) throws IOException {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for git", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.renamecurrentcommit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TreeRewriter} must write the trees {@code git write-tree} writes for an index with the same gitlinks
+ * replaced, and touch only the trees on the way to them
+ */
+class TreeRewriterTest {
+    private static final String OLD_SUB = "1111111111111111111111111111111111111111";
+    private static final String NEW_SUB = "2222222222222222222222222222222222222222";
+    private static final String OLD_DEEP = "3333333333333333333333333333333333333333";
+    private static final String NEW_DEEP = "4444444444444444444444444444444444444444";
+    private static final String OTHER = "5555555555555555555555555555555555555555";
+
+    @TempDir
+    Path directory;
+
+    private TestRepository repo;
+    private GitStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repo = TestRepository.init(directory);
+        repo.write("lib.txt", "next to lib");
+        repo.write("lib/a/file.txt", "a");
+        repo.write("docs/readme.txt", "docs");
+        repo.git("add", ".");
+        gitlink(OLD_SUB, "sub");
+        gitlink(OLD_DEEP, "lib/a/deep");
+        gitlink(OTHER, "lib/b/other");
+        store = new GitStore();
+    }
+
+    @Test
+    void matchesWriteTree() throws IOException {
+        String tree = repo.git("write-tree");
+        List<String> replaced = new ArrayList<>();
+
+        String rewritten = TreeRewriter.replaceGitlinks(tree, Map.of(
+                "sub", new TreeRewriter.Replacement(OLD_SUB, NEW_SUB),
+                "lib/a/deep", new TreeRewriter.Replacement(OLD_DEEP, NEW_DEEP)), store, replaced);
+
+        gitlink(NEW_SUB, "sub");
+        gitlink(NEW_DEEP, "lib/a/deep");
+        String expected = repo.git("write-tree");
+        assertEquals(expected, rewritten);
+        assertEquals(Set.of("sub", "lib/a/deep"), new TreeSet<>(replaced));
+        assertEquals(Set.of(expected, repo.git("rev-parse", expected + ":lib"),
+                repo.git("rev-parse", expected + ":lib/a")), store.written);
+        assertFalse(store.read.contains(repo.git("rev-parse", tree + ":docs")));
+        assertFalse(store.read.contains(repo.git("rev-parse", tree + ":lib/b")));
+    }
+
+    @Test
+    void leavesGitlinksRecordingAnotherCommit() throws IOException {
+        String tree = repo.git("write-tree");
+        List<String> replaced = new ArrayList<>();
+
+        String rewritten = TreeRewriter.replaceGitlinks(tree, Map.of(
+                "lib/a/deep", new TreeRewriter.Replacement(OLD_SUB, NEW_SUB),
+                "lib/missing/deep", new TreeRewriter.Replacement(OLD_DEEP, NEW_DEEP),
+                "lib.txt", new TreeRewriter.Replacement(OLD_DEEP, NEW_DEEP)), store, replaced);
+
+        assertEquals(tree, rewritten);
+        assertTrue(replaced.isEmpty());
+        assertTrue(store.written.isEmpty());
+    }
+
+    private void gitlink(String commit, String path) throws IOException {
+        repo.git("update-index", "--add", "--cacheinfo", "160000," + commit + "," + path);
+    }
+
+    /**
+     * Objects of the test repository through git, remembering which were read and written
+     */
+    private final class GitStore implements TreeRewriter.ObjectStore {
+        private final Set<String> read = new TreeSet<>();
+        private final Set<String> written = new TreeSet<>();
+
+        @Override
+        public byte[] read(String type, String name) throws IOException {
+            read.add(name);
+            return repo.gitBytes(null, List.of(), "cat-file", type, name);
+        }
+
+        @Override
+        public String write(String type, byte[] content) throws IOException {
+            String name = new String(repo.gitBytes(content, List.of(), "hash-object", "-t", type, "-w", "--stdin"),
+                    StandardCharsets.US_ASCII).trim();
+            written.add(name);
+            return name;
+        }
+    }
+}